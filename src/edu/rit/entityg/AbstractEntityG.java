@@ -1,16 +1,30 @@
 package edu.rit.entityg;
 
+import edu.rit.entityg.dataloaders.CachingDataSourceLoader;
+import edu.rit.entityg.dataloaders.ChildrenListener;
 import edu.rit.entityg.dataloaders.DataSourceLoader;
 import edu.rit.entityg.dataloaders.DataSourceType;
+import edu.rit.entityg.dataloaders.NodePrefetcher;
+import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.prefuse.EdgeSet;
 import edu.rit.entityg.prefuse.view.CustomizedForceDirectedLayout;
+import edu.rit.entityg.prefuse.view.ParallelForceSimulator;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
 import edu.rit.entityg.utils.ExceptionUtils;
 import java.awt.event.MouseEvent;
-import java.util.Arrays;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 import javax.swing.ToolTipManager;
 import prefuse.Display;
 import prefuse.Visualization;
@@ -26,13 +40,15 @@ import prefuse.controls.ZoomControl;
 import prefuse.data.Edge;
 import prefuse.data.Graph;
 import prefuse.data.Node;
+import prefuse.data.Tuple;
+import prefuse.data.event.EventConstants;
+import prefuse.data.event.GraphListener;
 import prefuse.render.DefaultRendererFactory;
 import prefuse.render.LabelRenderer;
 import prefuse.util.ColorLib;
 import prefuse.util.force.DragForce;
 import prefuse.util.force.ForceSimulator;
 import prefuse.util.force.NBodyForce;
-import prefuse.util.force.RungeKuttaIntegrator;
 import prefuse.util.force.SpringForce;
 import prefuse.visual.EdgeItem;
 import prefuse.visual.NodeItem;
@@ -46,7 +62,7 @@ import static edu.rit.entityg.prefuse.GraphConfig.*;
  * @date May 6, 2011
  * @author Eric Kisner
  */
-public abstract class AbstractEntityG extends Display {
+public abstract class AbstractEntityG extends Display implements ChildrenListener {
 
     /**
      * The {@link Graph} object we are displaying.
@@ -57,8 +73,40 @@ public abstract class AbstractEntityG extends Display {
      */
     protected HashMap<Node, GenericTreeNode<String>> displayNodeToDataNodeMap;
     /**
-     * The data loader for EntityG. This is only used to close the connection to the data source when our program
-     * terminates.
+     * The reverse of {@link AbstractEntityG#displayNodeToDataNodeMap}: the {@link Node} of every
+     * {@link GenericTreeNode} on the graph. Tree nodes are compared by identity, since a node's hash code changes when
+     * children are added to it. Both maps are filled by {@link AbstractEntityG#mapNode(prefuse.data.Node,
+     * GenericTreeNode)}.
+     */
+    private final IdentityHashMap<GenericTreeNode<String>, Node> dataNodeToDisplayNodeMap =
+            new IdentityHashMap<GenericTreeNode<String>, Node>();
+    /**
+     * A mapping of the case-folded label of every {@link Node} on the graph to that {@link Node}, so a node is found by
+     * its data without looking at every node. Nodes are added to it by {@link AbstractEntityG#addNode(String)}, and
+     * removed from it when they are removed from the {@link Graph}.
+     */
+    private HashMap<String, Node> labelToNodeMap;
+    /**
+     * Every {@link Edge} on the graph, by the rows of the two {@link Node}s it connects, so an existing edge is found
+     * without walking the edges of either node. Edges are added to it by
+     * {@link AbstractEntityG#addEdge(prefuse.data.Node, prefuse.data.Node)}, and removed from it when they are
+     * removed from the {@link Graph}.
+     */
+    private EdgeSet edgeSet;
+    /**
+     * The color actions of the {@link edu.rit.entityg.prefuse.GraphConfig#DRAW} action, which are applied to the
+     * items that a batch added.
+     */
+    private ColorAction[] colorActions;
+    /**
+     * The {@link Node}s and {@link Edge}s that were added since the outermost
+     * {@link AbstractEntityG#beginGraphBatch()}, or null if no batch is open.
+     */
+    private List<Node> batchNodes;
+    private List<Edge> batchEdges;
+    private int batchDepth = 0;
+    /**
+     * The data loader for EntityG, wrapped in a {@link CachingDataSourceLoader} if nodes should be cached.
      */
     private DataSourceLoader loader;
     /**
@@ -69,6 +117,44 @@ public abstract class AbstractEntityG extends Display {
      * Default max number of nodes to display when loading new center nodes.
      */
     protected int defaultMaxNodes = 7;
+    /**
+     * The max number of loaded nodes to cache, or 0 if loaded nodes should not be cached.
+     */
+    protected int cacheSize = 0;
+    /**
+     * The number of milliseconds loaded nodes are cached for, or 0 if they are cached until they are dropped to make
+     * room for others.
+     */
+    protected long cacheTimeToLive = 0;
+    /**
+     * The max number of newly rendered nodes to load the children of in the background, or 0 if nodes should only be
+     * loaded when they are clicked.
+     */
+    protected int prefetchBudget = 0;
+    /**
+     * The max number of loaded nodes to cache when nodes are prefetched but {@link AbstractEntityG#cacheSize} is not
+     * set, since prefetched nodes are only kept in the cache.
+     */
+    private static final int PREFETCH_CACHE_SIZE = 10000;
+    /**
+     * Loads the children of newly rendered nodes in the background, or null if nodes are not prefetched.
+     */
+    private NodePrefetcher prefetcher;
+    /**
+     * The label of the placeholder {@link Node} which is shown while the children of a node are loaded.
+     */
+    private static final String PLACEHOLDER_LABEL = "Loading...";
+    /**
+     * Loads the children of clicked nodes, so the event dispatch thread keeps painting while the data source is read.
+     * Created when the first node is expanded.
+     */
+    private ExecutorService expansionExecutor;
+    /**
+     * The placeholder {@link Node} of every {@link GenericTreeNode} whose children are being loaded. Only used on the
+     * event dispatch thread.
+     */
+    private final IdentityHashMap<GenericTreeNode<String>, Node> pendingExpansions =
+            new IdentityHashMap<GenericTreeNode<String>, Node>();
 
     /**
      * Default constructor. Initializes the visualization.
@@ -76,14 +162,38 @@ public abstract class AbstractEntityG extends Display {
     public AbstractEntityG() {
         super( new Visualization() );
         displayNodeToDataNodeMap = new HashMap<Node, GenericTreeNode<String>>();
+        labelToNodeMap = new HashMap<String, Node>();
+        edgeSet = new EdgeSet();
     }
 
     /**
-     * Registers a new instance of {@link DataSourceLoader} for this EntityG instance.
+     * Registers a new instance of {@link DataSourceLoader} for this EntityG instance. If
+     * {@link AbstractEntityG#cacheSize} is set, the loader is wrapped in a {@link CachingDataSourceLoader}. If
+     * {@link AbstractEntityG#prefetchBudget} is set, a {@link NodePrefetcher} loads into that cache.
      * @param loader The {@link DataSourceLoader} that should be registered for this EntityG instance.
      */
     protected void registerLoader( DataSourceLoader loader ) {
-        this.loader = loader;
+        if( prefetchBudget > 0 && cacheSize <= 0 ) {
+            ExceptionUtils.handleMessage( "Prefetched nodes are kept in the node cache. Caching up to "
+                                          + PREFETCH_CACHE_SIZE + " nodes." );
+            cacheSize = PREFETCH_CACHE_SIZE;
+        }
+        if( cacheSize > 0 ) {
+            this.loader = new CachingDataSourceLoader( loader, cacheSize, cacheTimeToLive );
+        } else {
+            this.loader = loader;
+        }
+        if( prefetchBudget > 0 ) {
+            prefetcher = new NodePrefetcher( this.loader, prefetchBudget );
+        }
+    }
+
+    /**
+     * Returns the {@link DataSourceLoader} that nodes should be loaded with when they are clicked on. This is the
+     * registered loader, or the cache which wraps it.
+     */
+    protected DataSourceLoader getLoader() {
+        return loader;
     }
 
     /**
@@ -111,6 +221,14 @@ public abstract class AbstractEntityG extends Display {
 
             public void run() {
                 try {
+                    if( prefetcher != null ) {
+                        prefetcher.close();
+                    }
+                    synchronized( pendingExpansions ) {
+                        if( expansionExecutor != null ) {
+                            expansionExecutor.shutdownNow();
+                        }
+                    }
                     loader.close();
                 } catch( Exception e ) {
                     ExceptionUtils.handleException( e );
@@ -126,24 +244,49 @@ public abstract class AbstractEntityG extends Display {
      *         if a {@link Node} does not exist.
      */
     private Node getVisualNodeFromTreeNode( GenericTreeNode<String> node ) {
-        for( Node n : getNodes() ) {
-            if( n.getString( LABEL.getLabel() ).equalsIgnoreCase( node.getData() ) ) {
-                return n;
-            }
+        return labelToNodeMap.get( foldCase( node.getData() ) );
+    }
+
+    /**
+     * Adds a {@link Node} with the given label to the graph, and to {@link AbstractEntityG#labelToNodeMap}.
+     * @param label The data the new {@link Node} displays.
+     * @return The new {@link Node}.
+     */
+    private Node addNode( String label ) {
+        Node node = graph.addNode();
+        if( batchNodes != null ) {
+            batchNodes.add( node );
+        }
+        node.setString( LABEL.getLabel(), label );
+        String key = foldCase( label );
+        //Labels are compared without case, so the first node with a label is the one that is found.
+        if( !labelToNodeMap.containsKey( key ) ) {
+            labelToNodeMap.put( key, node );
         }
-        return null;
+        return node;
+    }
+
+    /**
+     * Maps <code>node</code> to the {@link GenericTreeNode} that contains its data, and back.
+     */
+    private void mapNode( Node node, GenericTreeNode<String> treeNode ) {
+        displayNodeToDataNodeMap.put( node, treeNode );
+        dataNodeToDisplayNodeMap.put( treeNode, node );
     }
 
     /**
-     * Returns a list of nodes that are currently displayed (visible or not) on this graph as a list of
-     * {@link Node}s.
+     * Returns a key for <code>label</code> which is the same for every label that is
+     * {@link String#equalsIgnoreCase(java.lang.String) equal ignoring case}.
      */
-    private List<Node> getNodes() {
-        Node[] nodes = new Node[graph.getNodeCount()];
-        for( int i = 0; i < graph.getNodeCount(); i++ ) {
-            nodes[i] = graph.getNode( i );
+    private static String foldCase( String label ) {
+        if( label == null ) {
+            return null;
+        }
+        char[] chars = label.toCharArray();
+        for( int i = 0; i < chars.length; i++ ) {
+            chars[i] = Character.toLowerCase( Character.toUpperCase( chars[i] ) );
         }
-        return Arrays.asList( nodes );
+        return new String( chars );
     }
 
     /**
@@ -155,12 +298,34 @@ public abstract class AbstractEntityG extends Display {
         //tells the graph the data group name of each label - in this case, "data". Technically, this is an
         //arbitrary label.
         graph.addColumn( LABEL.getLabel(), String.class );
+        //Nodes and edges which are removed from the graph can no longer be found. The event comes before the row of
+        //the node or edge is cleared, so its label (or its nodes) can still be read, but after the removed Node was
+        //invalidated. The edges of a node are removed before the node is.
+        graph.addGraphModelListener( new GraphListener() {
+
+            public void graphChanged( Graph g, String table, int start, int end, int col, int type ) {
+                if( type != EventConstants.DELETE ) {
+                    return;
+                }
+                for( int row = start; row <= end; row++ ) {
+                    if( Graph.NODES.equals( table ) ) {
+                        String key = foldCase( g.getNodeTable().getString( row, LABEL.getLabel() ) );
+                        Node indexed = labelToNodeMap.get( key );
+                        if( indexed != null && (!indexed.isValid() || indexed.getRow() == row) ) {
+                            labelToNodeMap.remove( key );
+                        }
+                    } else if( Graph.EDGES.equals( table ) ) {
+                        edgeSet.remove( g.getNodeIndex( g.getEdgeTable().getLong( row, g.getEdgeSourceField() ) ),
+                                        g.getNodeIndex( g.getEdgeTable().getLong( row, g.getEdgeTargetField() ) ) );
+                    }
+                }
+            }
+        } );
 
         GenericTreeNode<String> absoluteParent = setupAbsoluteParent();
         //Add the parent node and its children to the graph
-        Node root = graph.addNode();
-        root.setString( LABEL.getLabel(), absoluteParent.getData() );
-        displayNodeToDataNodeMap.put( root, absoluteParent );
+        Node root = addNode( absoluteParent.getData() );
+        mapNode( root, absoluteParent );
         renderNewNodes( root, absoluteParent );
     }
 
@@ -190,7 +355,9 @@ public abstract class AbstractEntityG extends Display {
         ColorAction nEdges = new ColorAction( EDGES.getLabel(), VisualItem.STROKECOLOR );
         nEdges.setDefaultColor( ColorLib.gray( 0 ) );
 
-        //Add the ColorActions to an ActionList
+        colorActions = new ColorAction[]{ nText, nStroke, nFill, nEdges };
+        //Add the ColorActions to an ActionList, which colors every item when EntityG starts. Items that are added
+        //later are colored by endGraphBatch().
         ActionList draw = new ActionList();
         draw.add( nText );
         draw.add( nStroke );
@@ -204,8 +371,8 @@ public abstract class AbstractEntityG extends Display {
      * Sets the graph to use a ForceDirectedLayout as its main Animate layout.
      */
     private void setupMainAnimationLayout() {
-        //Set the algorithm the ForceSimulator should use
-        ForceSimulator fsim = new ForceSimulator( new RungeKuttaIntegrator() );
+        //Run the ForceSimulator across all cores, with Runge-Kutta integration
+        ForceSimulator fsim = new ParallelForceSimulator();
         //Set coefficients for a ForceSimulator
         float gravConstant = -1f;
         float minDistance = -3f;
@@ -251,30 +418,183 @@ public abstract class AbstractEntityG extends Display {
      * <p/><b>Note:</b> Currently, the graph will <i>not</i> render nodes which already exist in the graph. This
      * means that there are no duplicates of a node on the graph. Instead, there will be an {@link Edge} created
      * between <code>nodeParent</code> and the pre-existing {@link Node}.
+     * <p/>The nodes and edges are added in a single batch (see {@link AbstractEntityG#beginGraphBatch()}).
      * @param nodeParent The {@link Node} that was clicked on.
      * @param treeParent The {@link GenericTreeNode} that contains the data of the children of
      *                   <code>nodeParent</code>.
      */
     protected void renderNewNodes( Node nodeParent, GenericTreeNode<String> treeParent ) {
-        for( GenericTreeNode<String> child : treeParent.getChildren() ) {
-            Node n = getVisualNodeFromTreeNode( child );
-            /**
-             * If a node representing <code>child</code> already exists, then we should just add an edge from that node
-             * to <code>nodeParent</code>. However, if an {@link Edge} exists between <code>child</code> and
-             * <code>nodeParent</code>, we don't want to create a duplicate {@link Edge}.
-             */
-            if( n != null ) {
-                if( !hasExistingEdge( nodeParent, n ) ) {
-                    graph.addEdge( nodeParent, n );
+        synchronized( m_vis ) {
+            beginGraphBatch();
+            try {
+                for( GenericTreeNode<String> child : treeParent.getChildren() ) {
+                    Node n = getVisualNodeFromTreeNode( child );
+                    /**
+                     * If a node representing <code>child</code> already exists, then we should just add an edge from
+                     * that node to <code>nodeParent</code>. However, if an {@link Edge} exists between
+                     * <code>child</code> and <code>nodeParent</code>, we don't want to create a duplicate
+                     * {@link Edge}.
+                     */
+                    if( n != null ) {
+                        if( !hasExistingEdge( nodeParent, n ) ) {
+                            addEdge( nodeParent, n );
+                        }
+                        continue;
+                    }
+                    Node newNode = addNode( child.getData() );
+                    mapNode( newNode, child );
+                    addEdge( nodeParent, newNode );
                 }
-                continue;
+            } finally {
+                endGraphBatch();
+            }
+        }
+        //The user is likely to click on one of the new nodes next.
+        if( prefetcher != null ) {
+            prefetcher.prefetch( treeParent.getChildren(), defaultMaxNodes );
+        }
+    }
+
+    /**
+     * Loads the children of <code>treeNode</code> in the background, and renders them once they are loaded. A
+     * placeholder {@link Node} is shown next to <code>source</code> right away, and is removed when the load is done.
+     * The load runs on the expansion executor (on virtual threads, where the JVM has them), and the graph is only
+     * changed on the event dispatch thread, under the lock of the visualization, so painting, panning and the layout
+     * go on while the data source is read. The children are loaded into a detached copy of <code>treeNode</code>
+     * (with the same data, header and continuation), since the event dispatch thread reads <code>treeNode</code>
+     * while the load runs, and they are moved onto <code>treeNode</code> on the event dispatch thread once the load
+     * is done. Clicks on <code>source</code> are ignored until then, so its children are only loaded once.
+     * <p/>This must be called on the event dispatch thread.
+     * @param source The {@link Node} that was clicked on.
+     * @param treeNode The {@link GenericTreeNode} of <code>source</code>, whose children are loaded.
+     * @param expansion Loads the children into the copy of <code>treeNode</code>.
+     */
+    protected void expandInBackground( final Node source, final GenericTreeNode<String> treeNode,
+                                       final Expansion expansion ) {
+        if( pendingExpansions.containsKey( treeNode ) ) {
+            return;
+        }
+        final GenericTreeNode<String> copy = new GenericTreeNode<String>( treeNode.isCenterNode(), treeNode.getData(),
+                                                                          treeNode.getDataHeader() );
+        copy.setContinuation( treeNode.getContinuation() );
+        Node placeholder;
+        synchronized( m_vis ) {
+            beginGraphBatch();
+            try {
+                placeholder = graph.addNode();
+                if( batchNodes != null ) {
+                    batchNodes.add( placeholder );
+                }
+                placeholder.setString( LABEL.getLabel(), PLACEHOLDER_LABEL );
+                addEdge( source, placeholder );
+            } finally {
+                endGraphBatch();
+            }
+        }
+        pendingExpansions.put( treeNode, placeholder );
+        getExpansionExecutor().execute( new Runnable() {
+
+            public void run() {
+                GenericTreeNode<String> loaded = null;
+                try {
+                    loaded = expansion.load( copy );
+                } catch( Exception e ) {
+                    ExceptionUtils.handleException( e );
+                }
+                final GenericTreeNode<String> result = loaded;
+                SwingUtilities.invokeLater( new Runnable() {
+
+                    public void run() {
+                        finishExpansion( source, treeNode, result );
+                    }
+                } );
+            }
+        } );
+    }
+
+    /**
+     * Removes the placeholder of <code>treeNode</code>, moves the children and continuation that were loaded onto
+     * <code>treeNode</code>, and renders them, in one batch.
+     * @param loaded The copy of <code>treeNode</code> that the children were loaded into, or null if the load failed.
+     */
+    private void finishExpansion( Node source, GenericTreeNode<String> treeNode, GenericTreeNode<String> loaded ) {
+        Node placeholder = pendingExpansions.remove( treeNode );
+        synchronized( m_vis ) {
+            beginGraphBatch();
+            try {
+                if( placeholder != null && placeholder.isValid() ) {
+                    graph.removeNode( placeholder );
+                }
+                if( loaded != null ) {
+                    for( GenericTreeNode<String> child : loaded.getChildren() ) {
+                        treeNode.addChild( child );
+                    }
+                    treeNode.setContinuation( loaded.getContinuation() );
+                }
+                if( treeNode.hasChildren() ) {
+                    renderNewNodes( source, treeNode );
+                }
+            } finally {
+                endGraphBatch();
             }
-            Node newNode = graph.addNode();
-            newNode.setString( LABEL.getLabel(), child.getData() );
-            displayNodeToDataNodeMap.put( newNode, child );
-            graph.addEdge( nodeParent, newNode );
         }
-        m_vis.run( DRAW.getLabel() );
+    }
+
+    /**
+     * Returns the executor which loads the children of clicked nodes, and creates it if it does not exist yet.
+     */
+    private ExecutorService getExpansionExecutor() {
+        synchronized( pendingExpansions ) {
+            if( expansionExecutor == null ) {
+                expansionExecutor = newExpansionExecutor();
+            }
+            return expansionExecutor;
+        }
+    }
+
+    /**
+     * Creates an executor which runs every load on a new virtual thread, if the JVM has virtual threads, or otherwise
+     * on a pool of daemon threads, so a running load never keeps EntityG from exiting.
+     */
+    private static ExecutorService newExpansionExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return (ExecutorService) virtual.invoke( null );
+        } catch( Exception e ) {
+            //Virtual threads are not available on this JVM.
+        }
+        return Executors.newCachedThreadPool( new ThreadFactory() {
+
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r, "EntityG expansion" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    /**
+     * Adds children that a {@link DataSourceLoader} found after <code>parent</code> was loaded, and renders them if
+     * <code>parent</code> is on the graph. The graph is only changed on the event dispatch thread, the same as when a
+     * node is clicked.
+     */
+    public void childrenFound( final GenericTreeNode<String> parent, final List<GenericTreeNode<String>> children ) {
+        SwingUtilities.invokeLater( new Runnable() {
+
+            public void run() {
+                //Cached pages of the node's center nodes no longer have every center node.
+                if( loader instanceof CachingDataSourceLoader ) {
+                    ((CachingDataSourceLoader) loader).invalidate( parent.getDataHeader(), parent.getData() );
+                }
+                for( GenericTreeNode<String> child : children ) {
+                    parent.addChild( child );
+                }
+                Node shown = dataNodeToDisplayNodeMap.get( parent );
+                if( shown != null ) {
+                    renderNewNodes( shown, parent );
+                }
+            }
+        } );
     }
 
     /**
@@ -284,10 +604,71 @@ public abstract class AbstractEntityG extends Display {
      * @return True if there exists an {@link Edge} between <code>source</code> and <code>target</code>.
      */
     private boolean hasExistingEdge( Node source, Node target ) {
-        if( graph.getEdge( source, target ) != null || graph.getEdge( target, source ) != null ) {
-            return true;
+        return edgeSet.contains( source.getRow(), target.getRow() );
+    }
+
+    /**
+     * Adds an {@link Edge} from <code>source</code> to <code>target</code> to the graph, and to
+     * {@link AbstractEntityG#edgeSet}.
+     */
+    private Edge addEdge( Node source, Node target ) {
+        edgeSet.add( source.getRow(), target.getRow() );
+        Edge edge = graph.addEdge( source, target );
+        if( batchEdges != null ) {
+            batchEdges.add( edge );
+        }
+        return edge;
+    }
+
+    /**
+     * Starts a batch of changes to the graph. The animation is paused until the batch ends, so the layout never sees
+     * half of a change, and the items that are added are colored when it ends, instead of running the
+     * {@link edu.rit.entityg.prefuse.GraphConfig#DRAW} action over every item on the graph. This must be called while
+     * holding the lock of the visualization (<code>synchronized( m_vis )</code>), and be followed by
+     * {@link AbstractEntityG#endGraphBatch()} in a <code>finally</code> block, before the lock is released. Batches
+     * can be nested; only the outermost one colors and repaints.
+     */
+    protected void beginGraphBatch() {
+        if( batchDepth++ > 0 ) {
+            return;
+        }
+        batchNodes = new ArrayList<Node>();
+        batchEdges = new ArrayList<Edge>();
+        Activity animate = m_vis.getAction( ANIMATE.getLabel() );
+        if( animate != null ) {
+            animate.setEnabled( false );
+        }
+    }
+
+    /**
+     * Ends a batch of changes to the graph: colors the items which were added, resumes the animation, and repaints
+     * the display once.
+     * @see AbstractEntityG#beginGraphBatch()
+     */
+    protected void endGraphBatch() {
+        if( --batchDepth > 0 ) {
+            return;
+        }
+        //Before the graph is added to the visualization, there are no items yet; they are all colored by the first
+        //DRAW.
+        if( colorActions != null && m_vis.getGroup( GRAPH.getLabel() ) != null ) {
+            for( ColorAction action : colorActions ) {
+                List<? extends Tuple> added = EDGES.getLabel().equals( action.getGroup() ) ? batchEdges : batchNodes;
+                for( Tuple tuple : added ) {
+                    VisualItem item = m_vis.getVisualItem( action.getGroup(), tuple );
+                    if( item != null ) {
+                        action.process( item, 1.0 );
+                    }
+                }
+            }
+        }
+        batchNodes = null;
+        batchEdges = null;
+        Activity animate = m_vis.getAction( ANIMATE.getLabel() );
+        if( animate != null ) {
+            animate.setEnabled( true );
         }
-        return false;
+        m_vis.repaint();
     }
 
     /**
@@ -321,13 +702,30 @@ public abstract class AbstractEntityG extends Display {
                 hovered = item;
                 Node source = (Node) item.getSourceTuple();
                 GenericTreeNode<String> treeNode = displayNodeToDataNodeMap.get( source );
-                setToolTipText( treeNode.getDataHeader() );
+                if( treeNode == null ) {    //A placeholder
+                    setToolTipText( PLACEHOLDER_LABEL );
+                } else if( treeNode.hasMoreChildren() ) {
+                    setToolTipText( treeNode.getDataHeader() + " (shift + double click to load more)" );
+                } else {
+                    setToolTipText( treeNode.getDataHeader() );
+                }
                 ToolTipManager.sharedInstance().mouseMoved( e );
             }
         }
 
         @Override
         public void itemClicked( VisualItem item, MouseEvent e ) {
+            //The user moved on from the nodes that were being prefetched; the click may prefetch others.
+            if( prefetcher != null ) {
+                prefetcher.cancel();
+            }
+            //Placeholders can't be clicked, and nodes whose children are being loaded ignore clicks until they are.
+            if( item.getSourceTuple() instanceof Node ) {
+                GenericTreeNode<String> treeNode = displayNodeToDataNodeMap.get( (Node) item.getSourceTuple() );
+                if( treeNode == null || pendingExpansions.containsKey( treeNode ) ) {
+                    return;
+                }
+            }
             customItemClicked( item, e );
         }
     } //end NodeControl adapter
@@ -366,6 +764,17 @@ public abstract class AbstractEntityG extends Display {
         return ((NodeItem) ni.getChild( 0 )).isVisible();
     }
 
+    /**
+     * Tests whether a click asks for more children of a node to be loaded, instead of hiding or showing the children
+     * it already has. A shift + double click loads more children of a {@link GenericTreeNode} which
+     * {@link GenericTreeNode#hasMoreChildren() has more children}.
+     * @param e The {@link MouseEvent} of the click.
+     * @return True if the click is a "load more" click.
+     */
+    protected boolean isLoadMoreClick( MouseEvent e ) {
+        return e.isShiftDown();
+    }
+
     /**
      * Sets a new max node default.
      * @param defaultMaxNodes The new value for {@link AbstractEntityG#defaultMaxNodes}.
@@ -374,6 +783,30 @@ public abstract class AbstractEntityG extends Display {
         this.defaultMaxNodes = defaultMaxNodes;
     }
 
+    /**
+     * Sets the max number of loaded nodes to cache.
+     * @param cacheSize The new value for {@link AbstractEntityG#cacheSize}.
+     */
+    public void set_cache_size( int cacheSize ) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Sets the number of seconds loaded nodes are cached for.
+     * @param cacheTimeToLive The number of seconds, or 0 to cache loaded nodes for as long as there is room for them.
+     */
+    public void set_cache_ttl( int cacheTimeToLive ) {
+        this.cacheTimeToLive = cacheTimeToLive * 1000L;
+    }
+
+    /**
+     * Sets the max number of newly rendered nodes to prefetch the children of.
+     * @param prefetchBudget The new value for {@link AbstractEntityG#prefetchBudget}.
+     */
+    public void set_prefetch_budget( int prefetchBudget ) {
+        this.prefetchBudget = prefetchBudget;
+    }
+
     /**
      * Sets the {@link AbstractEntityG#useToolTip} flag.
      * @param useToolTip The new value for {@link AbstractEntityG#useToolTip}.
@@ -382,6 +815,16 @@ public abstract class AbstractEntityG extends Display {
         this.useToolTip = useToolTip;
     }
 
+    /**
+     * Compiles the data source into a {@link edu.rit.entityg.snapshot.SnapshotFile}, so it can be loaded by a
+     * {@link SnapshotEntityG} without reading the data source again. This must be called after
+     * {@link AbstractEntityG#connectToDataSource()}. Data sources which can't be compiled into a snapshot throw an
+     * {@link IllegalArgumentException} which says why.
+     * @param file The snapshot file to write.
+     * @throws IOException If the data source could not be read, or the snapshot could not be written.
+     */
+    public abstract void writeSnapshot( File file ) throws IOException;
+
     /**
      * Sets up the first node group for this graph. This is where all customization for how the graph should first
      * appear should go. Each subclass that extends {@link AbstractEntityG} should implement this function in order
@@ -395,6 +838,8 @@ public abstract class AbstractEntityG extends Display {
     /**
      * User-click handling method. This should be implemented in each subclass of {@link AbstractEntityG} because each
      * data sources require different information to be sent to an implementation of {@link DataSourceLoader}.
+     * Children should be loaded with {@link AbstractEntityG#expandInBackground(prefuse.data.Node, GenericTreeNode,
+     * AbstractEntityG.Expansion)}, so the display is not frozen while they are loaded.
      * @param item The {@link VisualItem} that was clicked.
      * @param e The {@link MouseEvent} of the click.
      */
@@ -404,4 +849,17 @@ public abstract class AbstractEntityG extends Display {
      * Connect to the data source. Available data sources are defined in {@link DataSourceType}.
      */
     public abstract void connectToDataSource();
+
+    /**
+     * Loads the children of a node for {@link AbstractEntityG#expandInBackground(prefuse.data.Node, GenericTreeNode,
+     * AbstractEntityG.Expansion)}. This is called off the event dispatch thread.
+     */
+    protected interface Expansion {
+
+        /**
+         * Loads the children of <code>copy</code>, a detached copy of the node that was clicked on.
+         * @return <code>copy</code>.
+         */
+        GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException;
+    }
 }
@@ -2,10 +2,14 @@ package edu.rit.entityg;
 
 import edu.rit.entityg.csv.CSVConnection;
 import edu.rit.entityg.dataloaders.CSVLoader;
+import edu.rit.entityg.dataloaders.CachingDataSourceLoader;
 import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.snapshot.SnapshotWriter;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
 import edu.rit.entityg.utils.ExceptionUtils;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import javax.swing.SwingUtilities;
 import prefuse.data.Node;
@@ -27,6 +31,11 @@ public class CSVEntityG extends AbstractEntityG {
     private int centerColumnNumber;
     private int[] infoColumnNumbers;
     private HashMap<Integer, String> columnToNameMapping;
+    private boolean memoryMapped = false;
+    private boolean useIndex = false;
+    private boolean useColumnStore = false;
+    private boolean parallelScan = false;
+    private boolean follow = false;
     /**
      * The data loader for EntityG.
      */
@@ -99,16 +108,69 @@ public class CSVEntityG extends AbstractEntityG {
         }
     }
 
+    /**
+     * Sets whether the CSV file should be memory-mapped.
+     * @param memoryMapped <code>true</code> if the CSV file should be memory-mapped and scanned in place.
+     */
+    public void set_memory_mapped( String memoryMapped ) {
+        this.memoryMapped = Boolean.parseBoolean( memoryMapped );
+    }
+
+    /**
+     * Sets whether rows should be looked up through an index file.
+     * @param useIndex <code>true</code> if the CSV file should be indexed.
+     */
+    public void set_use_index( String useIndex ) {
+        this.useIndex = Boolean.parseBoolean( useIndex );
+    }
+
+    /**
+     * Sets whether the center node and information node columns should be loaded into memory.
+     * @param useColumnStore <code>true</code> if the columns should be loaded into memory in the background.
+     */
+    public void set_use_column_store( String useColumnStore ) {
+        this.useColumnStore = Boolean.parseBoolean( useColumnStore );
+    }
+
+    /**
+     * Sets whether scans of the CSV file should run on all available cores.
+     * @param parallelScan <code>true</code> if scans should be split into chunks and run in parallel.
+     */
+    public void set_parallel_scan( String parallelScan ) {
+        this.parallelScan = Boolean.parseBoolean( parallelScan );
+    }
+
+    /**
+     * Sets whether rows that are appended to the CSV file while EntityG runs should be read.
+     * @param follow <code>true</code> if the CSV file should be followed, and appended rows added to the graph.
+     */
+    public void set_follow( String follow ) {
+        this.follow = Boolean.parseBoolean( follow );
+    }
+
     public void connectToDataSource() {
-        CSVConnection.setProperties( fileName );
+        CSVConnection.setProperties( fileName, memoryMapped, follow );
         loader = new CSVLoader( CSVConnection.instance() );
+        loader.setChildrenListener( this );
         super.registerLoader( loader );
+        if( getLoader() instanceof CachingDataSourceLoader ) {
+            ((CachingDataSourceLoader) getLoader()).setFollowed( CSVConnection.instance().isFollowMode() );
+        }
+    }
+
+    @Override
+    public void writeSnapshot( File file ) throws IOException {
+        SnapshotWriter.fromCSV( CSVConnection.instance(), centerColumnNumber, infoColumnNumbers, columnToNameMapping,
+                                file );
     }
 
     public GenericTreeNode<String> setupAbsoluteParent() {
         loader.setCenterNodeColumnNumber( centerColumnNumber );
         loader.setColumnToNameMapping( columnToNameMapping );
         loader.setInformationNodeColumnNumbers( infoColumnNumbers );
+        loader.setUseIndex( useIndex );
+        loader.setUseColumnStore( useColumnStore );
+        loader.setParallelScan( parallelScan );
         try {
             GenericTreeNode<String> ret = loader.loadAbsoluteParent( centerColumnName );
             return ret;
@@ -128,30 +190,42 @@ public class CSVEntityG extends AbstractEntityG {
             /**
              * If the Tree node has children, and they are visible nodes on the graph, we want to set those
              * nodes to be invisible. Else, if the tree node has children and they are invisible, we want
-             * to set those nodes to be visible.
+             * to set those nodes to be visible. A "load more" click on an information node that has more
+             * center nodes loads the next page of them instead.
              */
-            if( treeNode.hasChildren() ) {
+            if( treeNode.hasMoreChildren() && isLoadMoreClick( e ) ) {
+                setVisibilityOfAllChildren( item, true );
+                expandInBackground( source, treeNode, new Expansion() {
+
+                    public GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException {
+                        return getLoader().loadCenterNodes( copy, defaultMaxNodes, copy.getData(),
+                                                            copy.getDataHeader() );
+                    }
+                } );
+            } else if( treeNode.hasChildren() ) {
+                //Rows appended to a followed file are only attached to information nodes whose children are shown.
                 if( hasVisibleChildren( item ) ) {
                     setVisibilityOfAllChildren( item, false );
+                    loader.unfollowChildren( treeNode );
                 } else {
                     setVisibilityOfAllChildren( item, true );
+                    loader.followChildren( treeNode );
                 }
             } else {
-                //If they click on a "center node"
-                try {
-                    if( treeNode.isCenterNode() ) {
-                        treeNode = loader.loadInformationNodes( treeNode, treeNode.getData() );
-                    } else {    //Else they clicked on an information node
-                        treeNode = loader.loadCenterNodes( treeNode, defaultMaxNodes, treeNode.getData(),
-                                                           treeNode.getDataHeader() );
+                //Load the information nodes of a "center node", or the center nodes of an information node, and
+                //render them on the graph once they are loaded. The node is followed before its center nodes are
+                //loaded, so no row that is appended during the load is missed.
+                loader.followChildren( treeNode );
+                expandInBackground( source, treeNode, new Expansion() {
+
+                    public GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException {
+                        if( copy.isCenterNode() ) {
+                            return getLoader().loadInformationNodes( copy, copy.getData() );
+                        }
+                        return getLoader().loadCenterNodes( copy, defaultMaxNodes, copy.getData(),
+                                                            copy.getDataHeader() );
                     }
-                } catch( BadSetupException bse ) {
-                    ExceptionUtils.handleException( bse );
-                }
-                //Retrieve all children of this TreeNode and render it on the graph.
-                if( treeNode.hasChildren() ) {
-                    renderNewNodes( source, treeNode );
-                }
+                } );
             }
         }
     }
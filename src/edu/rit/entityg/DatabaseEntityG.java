@@ -3,9 +3,13 @@ package edu.rit.entityg;
 import edu.rit.entityg.database.DatabaseConnection;
 import edu.rit.entityg.dataloaders.DatabaseLoader;
 import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.snapshot.SnapshotWriter;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
 import edu.rit.entityg.utils.ExceptionUtils;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import javax.swing.SwingUtilities;
 import prefuse.Visualization;
 import prefuse.data.Node;
@@ -29,6 +33,14 @@ public class DatabaseEntityG extends AbstractEntityG {
     private String baseColumnName;
     private String firstNodeData;
     private String[] childrenColumnNames;
+    private int poolMinSize = 1;
+    private int poolMaxSize = 8;
+    private long poolIdleTimeout = 5 * 60 * 1000;
+    private int slowQueryThreshold = 0;
+    private String highWaterMarkColumn;
+    private int queryTimeout = 30;
+    private int maxConcurrentQueries = 0;
+    private boolean hedgeQueries = false;
     /**
      * The data loader for EntityG.
      */
@@ -77,13 +89,110 @@ public class DatabaseEntityG extends AbstractEntityG {
         this.childrenColumnNames = childrenColumnNames.split( "," );
     }
 
+    /**
+     * Sets the number of connections to the database that are kept open, even when they are idle.
+     * @param poolMinSize An integer as a String.
+     */
+    public void set_pool_min_size( String poolMinSize ) {
+        if( !poolMinSize.isEmpty() ) {
+            this.poolMinSize = parseInt( poolMinSize, this.poolMinSize );
+        }
+    }
+
+    /**
+     * Sets the maximum number of connections to the database that are open at once.
+     * @param poolMaxSize An integer as a String.
+     */
+    public void set_pool_max_size( String poolMaxSize ) {
+        if( !poolMaxSize.isEmpty() ) {
+            this.poolMaxSize = parseInt( poolMaxSize, this.poolMaxSize );
+        }
+    }
+
+    /**
+     * Sets the number of seconds after which an idle connection to the database is closed.
+     * @param poolIdleTimeout An integer as a String.
+     */
+    public void set_pool_idle_timeout( String poolIdleTimeout ) {
+        if( !poolIdleTimeout.isEmpty() ) {
+            this.poolIdleTimeout = parseInt( poolIdleTimeout, (int) (this.poolIdleTimeout / 1000) ) * 1000L;
+        }
+    }
+
+    /**
+     * Sets the number of milliseconds after which a query is logged as a slow query.
+     * @param slowQueryThreshold An integer as a String, or 0 to log no queries.
+     */
+    public void set_slow_query_threshold( String slowQueryThreshold ) {
+        if( !slowQueryThreshold.isEmpty() ) {
+            this.slowQueryThreshold = parseInt( slowQueryThreshold, this.slowQueryThreshold );
+        }
+    }
+
+    /**
+     * Sets the column whose largest value is kept in a snapshot of the base query, so the snapshot can be refreshed
+     * with only the rows that were added since. Its values must be unique and strictly increasing with every new row.
+     * @param highWaterMarkColumn A column name, or an empty String for none.
+     */
+    public void set_high_water_mark_column( String highWaterMarkColumn ) {
+        this.highWaterMarkColumn = highWaterMarkColumn.isEmpty() ? null : highWaterMarkColumn.trim();
+    }
+
+    /**
+     * Sets the number of seconds after which a query is cancelled.
+     * @param queryTimeout An integer as a String, or 0 to never cancel queries.
+     */
+    public void set_query_timeout( String queryTimeout ) {
+        if( !queryTimeout.isEmpty() ) {
+            this.queryTimeout = parseInt( queryTimeout, this.queryTimeout );
+        }
+    }
+
+    /**
+     * Sets the maximum number of queries that run against the database at once.
+     * @param maxConcurrentQueries An integer as a String, or 0 for the size of the connection pool.
+     */
+    public void set_max_concurrent_queries( String maxConcurrentQueries ) {
+        if( !maxConcurrentQueries.isEmpty() ) {
+            this.maxConcurrentQueries = parseInt( maxConcurrentQueries, this.maxConcurrentQueries );
+        }
+    }
+
+    public void set_hedge_queries( String hedgeQueries ) {
+        this.hedgeQueries = Boolean.parseBoolean( hedgeQueries );
+    }
+
+    private static int parseInt( String value, int defaultValue ) {
+        try {
+            return Integer.parseInt( value.trim() );
+        } catch( NumberFormatException nfe ) {
+            ExceptionUtils.handleMessage( value + " is not a number. Using the default value: " + defaultValue );
+            return defaultValue;
+        }
+    }
+
     @Override
     public void connectToDataSource() {
         DatabaseConnection.setProperties( host, port, databaseName, uid, password );
+        DatabaseConnection.setPoolProperties( poolMinSize, poolMaxSize, poolIdleTimeout );
+        DatabaseConnection.instance().getQueryStats().setSlowQueryThreshold( slowQueryThreshold );
+        DatabaseConnection.instance().setQueryTimeout( queryTimeout );
+        DatabaseConnection.instance().setMaxConcurrentQueries( maxConcurrentQueries );
+        DatabaseConnection.instance().setHedging( hedgeQueries );
         loader = new DatabaseLoader( DatabaseConnection.instance() );
         super.registerLoader( loader );
     }
 
+    @Override
+    public void writeSnapshot( File file ) throws IOException {
+        try {
+            SnapshotWriter.fromQuery( DatabaseConnection.instance(), baseQuery, baseColumnName, childrenColumnNames,
+                                      highWaterMarkColumn, file );
+        } catch( SQLException sqle ) {
+            throw new IOException( "There was an error trying to read " + baseQuery + " into a snapshot.", sqle );
+        }
+    }
+
     @Override
     public GenericTreeNode<String> setupAbsoluteParent() {
         loader.setBaseQuery( baseQuery );
@@ -109,31 +218,37 @@ public class DatabaseEntityG extends AbstractEntityG {
             /**
              * If the Tree node has children, and they are visible nodes on the graph, we want to set those
              * nodes to be invisible. Else, if the tree node has children and they are invisible, we want
-             * to set those nodes to be visible.
+             * to set those nodes to be visible. A "load more" click on an information node that has more
+             * center nodes loads the next page of them instead.
              */
-            if( treeNode.hasChildren() ) {
+            if( treeNode.hasMoreChildren() && isLoadMoreClick( e ) ) {
+                setVisibilityOfAllChildren( item, true );
+                expandInBackground( source, treeNode, new Expansion() {
+
+                    public GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException {
+                        return getLoader().loadCenterNodes( copy, defaultMaxNodes, copy.getData(),
+                                                            copy.getDataHeader() );
+                    }
+                } );
+            } else if( treeNode.hasChildren() ) {
                 if( hasVisibleChildren( item ) ) {
                     setVisibilityOfAllChildren( item, false );
                 } else {
                     setVisibilityOfAllChildren( item, true );
                 }
             } else {
-                //If they click on a "center node"
-                try {
-                    if( treeNode.isCenterNode() ) {
-                        treeNode = loader.loadInformationNodes( treeNode, treeNode.getData(),
-                                                                treeNode.getDataHeader() );
-                    } else {    //Else they clicked on an information node
-                        treeNode = loader.loadCenterNodes( treeNode, defaultMaxNodes, treeNode.getData(),
-                                                           treeNode.getDataHeader() );
+                //Load the information nodes of a "center node", or the center nodes of an information node, and
+                //render them on the graph once they are loaded.
+                expandInBackground( source, treeNode, new Expansion() {
+
+                    public GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException {
+                        if( copy.isCenterNode() ) {
+                            return getLoader().loadInformationNodes( copy, copy.getData(), copy.getDataHeader() );
+                        }
+                        return getLoader().loadCenterNodes( copy, defaultMaxNodes, copy.getData(),
+                                                            copy.getDataHeader() );
                     }
-                } catch( BadSetupException bse ) {
-                    ExceptionUtils.handleException( bse );
-                }
-                //Retrieve all children of this TreeNode and render it on the graph.
-                if( treeNode.hasChildren() ) {
-                    renderNewNodes( source, treeNode );
-                }
+                } );
             }
         }
     }
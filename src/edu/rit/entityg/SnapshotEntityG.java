@@ -0,0 +1,127 @@
+package edu.rit.entityg;
+
+import edu.rit.entityg.dataloaders.SnapshotLoader;
+import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.snapshot.SnapshotFile;
+import edu.rit.entityg.treeimpl.GenericTreeNode;
+import edu.rit.entityg.utils.ExceptionUtils;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import javax.swing.SwingUtilities;
+import prefuse.data.Node;
+import prefuse.visual.VisualItem;
+
+/**
+ * {@link SnapshotEntityG} is a class that implements any methods that are required when loading data from a
+ * {@link SnapshotFile}, which a CSV file or database query was compiled into with
+ * {@link edu.rit.entityg.run.SnapshotConverter}.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class SnapshotEntityG extends AbstractEntityG {
+
+    private static final long serialVersionUID = 1L;
+    private String snapshotFile;
+    private String firstNodeData;
+    /**
+     * The data loader for EntityG.
+     */
+    private SnapshotLoader loader;
+
+    public SnapshotEntityG() {
+        super();
+    }
+
+    /**
+     * Set the path to the snapshot file.
+     * @param snapshotFile The snapshot file's path.
+     */
+    public void set_snapshot_file( String snapshotFile ) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Sets the data of the first center node.
+     * @param firstNodeData The data of the first center node, or an empty string to start with the first center node
+     *                      of the snapshot.
+     */
+    public void set_first_node_entry( String firstNodeData ) {
+        this.firstNodeData = firstNodeData;
+    }
+
+    /**
+     * A snapshot is already compiled, so it is not compiled again. Convert the CSV file or database it was compiled
+     * from instead.
+     */
+    @Override
+    public void writeSnapshot( File file ) throws IOException {
+        throw new IllegalArgumentException( snapshotFile + " is already a snapshot. Convert the csv or database data "
+                                            + "source it was compiled from instead." );
+    }
+
+    public void connectToDataSource() {
+        try {
+            loader = new SnapshotLoader( SnapshotFile.open( new File( snapshotFile ) ) );
+        } catch( IOException ioe ) {
+            ExceptionUtils.handleException( ioe );
+            throw new RuntimeException( ioe );
+        }
+        super.registerLoader( loader );
+    }
+
+    public GenericTreeNode<String> setupAbsoluteParent() {
+        try {
+            GenericTreeNode<String> ret = loader.loadAbsoluteParent( firstNodeData );
+            return ret;
+        } catch( BadSetupException bse ) {
+            ExceptionUtils.handleException( bse );
+            throw new RuntimeException( bse );
+        }
+    }
+
+    public void customItemClicked( VisualItem item, MouseEvent e ) {
+        if( !SwingUtilities.isLeftMouseButton( e ) ) return;
+        if( e.getClickCount() == 2 ) {//DoubleClick
+            //The backing Tuple of this visual item is actually a Node object (from g.addNode)
+            Node source = (Node) item.getSourceTuple();
+            //Get the related TreeNode of this Node
+            GenericTreeNode<String> treeNode = displayNodeToDataNodeMap.get( source );
+            /**
+             * If the Tree node has children, and they are visible nodes on the graph, we want to set those
+             * nodes to be invisible. Else, if the tree node has children and they are invisible, we want
+             * to set those nodes to be visible. A "load more" click on an information node that has more
+             * center nodes loads the next page of them instead.
+             */
+            if( treeNode.hasMoreChildren() && isLoadMoreClick( e ) ) {
+                setVisibilityOfAllChildren( item, true );
+                expandInBackground( source, treeNode, new Expansion() {
+
+                    public GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException {
+                        return getLoader().loadCenterNodes( copy, defaultMaxNodes, copy.getData(),
+                                                            copy.getDataHeader() );
+                    }
+                } );
+            } else if( treeNode.hasChildren() ) {
+                if( hasVisibleChildren( item ) ) {
+                    setVisibilityOfAllChildren( item, false );
+                } else {
+                    setVisibilityOfAllChildren( item, true );
+                }
+            } else {
+                //Load the information nodes of a "center node", or the center nodes of an information node, and
+                //render them on the graph once they are loaded.
+                expandInBackground( source, treeNode, new Expansion() {
+
+                    public GenericTreeNode<String> load( GenericTreeNode<String> copy ) throws BadSetupException {
+                        if( copy.isCenterNode() ) {
+                            return getLoader().loadInformationNodes( copy, copy.getData() );
+                        }
+                        return getLoader().loadCenterNodes( copy, defaultMaxNodes, copy.getData(),
+                                                            copy.getDataHeader() );
+                    }
+                } );
+            }
+        }
+    }
+}
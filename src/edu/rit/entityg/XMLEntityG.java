@@ -3,6 +3,8 @@ package edu.rit.entityg;
 import edu.rit.entityg.dataloaders.XMLLoader;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
 import prefuse.visual.VisualItem;
 
 /**
@@ -26,6 +28,15 @@ public class XMLEntityG extends AbstractEntityG {
         throw new UnsupportedOperationException( "Not supported yet." );
     }
 
+    /**
+     * XML files can not be compiled into a snapshot yet.
+     */
+    @Override
+    public void writeSnapshot( File file ) throws IOException {
+        throw new IllegalArgumentException( "Only csv and database data sources can be compiled into a snapshot, not "
+                                            + "xml." );
+    }
+
     public void connectToDataSource() {
         loader = new XMLLoader();
         super.registerLoader( loader );
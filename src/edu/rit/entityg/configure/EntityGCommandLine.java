@@ -107,6 +107,21 @@ public class EntityGCommandLine {
         Option useToolTipOption = new Option( USE_TOOL_TIP,
                                               "Use a Tool Tip to display what each node's data represents." );
 
+        Option cacheSizeOption = OptionBuilder.withArgName( "nodes" ).
+                hasArg().
+                withDescription( "Max number of loaded nodes to keep in memory. Nodes are not cached if this is 0." ).
+                create( CACHE_SIZE );
+
+        Option cacheTtlOption = OptionBuilder.withArgName( "seconds" ).
+                hasArg().
+                withDescription( "Number of seconds loaded nodes are kept in memory, or 0 for no limit." ).
+                create( CACHE_TTL );
+
+        Option prefetchBudgetOption = OptionBuilder.withArgName( "nodes" ).
+                hasArg().
+                withDescription( "Max number of newly displayed nodes to load the children of in the background." ).
+                create( PREFETCH_BUDGET );
+
         Option useConfigFileOption = OptionBuilder.withArgName( "filepath" ).
                 hasArg().
                 withDescription( "The file path to the configuration file. The file should be a .ini file." ).
@@ -114,7 +129,7 @@ public class EntityGCommandLine {
 
         Option dataSourceOption = OptionBuilder.withArgName( "type" ).
                 hasArg().
-                withDescription( "Type of data source to load from. Choose one: [database | xml | csv]" ).
+                withDescription( "Type of data source to load from. Choose one: [database | xml | csv | snapshot]" ).
                 create( DATASOURCE_TYPE );
 
         /**
@@ -168,6 +183,48 @@ public class EntityGCommandLine {
                                  + " of EntityG. Column names should be separated by commas." ).
                 create( CHILDREN_COLUMNS );
 
+        Option poolMinSizeOption = OptionBuilder.withArgName( "size" ).
+                hasArg().
+                withDescription( "Number of database connections that are kept open if <type> = database." ).
+                create( POOL_MIN_SIZE );
+
+        Option poolMaxSizeOption = OptionBuilder.withArgName( "size" ).
+                hasArg().
+                withDescription( "Maximum number of database connections that are open at once if "
+                                 + "<type> = database." ).
+                create( POOL_MAX_SIZE );
+
+        Option poolIdleTimeoutOption = OptionBuilder.withArgName( "seconds" ).
+                hasArg().
+                withDescription( "Seconds after which an idle database connection is closed if <type> = database." ).
+                create( POOL_IDLE_TIMEOUT );
+
+        Option slowQueryThresholdOption = OptionBuilder.withArgName( "milliseconds" ).
+                hasArg().
+                withDescription( "Log queries that take longer than this if <type> = database." ).
+                create( SLOW_QUERY_THRESHOLD );
+
+        Option highWaterMarkColumnOption = OptionBuilder.withArgName( "column" ).
+                hasArg().
+                withDescription( "Refresh a snapshot with the rows past this column's largest value if <type> = "
+                                 + "database." ).
+                create( HIGH_WATER_MARK_COLUMN );
+
+        Option queryTimeoutOption = OptionBuilder.withArgName( "seconds" ).
+                hasArg().
+                withDescription( "Seconds after which a query is cancelled if <type> = database." ).
+                create( QUERY_TIMEOUT );
+
+        Option maxConcurrentQueriesOption = OptionBuilder.withArgName( "integer" ).
+                hasArg().
+                withDescription( "Maximum number of queries that run at once if <type> = database." ).
+                create( MAX_CONCURRENT_QUERIES );
+
+        Option hedgeQueriesOption = OptionBuilder.withArgName( "true/false" ).
+                hasArg().
+                withDescription( "Run slow queries again on another connection if <type> = database." ).
+                create( HEDGE_QUERIES );
+
         /**
          * ----------------------------------------------------------------------------------------------------------
          * CSV options.
@@ -200,9 +257,51 @@ public class EntityGCommandLine {
                                  + "<type> = csv." ).
                 create( INFORMATION_NODE_COLUMN_NUMBERS );
 
+        Option memoryMappedOption = OptionBuilder.withArgName( "true|false" ).
+                hasArg().
+                withDescription( "Memory-map the CSV file and scan it in place instead of streaming it, if "
+                                 + "<type> = csv." ).
+                create( MEMORY_MAPPED );
+
+        Option useIndexOption = OptionBuilder.withArgName( "true|false" ).
+                hasArg().
+                withDescription( "Look up rows through an index file that is stored next to the CSV file, if "
+                                 + "<type> = csv." ).
+                create( USE_INDEX );
+
+        Option useColumnStoreOption = OptionBuilder.withArgName( "true|false" ).
+                hasArg().
+                withDescription( "Load the center and information node columns into memory in the background, if "
+                                 + "<type> = csv." ).
+                create( USE_COLUMN_STORE );
+
+        Option parallelScanOption = OptionBuilder.withArgName( "true|false" ).
+                hasArg().
+                withDescription( "Scan the CSV file on all available cores, if <type> = csv." ).
+                create( PARALLEL_SCAN );
+
+        Option followOption = OptionBuilder.withArgName( "true|false" ).
+                hasArg().
+                withDescription( "Follow the CSV file and add rows that are appended to it, if <type> = csv." ).
+                create( FOLLOW );
+
+        /**
+         * ----------------------------------------------------------------------------------------------------------
+         * Snapshot options.
+         * ----------------------------------------------------------------------------------------------------------
+         */
+        Option snapshotFileOption = OptionBuilder.withArgName( "filepath" ).
+                hasArg().
+                withDescription( "The file path to the snapshot file if <type> = snapshot, or the snapshot file to "
+                                 + "write when converting a database or CSV file into a snapshot." ).
+                create( SNAPSHOT_FILE );
+
         options.addOption( useConfigFileOption );
         options.addOption( maxNodesOption );
         options.addOption( useToolTipOption );
+        options.addOption( cacheSizeOption );
+        options.addOption( cacheTtlOption );
+        options.addOption( prefetchBudgetOption );
         options.addOption( dataSourceOption );
         options.addOption( hostOption );
         options.addOption( portOption );
@@ -213,10 +312,24 @@ public class EntityGCommandLine {
         options.addOption( baseColumnOption );
         options.addOption( firstNodeDataOption );
         options.addOption( childrenOption );
+        options.addOption( poolMinSizeOption );
+        options.addOption( poolMaxSizeOption );
+        options.addOption( poolIdleTimeoutOption );
+        options.addOption( slowQueryThresholdOption );
+        options.addOption( highWaterMarkColumnOption );
+        options.addOption( queryTimeoutOption );
+        options.addOption( maxConcurrentQueriesOption );
+        options.addOption( hedgeQueriesOption );
         options.addOption( fileNameOption );
         options.addOption( centerNodeColumnNumberOption );
         options.addOption( centerNodeColumnNameOption );
         options.addOption( columnToNameMappingOption );
         options.addOption( informationNodeColumnNumbersOption );
+        options.addOption( memoryMappedOption );
+        options.addOption( useIndexOption );
+        options.addOption( useColumnStoreOption );
+        options.addOption( parallelScanOption );
+        options.addOption( followOption );
+        options.addOption( snapshotFileOption );
     }
 }
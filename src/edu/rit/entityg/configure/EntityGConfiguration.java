@@ -3,10 +3,13 @@ package edu.rit.entityg.configure;
 import edu.rit.entityg.AbstractEntityG;
 import edu.rit.entityg.CSVEntityG;
 import edu.rit.entityg.DatabaseEntityG;
+import edu.rit.entityg.SnapshotEntityG;
 import edu.rit.entityg.csv.CSVConnection;
 import edu.rit.entityg.dataloaders.DataSourceType;
 import edu.rit.entityg.exceptions.InvalidIniException;
 import edu.rit.entityg.utils.ExceptionUtils;
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 
 import static edu.rit.entityg.configure.EntityGOptions.*;
@@ -19,17 +22,30 @@ import static edu.rit.entityg.configure.EntityGOptions.*;
  * <br/>The first table lists the default name-value pairs for EntityG.
  * <br/>The second table lists name-value pairs that can be specified for a {@link DataSourceType#DATABASE} source type.
  * <br/>The third table lists name-value pairs that can be specified for a {@link DataSourceType#CSV} source type.
- * <br/>The fourth table lists name-value pairs that can be specified for a {@link DataSourceType#XML} source type.
+ * <br/>The fourth table lists name-value pairs that can be specified for a {@link DataSourceType#SNAPSHOT} source
+ * type.
+ * <br/>The fifth table lists name-value pairs that can be specified for a {@link DataSourceType#XML} source type.
  * <p/>
  * <h4>Defaults</h4>
  * <table border="1"> <tr><th>name</th><th>value type</th><th>required</th><th>default</th><th>description</th></tr>
  * <p/>
  * <tr><td>datasource_type</td><td>String</td><td>yes</td><td><code>none</code></td>
- * <td>The type of datasource we are loading data from. Choose one of the following: [database | csv | xml]</td></tr>
+ * <td>The type of datasource we are loading data from. Choose one of the following: [database | csv | snapshot |
+ * xml]</td></tr>
  * <tr><td>default_max_nodes</td><td>integer greater than 1</td><td>no</td><td>7</td>
  * <td>Integer value to set how many child nodes to display when a user clicks a node.</td></tr>
  * <tr><td>use_tool_tip</td><td><code>true</code> or <code>false</code></td><td>no</td><td>false</td>
  * <td>Flag that specifies if the user wants to see a tool tip when hovering over a node</td></tr>
+ * <tr><td>cache_size</td><td>integer</td><td>no</td><td>0</td>
+ * <td>Max number of loaded nodes to keep in memory, so expanding the same data again does not read the data source
+ * again. The least recently used nodes are dropped first. Loaded nodes are not cached if this is 0.</td></tr>
+ * <tr><td>cache_ttl</td><td>integer</td><td>no</td><td>0</td>
+ * <td>Number of seconds loaded nodes are cached for, or 0 to cache them for as long as there is room for them.</td>
+ * </tr>
+ * <tr><td>prefetch_budget</td><td>integer</td><td>no</td><td>0</td>
+ * <td>Max number of newly displayed nodes whose children are loaded into the node cache in the background, so
+ * clicking on them next does not wait on the data source. Nodes are only loaded when they are clicked if this is 0.
+ * If <code>cache_size</code> is not set, up to 10000 nodes are cached.</td></tr>
  * <tr><td>config_file</td><td>String</td><td>no</td><td><code>entityg.ini</code></td>
  * <td>Path to the configuration (.ini) file.</td></tr>
  * </table>
@@ -46,7 +62,9 @@ import static edu.rit.entityg.configure.EntityGOptions.*;
  * <tr><td>database_name</td><td>String</td><td>yes</td><td><code>none</code></td>
  * <td>Schema name we are connecting to on <code>database</code>.</td></tr>
  * <tr><td>base_query</td><td>String</td><td>yes</td><td><code>none</code></td>
- * <td>Query that will retrieve information from the database to load into EntityG.</td></tr>
+ * <td>Query that will retrieve information from the database to load into EntityG. A query that selects every
+ * column (<code>SELECT * FROM ...</code>) only selects <code>base_column_name</code> and
+ * <code>children_columns</code>.</td></tr>
  * <tr><td>base_column_name</td><td>String</td><td>yes</td><td><code>none</code></td>
  * <td>Name of the column that we want center nodes to consist of.</td></tr>
  * <tr><td>first_node_entry</td><td>String</td><td>yes</td><td><code>none</code></td>
@@ -55,6 +73,32 @@ import static edu.rit.entityg.configure.EntityGOptions.*;
  * <td>All column names of the information that will be returned from <code>base_query</code>. The information nodes
  * will consist of the data of these columns. This option must be specified as a String with each column delimited
  * by a comma (<code>','</code>).</td></tr>
+ * <tr><td>pool_min_size</td><td>integer</td><td>no</td><td>1</td>
+ * <td>Number of connections to the database that are kept open, even when they are idle.</td></tr>
+ * <tr><td>pool_max_size</td><td>integer greater than 0</td><td>no</td><td>8</td>
+ * <td>Maximum number of connections to the database that are open at once. Loads that need a connection while this
+ * many are in use wait for one to be released.</td></tr>
+ * <tr><td>pool_idle_timeout</td><td>integer</td><td>no</td><td>300</td>
+ * <td>Number of seconds after which an idle connection to the database is closed, as long as
+ * <code>pool_min_size</code> connections stay open.</td></tr>
+ * <tr><td>slow_query_threshold</td><td>integer</td><td>no</td><td>0</td>
+ * <td>Number of milliseconds after which a query is logged, with its parameters and the time spent running it,
+ * reading its results and building nodes from them. No queries are logged if this is 0. The latencies of every kind
+ * of query are logged when EntityG exits.</td></tr>
+ * <tr><td>high_water_mark_column</td><td>string</td><td>no</td><td></td>
+ * <td>Name of a column of the base query whose values are unique and strictly increasing with every new row, such as
+ * an auto-increment id (not an insertion time, since rows that commit later with the same time are missed). When the
+ * data source is compiled into a snapshot, the largest value of this column is kept in the snapshot, and compiling it
+ * into the same snapshot again only queries the rows that were added since.</td></tr>
+ * <tr><td>query_timeout</td><td>integer</td><td>no</td><td>30</td>
+ * <td>Number of seconds after which a query is cancelled, and the node that was clicked on is left as it is. Queries
+ * are never cancelled if this is 0.</td></tr>
+ * <tr><td>max_concurrent_queries</td><td>integer</td><td>no</td><td><code>pool_max_size</code></td>
+ * <td>Maximum number of queries that run against the database at once. A query waits for another one to finish for at
+ * most <code>query_timeout</code> seconds.</td></tr>
+ * <tr><td>hedge_queries</td><td>true or false</td><td>no</td><td>false</td>
+ * <td>If true, a query that takes longer than 95% of the queries of its kind usually do is run again on another
+ * connection (if one is free), and whichever comes back first is used, while the other one is cancelled.</td></tr>
  * </table>
  *
  * <p/>
@@ -73,6 +117,35 @@ import static edu.rit.entityg.configure.EntityGOptions.*;
  * <tr><td>information_node_column_numbers</td><td>list of ints</td><td>yes</td><td><code>none</code></td>
  * <td>A list of integers delimited by {@link CSVConnection#DELIM} which represents the column numbers of each column
  * that contains data for information nodes. Also note that column numbers start at one.</td></tr>
+ * <tr><td>memory_mapped</td><td><code>true</code> or <code>false</code></td><td>no</td><td>false</td>
+ * <td>Flag that specifies if the CSV file should be memory-mapped and scanned in place, instead of being re-read
+ * through a stream on every click. Recommended for very large files.</td></tr>
+ * <tr><td>use_index</td><td><code>true</code> or <code>false</code></td><td>no</td><td>false</td>
+ * <td>Flag that specifies if rows should be looked up through an index file (<code>[file_name].idx</code>), instead
+ * of scanning the CSV file. The index is built on the first run, and rebuilt whenever the CSV file changes.</td></tr>
+ * <tr><td>use_column_store</td><td><code>true</code> or <code>false</code></td><td>no</td><td>false</td>
+ * <td>Flag that specifies if the center node and information node columns should be loaded into memory (with each
+ * distinct value stored once) in the background after the first node is displayed. Lookups are answered from memory
+ * once it is loaded.</td></tr>
+ * <tr><td>parallel_scan</td><td><code>true</code> or <code>false</code></td><td>no</td><td>false</td>
+ * <td>Flag that specifies if scans of the CSV file should be split into chunks which are matched on all available
+ * cores. This is only used for lookups that are not answered by <code>use_index</code> or
+ * <code>use_column_store</code>.</td></tr>
+ * <tr><td>follow</td><td><code>true</code> or <code>false</code></td><td>no</td><td>false</td>
+ * <td>Flag that specifies if the CSV file is being appended to, and rows that are appended while EntityG runs should
+ * be read. Appended rows are added to the index and column store, and to the center nodes of information nodes that
+ * were already expanded. A followed file is never memory-mapped.</td></tr>
+ * </table>
+ *
+ * <p/>
+ * <h4>Snapshot source</h4>
+ * <table border="1"> <tr><th>name</th><th>value type</th><th>required</th><th>default</th><th>description</th></tr>
+ * <p/>
+ * <tr><td>snapshot_file</td><td>String</td><td>yes</td><td><code>none</code></td>
+ * <td>Path to the snapshot file. A snapshot is written by {@link edu.rit.entityg.run.SnapshotConverter}, from the
+ * options of a database or CSV source and this option.</td></tr>
+ * <tr><td>first_node_entry</td><td>String</td><td>no</td><td>the center node of the first row</td>
+ * <td>Initial node data we want to display information for.</td></tr>
  * </table>
  * @see EntityGCommandLine
  * @see EntityGIniFile
@@ -143,6 +216,20 @@ public class EntityGConfiguration {
         entityG.start();
     }
 
+    /**
+     * Compiles the configured data source into the snapshot file set with the <code>snapshot_file</code> option,
+     * instead of starting EntityG. The snapshot can then be loaded with a <code>snapshot</code> data source type.
+     * @throws IOException If the data source could not be read, or the snapshot could not be written.
+     * @throws IllegalArgumentException If the data source type can not be compiled into a snapshot.
+     */
+    public void writeSnapshot() throws IOException {
+        String path = getValue( SNAPSHOT_FILE );
+        if( path.isEmpty() ) {
+            throw new IllegalStateException( "The option " + SNAPSHOT_FILE + " must be set to write a snapshot." );
+        }
+        entityG.writeSnapshot( new File( path ) );
+    }
+
     /**
      * Sets up any required configuration objects based on the command-line arguments or a configuration file.
      * @param args The command-line arguments passed into a main method.
@@ -186,6 +273,10 @@ public class EntityGConfiguration {
             entityG = new CSVEntityG();
             runMethodsForDataSource( DataSourceType.CSV, entityG );
             entityG.connectToDataSource();
+        } else if( dst.equalsIgnoreCase( "snapshot" ) ) {
+            entityG = new SnapshotEntityG();
+            runMethodsForDataSource( DataSourceType.SNAPSHOT, entityG );
+            entityG.connectToDataSource();
         } else if( dst.equalsIgnoreCase( "xml" ) ) {
             throw new UnsupportedOperationException( "XML is not implemented yet." );
         } else {
@@ -227,6 +318,36 @@ public class EntityGConfiguration {
             }
         }
 
+        String cacheSizeStr = getValue( CACHE_SIZE );
+        if( cacheSizeStr != null && !cacheSizeStr.isEmpty() ) {
+            try {
+                entityG.set_cache_size( Integer.parseInt( cacheSizeStr ) );
+            } catch( Exception e ) {
+                ExceptionUtils.handleMessage( "The option for " + CACHE_SIZE + " was not an integer value. "
+                                              + "Loaded nodes will not be cached." );
+            }
+        }
+
+        String cacheTtlStr = getValue( CACHE_TTL );
+        if( cacheTtlStr != null && !cacheTtlStr.isEmpty() ) {
+            try {
+                entityG.set_cache_ttl( Integer.parseInt( cacheTtlStr ) );
+            } catch( Exception e ) {
+                ExceptionUtils.handleMessage( "The option for " + CACHE_TTL + " was not an integer value. "
+                                              + "Using the default value." );
+            }
+        }
+
+        String prefetchBudgetStr = getValue( PREFETCH_BUDGET );
+        if( prefetchBudgetStr != null && !prefetchBudgetStr.isEmpty() ) {
+            try {
+                entityG.set_prefetch_budget( Integer.parseInt( prefetchBudgetStr ) );
+            } catch( Exception e ) {
+                ExceptionUtils.handleMessage( "The option for " + PREFETCH_BUDGET + " was not an integer value. "
+                                              + "Nodes will not be prefetched." );
+            }
+        }
+
         /**
          * We need to determine USE_TOOL_TIP's option separately because the command line only requires that the flag
          * is set, while the .ini file only requires that the option is set to "true".
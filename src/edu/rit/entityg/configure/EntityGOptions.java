@@ -2,6 +2,7 @@ package edu.rit.entityg.configure;
 
 import edu.rit.entityg.CSVEntityG;
 import edu.rit.entityg.DatabaseEntityG;
+import edu.rit.entityg.SnapshotEntityG;
 import edu.rit.entityg.dataloaders.DataSourceType;
 
 /**
@@ -25,6 +26,14 @@ public class EntityGOptions {
     public static final String BASE_COLUMN_NAME = "base_column_name";
     public static final String FIRST_NODE_ENTRY = "first_node_entry";
     public static final String CHILDREN_COLUMNS = "children_columns";
+    public static final String POOL_MIN_SIZE = "pool_min_size";
+    public static final String POOL_MAX_SIZE = "pool_max_size";
+    public static final String POOL_IDLE_TIMEOUT = "pool_idle_timeout";
+    public static final String SLOW_QUERY_THRESHOLD = "slow_query_threshold";
+    public static final String HIGH_WATER_MARK_COLUMN = "high_water_mark_column";
+    public static final String QUERY_TIMEOUT = "query_timeout";
+    public static final String MAX_CONCURRENT_QUERIES = "max_concurrent_queries";
+    public static final String HEDGE_QUERIES = "hedge_queries";
     /**
      * ----------------------------------------------------------------------------------------------------------
      * CSV configuration static labels.
@@ -35,6 +44,17 @@ public class EntityGOptions {
     public static final String CENTER_NODE_COLUMN_NUMBER = "center_node_column_number";
     public static final String COLUMN_TO_NAME_MAPPING = "column_to_name_mapping";
     public static final String INFORMATION_NODE_COLUMN_NUMBERS = "information_node_column_numbers";
+    public static final String MEMORY_MAPPED = "memory_mapped";
+    public static final String USE_INDEX = "use_index";
+    public static final String USE_COLUMN_STORE = "use_column_store";
+    public static final String PARALLEL_SCAN = "parallel_scan";
+    public static final String FOLLOW = "follow";
+    /**
+     * ----------------------------------------------------------------------------------------------------------
+     * Snapshot configuration static labels.
+     * ----------------------------------------------------------------------------------------------------------
+     */
+    public static final String SNAPSHOT_FILE = "snapshot_file";
     /**
      * ----------------------------------------------------------------------------------------------------------
      * EntityG general configuration labels.
@@ -42,6 +62,9 @@ public class EntityGOptions {
      */
     public static final String DEFAULT_MAX_NODES = "default_max_nodes";
     public static final String USE_TOOL_TIP = "use_tool_tip";
+    public static final String CACHE_SIZE = "cache_size";
+    public static final String CACHE_TTL = "cache_ttl";
+    public static final String PREFETCH_BUDGET = "prefetch_budget";
     public static final String DATASOURCE_TYPE = "datasource_type";
     public static final String CONFIG_FILE = "config_file";
 
@@ -62,6 +85,8 @@ public class EntityGOptions {
                                                          + "type currently." );
             case CSV:
                 return getCSVOptions();
+            case SNAPSHOT:
+                return getSnapshotOptions();
             default:
                 throw new IllegalArgumentException( dst.name() + " is not a valid data source type." );
         }
@@ -81,7 +106,15 @@ public class EntityGOptions {
                     BASE_QUERY,
                     BASE_COLUMN_NAME,
                     FIRST_NODE_ENTRY,
-                    CHILDREN_COLUMNS
+                    CHILDREN_COLUMNS,
+                    POOL_MIN_SIZE,
+                    POOL_MAX_SIZE,
+                    POOL_IDLE_TIMEOUT,
+                    SLOW_QUERY_THRESHOLD,
+                    HIGH_WATER_MARK_COLUMN,
+                    QUERY_TIMEOUT,
+                    MAX_CONCURRENT_QUERIES,
+                    HEDGE_QUERIES
                 };
     }
 
@@ -95,7 +128,23 @@ public class EntityGOptions {
                     CENTER_NODE_COLUMN_NUMBER,
                     CENTER_NODE_COLUMN_NAME,
                     COLUMN_TO_NAME_MAPPING,
-                    INFORMATION_NODE_COLUMN_NUMBERS
+                    INFORMATION_NODE_COLUMN_NUMBERS,
+                    MEMORY_MAPPED,
+                    USE_INDEX,
+                    USE_COLUMN_STORE,
+                    PARALLEL_SCAN,
+                    FOLLOW
+                };
+    }
+
+    /**
+     * Returns an array of options that can be used in {@link SnapshotEntityG}.
+     * @return Array of options that can be set for a snapshot.
+     */
+    private static String[] getSnapshotOptions() {
+        return new String[]{
+                    SNAPSHOT_FILE,
+                    FIRST_NODE_ENTRY
                 };
     }
 }
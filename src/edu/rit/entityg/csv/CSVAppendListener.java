@@ -0,0 +1,24 @@
+package edu.rit.entityg.csv;
+
+/**
+ * Listens for rows that are appended to a CSV file which a {@link CSVConnection} follows. Listeners are called on the
+ * thread that follows the file, not on the thread that created the connection.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public interface CSVAppendListener {
+
+    /**
+     * Called for every row that was appended to the file, in file order.
+     * @param offset The byte offset of the start of the row.
+     * @param row A view of the row, which is only valid until this method returns.
+     */
+    public void rowAppended( long offset, TableRow row );
+
+    /**
+     * Called after {@link CSVAppendListener#rowAppended(long, edu.rit.entityg.csv.TableRow)} was called for every row
+     * of an append.
+     * @param end The byte offset right after the last row that was appended.
+     */
+    public void appendFinished( long end );
+}
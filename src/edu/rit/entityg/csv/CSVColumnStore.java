@@ -0,0 +1,428 @@
+package edu.rit.entityg.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * An in-memory, dictionary-encoded copy of some of the columns of a CSV file. Every stored column keeps each distinct
+ * value once, in a per-column dictionary, and stores each row as a code into that dictionary. For every code, the rows
+ * which contain it are also kept (grouped by code), so finding the rows that contain a value is a single hash lookup.
+ * <p/>Once the store is built, the codes and the grouped rows are bit-packed: a code takes as many bits as the number
+ * of distinct values of its column needs, and a row number as many bits as the number of rows needs. A column with a
+ * handful of distinct values costs a few bits per row for its codes, instead of an <code>int</code>. The grouped rows
+ * are an inverted index, which always has one entry per row that has a value, whatever the column's cardinality, so a
+ * column costs about <code>log2(distinct values) + log2(rows)</code> bits per row, plus one String per distinct value,
+ * instead of a String per row and column.
+ * <p/>Rows that are appended to a followed file after the store was built are added with
+ * {@link CSVColumnStore#add(long, edu.rit.entityg.csv.TableRow)}. Their row numbers are kept in a small list per value
+ * next to the grouped rows, so adding a row does not regroup the rows that were already stored. A store may be read
+ * and added to by different threads.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CSVColumnStore {
+
+    /**
+     * The code of a row which does not have a value for a column.
+     */
+    private static final int MISSING = -1;
+    private static final int[] NO_ROWS = new int[0];
+    /**
+     * A mapping of a (zero-based) column number to its data.
+     */
+    private final HashMap<Integer, Column> columns;
+    /**
+     * The stored columns, and their column numbers, in the same order.
+     */
+    private final Column[] ordered;
+    private final int[] numbers;
+    private int rowCount;
+    /**
+     * The byte offset of each row in the file, so rows can be matched with the results of a scan or an index.
+     */
+    private long[] rowOffsets;
+    /**
+     * The byte offset right after the last row that was read when the store was built.
+     */
+    private long end;
+
+    private CSVColumnStore( int[] columnNumbers ) {
+        this.columns = new HashMap<Integer, Column>();
+        for( int column : columnNumbers ) {
+            columns.put( column, new Column() );
+        }
+        this.ordered = columns.values().toArray( new Column[columns.size()] );
+        this.numbers = new int[ordered.length];
+        int n = 0;
+        for( Integer column : columns.keySet() ) {
+            numbers[n++] = column;
+        }
+        this.rowOffsets = new long[1024];
+    }
+
+    /**
+     * Reads every row of <code>conn</code>'s file once, and stores <code>columnNumbers</code>. This uses its own
+     * {@link CSVLineScanner}, so it does not disturb <code>conn</code>'s reader and can run on another thread.
+     * @param conn The connection to the CSV file.
+     * @param columnNumbers The (zero-based) column numbers that should be stored.
+     * @return The column store.
+     */
+    public static CSVColumnStore build( CSVConnection conn, int[] columnNumbers ) throws IOException {
+        CSVColumnStore store = new CSVColumnStore( columnNumbers );
+        CSVLineScanner scanner = conn.newScanner();
+        CSVTokenizer tokenizer = new CSVTokenizer();
+        try {
+            while( scanner.nextRecord( tokenizer ) ) {
+                int fieldCount = tokenizer.getFieldCount();
+                for( int i = 0; i < store.ordered.length; i++ ) {
+                    int number = store.numbers[i];
+                    store.ordered[i].add( store.rowCount, number < fieldCount ? tokenizer.getString( number ) : null );
+                }
+                store.addOffset( scanner.lineOffset() );
+            }
+            store.end = scanner.position();
+        } finally {
+            scanner.close();
+        }
+        for( Column column : store.ordered ) {
+            column.finish( store.rowCount );
+        }
+        return store;
+    }
+
+    /**
+     * Adds the rows of <code>conn</code>'s file that were appended after this store was built, up to
+     * {@link CSVConnection#getEnd()}. This should be called once, before the store is used, so no appended row is
+     * missed between building the store and adding rows to it as they are appended.
+     * @param conn The connection to the CSV file.
+     */
+    public synchronized void update( CSVConnection conn ) throws IOException {
+        CSVLineScanner scanner = conn.newScanner();
+        CSVTokenizer tokenizer = new CSVTokenizer();
+        CSVRecord record = new CSVRecord( tokenizer, conn.getSchema() );
+        try {
+            scanner.seek( end, conn.getEnd() );
+            while( scanner.nextRecord( tokenizer ) ) {
+                add( scanner.lineOffset(), record );
+            }
+        } finally {
+            scanner.close();
+        }
+    }
+
+    /**
+     * Adds a row that was appended to the file. Rows that are already stored are ignored, so a row may be added more
+     * than once.
+     * @param offset The byte offset of the start of the row, which must be after every row that is already stored.
+     * @param row The row.
+     */
+    public synchronized void add( long offset, TableRow row ) {
+        if( rowCount > 0 && offset <= rowOffsets[rowCount - 1] ) {
+            return;
+        }
+        int fieldCount = row.getColumnCount();
+        for( int i = 0; i < ordered.length; i++ ) {
+            ordered[i].append( rowCount, numbers[i] < fieldCount ? row.getColumn( numbers[i] ) : null );
+        }
+        addOffset( offset );
+    }
+
+    private void addOffset( long offset ) {
+        if( rowCount == rowOffsets.length ) {
+            long[] larger = new long[rowOffsets.length * 2];
+            System.arraycopy( rowOffsets, 0, larger, 0, rowCount );
+            rowOffsets = larger;
+        }
+        rowOffsets[rowCount++] = offset;
+    }
+
+    /**
+     * Returns true if <code>column</code> is stored.
+     */
+    public boolean covers( int column ) {
+        return columns.containsKey( column );
+    }
+
+    /**
+     * Returns the number of rows that were read.
+     */
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Finds the rows which contain <code>value</code> in <code>column</code>.
+     * @param column A (zero-based) column number which is stored.
+     * @param value The value to look for.
+     * @return The numbers of the matching rows, in file order, or an empty array if there are none.
+     */
+    public int[] rowsWith( int column, String value ) {
+        return rowsWith( column, value, -1, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Finds at most <code>limit</code> rows which contain <code>value</code> in <code>column</code> and start after
+     * the byte offset <code>after</code>. The first such row is found with a binary search, since the rows of each
+     * value are in file order.
+     * @param column A (zero-based) column number which is stored.
+     * @param value The value to look for.
+     * @param after Only rows which start after this byte offset are returned.
+     * @param limit The maximum number of rows to return.
+     * @return The numbers of the matching rows, in file order, or an empty array if there are none.
+     */
+    public synchronized int[] rowsWith( int column, String value, long after, int limit ) {
+        Column c = columns.get( column );
+        Integer code = (c == null) ? null : c.dictionary.get( value );
+        if( code == null ) {
+            return NO_ROWS;
+        }
+        //The rows that were grouped when the store was built, followed by the rows that were appended after that.
+        int groupFrom = 0;
+        int groupTo = 0;
+        if( code < c.groupStart.length - 1 ) {
+            groupFrom = firstAfter( c.rowsByCode, c.groupStart[code], c.groupStart[code + 1], after );
+            groupTo = c.groupStart[code + 1];
+        }
+        Rows appended = c.appended.get( code );
+        int appendedFrom = 0;
+        int appendedTo = 0;
+        if( appended != null ) {
+            appendedFrom = firstAfter( appended.rows, 0, appended.size, after );
+            appendedTo = appended.size;
+        }
+        int fromGroup = Math.min( limit, groupTo - groupFrom );
+        int fromAppended = Math.min( limit - fromGroup, appendedTo - appendedFrom );
+        int[] rows = new int[fromGroup + fromAppended];
+        for( int i = 0; i < fromGroup; i++ ) {
+            rows[i] = c.rowsByCode.get( groupFrom + i );
+        }
+        if( fromAppended > 0 ) {
+            System.arraycopy( appended.rows, appendedFrom, rows, fromGroup, fromAppended );
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the index of the first row number in <code>rows[from]</code> to <code>rows[to - 1]</code> that starts
+     * after the byte offset <code>after</code>, or <code>to</code> if there is none.
+     */
+    private int firstAfter( int[] rows, int from, int to, long after ) {
+        int low = from;
+        int high = to;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if( rowOffsets[rows[middle]] <= after ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first row number in <code>rows.get( from )</code> to <code>rows.get( to - 1 )</code>
+     * that starts after the byte offset <code>after</code>, or <code>to</code> if there is none.
+     */
+    private int firstAfter( PackedInts rows, int from, int to, long after ) {
+        int low = from;
+        int high = to;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if( rowOffsets[rows.get( middle )] <= after ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the byte offset that row number <code>row</code> starts at.
+     */
+    public synchronized long getRowOffset( int row ) {
+        return rowOffsets[row];
+    }
+
+    /**
+     * Returns the value of <code>column</code> in row number <code>row</code>.
+     * @param column A (zero-based) column number which is stored.
+     * @param row A row number returned by {@link CSVColumnStore#rowsWith(int, java.lang.String)}.
+     * @return The value, or null if the row did not have a value for <code>column</code>.
+     */
+    public synchronized String getValue( int column, int row ) {
+        Column c = columns.get( column );
+        int code = c.getCode( row );
+        return (code == MISSING) ? null : c.values.get( code );
+    }
+
+    /**
+     * The data of a single column.
+     */
+    private static class Column {
+
+        /**
+         * A mapping of each distinct value to its code.
+         */
+        private final HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+        /**
+         * Each distinct value, indexed by its code.
+         */
+        private final ArrayList<String> values = new ArrayList<String>();
+        /**
+         * The code of each row while the store is built, and after that of each row that was appended, starting with
+         * row number <code>packedCount</code>.
+         */
+        private int[] codes = new int[1024];
+        /**
+         * The code plus one (so {@link CSVColumnStore#MISSING} is 0) of each of the first <code>packedCount</code>
+         * rows, which were read when the store was built.
+         */
+        private PackedInts packedCodes;
+        private int packedCount;
+        /**
+         * Row numbers grouped by code. The rows of code <code>c</code> are in
+         * <code>rowsByCode.get( groupStart[c] )</code> to <code>rowsByCode.get( groupStart[c + 1] - 1 )</code>.
+         */
+        private PackedInts rowsByCode;
+        private int[] groupStart;
+        /**
+         * The rows of each code that were appended after the rows were grouped.
+         */
+        private final HashMap<Integer, Rows> appended = new HashMap<Integer, Rows>();
+
+        private void add( int row, String value ) {
+            int index = row - packedCount;
+            if( index == codes.length ) {
+                int[] larger = new int[Math.max( 16, codes.length * 2 )];
+                System.arraycopy( codes, 0, larger, 0, index );
+                codes = larger;
+            }
+            if( value == null ) {
+                codes[index] = MISSING;
+                return;
+            }
+            Integer code = dictionary.get( value );
+            if( code == null ) {
+                code = values.size();
+                dictionary.put( value, code );
+                values.add( value );
+            }
+            codes[index] = code;
+        }
+
+        /**
+         * Adds a row after the rows were grouped.
+         */
+        private void append( int row, String value ) {
+            add( row, value );
+            int code = codes[row - packedCount];
+            if( code != MISSING ) {
+                Rows rows = appended.get( code );
+                if( rows == null ) {
+                    rows = new Rows();
+                    appended.put( code, rows );
+                }
+                rows.add( row );
+            }
+        }
+
+        private int getCode( int row ) {
+            return (row < packedCount) ? packedCodes.get( row ) - 1 : codes[row - packedCount];
+        }
+
+        /**
+         * Packs the codes of the first <code>rowCount</code> rows and groups the row numbers by code (a counting sort,
+         * so each group stays in file order). The unpacked codes are dropped.
+         */
+        private void finish( int rowCount ) {
+            groupStart = new int[values.size() + 1];
+            packedCodes = new PackedInts( rowCount, PackedInts.bitsFor( values.size() ) );
+            for( int row = 0; row < rowCount; row++ ) {
+                packedCodes.set( row, codes[row] + 1 );
+                if( codes[row] != MISSING ) {
+                    groupStart[codes[row] + 1]++;
+                }
+            }
+            for( int i = 1; i < groupStart.length; i++ ) {
+                groupStart[i] += groupStart[i - 1];
+            }
+            rowsByCode = new PackedInts( groupStart[groupStart.length - 1], PackedInts.bitsFor( rowCount ) );
+            int[] next = new int[values.size()];
+            System.arraycopy( groupStart, 0, next, 0, next.length );
+            for( int row = 0; row < rowCount; row++ ) {
+                if( codes[row] != MISSING ) {
+                    rowsByCode.set( next[codes[row]]++, row );
+                }
+            }
+            packedCount = rowCount;
+            codes = new int[16];
+        }
+    }
+
+    /**
+     * A fixed-size array of non-negative <code>int</code>s which are stored with the same number of bits each, packed
+     * into <code>long</code>s.
+     */
+    private static class PackedInts {
+
+        private final int bits;
+        private final long mask;
+        private final long[] words;
+
+        private PackedInts( int size, int bits ) {
+            this.bits = bits;
+            this.mask = (1L << bits) - 1;
+            this.words = new long[(int) (((long) size * bits + 63) >>> 6)];
+        }
+
+        /**
+         * Returns the number of bits that values from 0 to <code>max</code> need.
+         */
+        private static int bitsFor( int max ) {
+            return Math.max( 1, 32 - Integer.numberOfLeadingZeros( max ) );
+        }
+
+        private int get( int index ) {
+            long bit = (long) index * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long value = words[word] >>> shift;
+            if( shift + bits > 64 ) {
+                value |= words[word + 1] << (64 - shift);
+            }
+            return (int) (value & mask);
+        }
+
+        private void set( int index, int value ) {
+            long bit = (long) index * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] = (words[word] & ~(mask << shift)) | ((value & mask) << shift);
+            if( shift + bits > 64 ) {
+                int high = 64 - shift;
+                words[word + 1] = (words[word + 1] & ~(mask >>> high)) | ((value & mask) >>> high);
+            }
+        }
+    }
+
+    /**
+     * A growable list of row numbers.
+     */
+    private static class Rows {
+
+        private int[] rows = new int[4];
+        private int size;
+
+        private void add( int row ) {
+            if( size == rows.length ) {
+                int[] larger = new int[size * 2];
+                System.arraycopy( rows, 0, larger, 0, size );
+                rows = larger;
+            }
+            rows[size++] = row;
+        }
+    }
+}
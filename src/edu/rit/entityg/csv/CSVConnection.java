@@ -1,16 +1,23 @@
 package edu.rit.entityg.csv;
 
 import edu.rit.entityg.utils.ExceptionUtils;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
 /**
  * CSV connection. This class provides methods to read data from a CSV file.
+ * <p/>Rows are read with a {@link CSVLineScanner}, either through a buffered file channel or directly out of a
+ * memory-mapped file, and split into columns by a {@link CSVTokenizer}. The {@link TableRow}s this class returns are
+ * views that are reused for the next row; see {@link CSVRecord}.
+ * <p/>In follow mode, the file is expected to be appended to while EntityG runs. Rows are only read up to the end of
+ * the last complete row that has been seen (see {@link CSVConnection#getEnd()}), and once a
+ * {@link CSVAppendListener} is added, the file is followed by a {@link CSVTailer} which hands every appended row to
+ * the listeners. A file that is followed is never memory-mapped, since a mapping can't grow with the file.
+ * <p/>A gzip-compressed file (<code>[file].csv.gz</code>) is read through a {@link GzipCSVFile}, so it is never
+ * decompressed to disk, and reading a row at an offset only decompresses from the closest restart point before it.
  * @date Jun 4, 2011
  * @author Eric Kisner
  */
@@ -25,32 +32,81 @@ public class CSVConnection {
      * The {@link CSVConnection} instance object for our Singleton design pattern.
      */
     private static CSVConnection instance;
-    /**
-     * The {@link BufferedReader} object we are using to read lines from <code>file</code>.
-     */
-    private BufferedReader reader;
     /**
      * The actual CSV file.
      */
     private File file;
     /**
-     * The current line that <code>reader</code> is on.
+     * The column names that are contained in <code>file</code>, shared by every row this connection reads.
+     */
+    private CSVSchema schema;
+    /**
+     * The memory-mapped view of <code>file</code>, or null if this connection reads through a file channel.
+     */
+    private MappedCSVFile mapped;
+    /**
+     * The gzip-compressed <code>file</code>, or null if the file is not compressed.
+     */
+    private GzipCSVFile gzip;
+    /**
+     * The scanner we are using to read rows from <code>file</code>, and the tokenizer and row view it reads into.
      */
-    private String line;
+    private CSVLineScanner scanner;
+    private CSVTokenizer tokenizer;
+    private CSVRecord record;
     /**
-     * The list of column names that are contained in <code>file</code>.
+     * The scanner used by {@link CSVConnection#getLineAt(long)}, and the tokenizer and row view it reads into. These
+     * are separate from the sequential reader, so positional reads do not disturb a scan that is in progress.
      */
-    private List<String> columnNames;
+    private CSVLineScanner positionalScanner;
+    private CSVTokenizer positionalTokenizer;
+    private CSVRecord positionalRecord;
+    /**
+     * The byte offset of the first line after the column names.
+     */
+    private long dataStart;
+    /**
+     * Rows which start at or after this byte offset are not read. In follow mode, this is the end of the last
+     * complete row that has been seen; otherwise, the whole file is read.
+     */
+    private volatile long end = Long.MAX_VALUE;
+    /**
+     * Follows the file in follow mode, or null if the file is not followed.
+     */
+    private CSVTailer tailer;
 
     /**
      * Set the properties used to connect to a CSV file.
      * @param filePath The path to the CSV file.
      */
     public static void setProperties( String filePath ) {
-        if( filePath.isEmpty() || filePath == null || filePath.equalsIgnoreCase( "null" ) ) {
+        setProperties( filePath, false );
+    }
+
+    /**
+     * Set the properties used to connect to a CSV file.
+     * @param filePath The path to the CSV file.
+     * @param memoryMapped True if the file should be memory-mapped and scanned in place, instead of being streamed
+     *                     through a buffered file channel.
+     */
+    public static void setProperties( String filePath, boolean memoryMapped ) {
+        setProperties( filePath, memoryMapped, false );
+    }
+
+    /**
+     * Set the properties used to connect to a CSV file.
+     * @param filePath The path to the CSV file.
+     * @param memoryMapped True if the file should be memory-mapped and scanned in place, instead of being streamed
+     *                     through a buffered file channel.
+     * @param follow True if the file is being appended to, and the rows appended to it should be read as well.
+     */
+    public static void setProperties( String filePath, boolean memoryMapped, boolean follow ) {
+        if( filePath == null || filePath.isEmpty() || filePath.equalsIgnoreCase( "null" ) ) {
             throw new IllegalArgumentException( "The file path to set up a CSV connection is invalid." );
         } else {
             setup.setProperty( "filePath", filePath );
+            setup.setProperty( "memoryMapped", String.valueOf( memoryMapped ) );
+            setup.setProperty( "follow", String.valueOf( follow ) );
         }
     }
 
@@ -69,6 +125,8 @@ public class CSVConnection {
      * Private constructor. Use {@link CSVConnection#instance()} instead.
      * @param props The {@link Properties} that will set up the CSV connection. In this case, <code>props</code> only
      *              need contain a key <code>filePath</code>, which tells {@link CSVConnection} where the CSV file is.
+     *              If <code>props</code> contains <code>memoryMapped=true</code>, the file will be memory-mapped, and
+     *              if it contains <code>follow=true</code>, the connection will be in follow mode.
      */
     private CSVConnection( Properties props ) {
         if( props.containsKey( "filePath" ) ) {
@@ -78,17 +136,41 @@ public class CSVConnection {
         }
 
         validateFile( file );
-        connect( file );
+        boolean memoryMapped = Boolean.parseBoolean( props.getProperty( "memoryMapped" ) );
+        boolean follow = Boolean.parseBoolean( props.getProperty( "follow" ) );
+        if( GzipCSVFile.isGzip( file ) && (follow || memoryMapped) ) {
+            ExceptionUtils.handleMessage( file + " is compressed, so it can't be memory-mapped or followed. It will be "
+                                          + "streamed instead." );
+            memoryMapped = false;
+            follow = false;
+        }
+        if( follow && memoryMapped ) {
+            ExceptionUtils.handleMessage( file + " can't be memory-mapped while it is followed. It will be streamed "
+                                          + "instead." );
+            memoryMapped = false;
+        }
+        connect( file, memoryMapped );
+        if( follow ) {
+            try {
+                end = findLastRowEnd();
+            } catch( IOException ioe ) {
+                throw new RuntimeException( ioe );
+            }
+            scanner.seek( dataStart, end );
+            tailer = new CSVTailer( this, end );
+        }
     }
 
     /**
-     * Validates that <code>file</code> is: 1) a file that exists; 2) a CSV file; and 3) can be read.
+     * Validates that <code>file</code> is: 1) a file that exists; 2) a CSV file, or a gzip-compressed CSV file; and
+     * 3) can be read.
      * @param file The {@link File} object that was created from a file path.
      */
     private void validateFile( File file ) {
         try {
             file.canRead();
-            if( !file.exists() || !file.isFile() || !file.getCanonicalPath().endsWith( ".csv" ) ) {
+            String path = file.getCanonicalPath();
+            if( !file.exists() || !file.isFile() || !(path.endsWith( ".csv" ) || path.endsWith( ".csv.gz" )) ) {
                 throw new RuntimeException( file + " is not a valid file." );
             }
         } catch( SecurityException se ) {
@@ -99,54 +181,244 @@ public class CSVConnection {
     }
 
     /**
-     * Instantiates a {@link BufferedReader} object for <code>file</code>. Also reads the first line of the CSV file,
-     * in order to retrieve the column names.
+     * Opens a {@link CSVLineScanner} for <code>file</code>. Also reads the first line of the CSV file, in order to
+     * retrieve the column names.
      * <p/><b>Note:</b> it is assumed that the first line IS column names. In the future, we may want to allow a user
      * to specify an option for a file that does not have its first line as column names.
      * @param file The {@link File} object that we are "connecting" to.
+     * @param memoryMapped True if <code>file</code> should be memory-mapped and scanned in place.
      */
-    private void connect( File file ) {
+    private void connect( File file, boolean memoryMapped ) {
         try {
-            reader = new BufferedReader( new FileReader( file ) );
-            columnNames = Arrays.asList( reader.readLine().split( DELIM ) );
+            if( GzipCSVFile.isGzip( file ) ) {
+                gzip = GzipCSVFile.open( file );
+            } else if( memoryMapped ) {
+                mapped = new MappedCSVFile( file );
+            }
+            scanner = openScanner( CSVLineScanner.DEFAULT_BUFFER_SIZE );
+            tokenizer = new CSVTokenizer();
+            if( !scanner.nextRecord( tokenizer ) ) {
+                throw new IOException( file + " does not contain a header row." );
+            }
+            List<String> names = new ArrayList<String>( tokenizer.getFieldCount() );
+            for( int i = 0; i < tokenizer.getFieldCount(); i++ ) {
+                names.add( tokenizer.getString( i ) );
+            }
+            schema = new CSVSchema( names );
+            dataStart = scanner.position();
+            record = new CSVRecord( tokenizer, schema );
         } catch( IOException ioe ) {
             ExceptionUtils.handleException( ioe );
         }
     }
 
     /**
-     * Tries to read the next line in the file.
-     * @return True if there is a line, else false.
+     * Finds the end of the last complete row of the file: the last line break which is outside of a quoted field. A row
+     * which is still being written has not been given its line break yet. Whether a line break is inside a quoted
+     * field depends on everything before it, so the file is read forward from the first row of data.
+     */
+    private long findLastRowEnd() throws IOException {
+        CSVLineScanner reader = openScanner( CSVLineScanner.DEFAULT_BUFFER_SIZE );
+        try {
+            return CSVRecordFinder.findLastRecordEnd( reader, dataStart, file.length() );
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Opens a new scanner over <code>file</code>, or over <code>mapped</code> if this connection is memory-mapped.
+     * @param bufferSize The number of bytes a scanner that reads through a file channel reads at a time.
+     */
+    private CSVLineScanner openScanner( int bufferSize ) throws IOException {
+        if( gzip != null ) {
+            return new CSVLineScanner( gzip, bufferSize );
+        }
+        return (mapped != null) ? new CSVLineScanner( mapped ) : new CSVLineScanner( file, bufferSize );
+    }
+
+    /**
+     * Returns true if this connection scans a memory-mapped file instead of streaming it.
+     */
+    public boolean isMemoryMapped() {
+        return mapped != null;
+    }
+
+    /**
+     * Returns true if this connection reads a gzip-compressed file.
+     */
+    public boolean isCompressed() {
+        return gzip != null;
+    }
+
+    /**
+     * Returns false if reading at an offset means reading the file from its start, which is the case for a gzip file
+     * that is a single member.
+     */
+    public boolean isRandomAccess() {
+        return gzip == null || gzip.getRestartPointCount() > 1;
+    }
+
+    /**
+     * Returns the CSV file of this connection.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size of the (uncompressed) contents of the file. All byte offsets are offsets into the uncompressed
+     * contents.
+     */
+    public long getLength() {
+        return (gzip != null) ? gzip.length() : file.length();
+    }
+
+    /**
+     * Returns the schema that was read from the first line of the file.
+     */
+    public CSVSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the column names that were read from the first line of the file.
+     */
+    public List<String> getColumnNames() {
+        return schema.getColumnNames();
+    }
+
+    /**
+     * Returns the byte offset of the first line after the column names.
+     */
+    public long getDataStart() {
+        return dataStart;
+    }
+
+    /**
+     * Returns the byte offset where the rows this connection reads end. In follow mode, this moves forward as rows are
+     * appended to the file.
+     */
+    public long getEnd() {
+        return Math.min( end, getLength() );
+    }
+
+    /**
+     * Moves the end of the rows this connection reads forward, once <code>tailer</code> has seen new complete rows.
+     */
+    void setEnd( long end ) {
+        this.end = end;
+    }
+
+    /**
+     * Returns true if this connection is in follow mode.
+     */
+    public boolean isFollowMode() {
+        return tailer != null;
+    }
+
+    /**
+     * Adds a listener for rows that are appended to the file, and starts following the file if it is not followed
+     * yet. This does nothing if this connection is not in follow mode.
+     * @param listener The listener, which is called on the thread that follows the file.
+     */
+    public void addAppendListener( CSVAppendListener listener ) {
+        if( tailer != null ) {
+            tailer.addListener( listener );
+            tailer.start();
+        }
+    }
+
+    /**
+     * Removes a listener that was added with {@link CSVConnection#addAppendListener(CSVAppendListener)}.
      */
-    private boolean hasNext() throws IOException {
-        line = reader.readLine();
-        return !(line == null);
+    public void removeAppendListener( CSVAppendListener listener ) {
+        if( tailer != null ) {
+            tailer.removeListener( listener );
+        }
     }
 
     /**
-     * Resets our connection to the CSV file by resetting the {@link BufferedReader}, and re-reading the first line.
+     * Creates a new {@link CSVLineScanner} over this connection's file, positioned at the first line after the column
+     * names. The scanner reads the rows up to {@link CSVConnection#getEnd()} as it is when the scanner is created. The
+     * scanner is independent of this connection's own reader, and should be closed by the caller.
+     */
+    public CSVLineScanner newScanner() throws IOException {
+        CSVLineScanner newScanner = openScanner( CSVLineScanner.DEFAULT_BUFFER_SIZE );
+        newScanner.seek( dataStart, end );
+        return newScanner;
+    }
+
+    /**
+     * Resets our connection to the CSV file by moving back to the first line after the column names. The file is not
+     * reopened.
      */
     public void reset() throws IOException {
-        reader = new BufferedReader( new FileReader( file ) );
-        columnNames = Arrays.asList( reader.readLine().split( DELIM ) );
+        scanner.seek( dataStart, end );
+    }
+
+    /**
+     * Moves our connection to the row that starts at the byte offset <code>offset</code>, so the next call to
+     * {@link CSVConnection#getLine()} returns that row.
+     * @param offset The byte offset of the start of a row, for example one returned by
+     *               {@link CSVConnection#getLineOffset()}.
+     */
+    public void seek( long offset ) {
+        scanner.seek( offset, end );
     }
 
     /**
-     * Closes the {@link BufferedReader} of this connection.
+     * Returns the byte offset of the row that was last returned by {@link CSVConnection#getLine()}.
+     */
+    public long getLineOffset() {
+        return scanner.lineOffset();
+    }
+
+    /**
+     * Closes the file (or the memory-mapped file) of this connection.
      */
     public void close() throws IOException {
-        reader.close();
+        if( tailer != null ) {
+            tailer.stop();
+        }
+        scanner.close();
+        if( positionalScanner != null ) {
+            positionalScanner.close();
+        }
+        if( mapped != null ) {
+            mapped.close();
+        }
     }
 
     /**
-     * Get the line that the {@link BufferedReader} is currently on as an implementation of {@link TableRow}.
-     * @return A {@link TableRow} object after splitting the current line in the file, else null if there were no lines
-     *         left in the file to retrieve.
+     * Get the next row in the file as an implementation of {@link TableRow}.
+     * @return A {@link TableRow} view of the next row in the file, else null if there were no rows left in the file to
+     *         retrieve. The view is reused for the next row.
      */
     public TableRow getLine() throws IOException {
-        if( hasNext() ) {
-            //Replace all quotes before using the line.
-            return new ATableRow( line.replaceAll( "\"", "" ).split( DELIM ), columnNames );
+        if( scanner.nextRecord( tokenizer ) ) {
+            return record;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the row that starts at the byte offset <code>offset</code>, without moving the reader used by
+     * {@link CSVConnection#getLine()}.
+     * @param offset The byte offset of the start of a row, for example one recorded by a {@link CSVLineScanner}.
+     * @return A {@link TableRow} view of the row, else null if <code>offset</code> is past the end of the file. The
+     *         view is reused for the next positional read.
+     */
+    public TableRow getLineAt( long offset ) throws IOException {
+        if( positionalScanner == null ) {
+            //Positional reads only need a single row, so don't read more of the file than that at a time.
+            positionalScanner = openScanner( 1024 );
+            positionalTokenizer = new CSVTokenizer();
+            positionalRecord = new CSVRecord( positionalTokenizer, schema );
+        }
+        positionalScanner.seek( offset );
+        if( positionalScanner.nextRecord( positionalTokenizer ) ) {
+            return positionalRecord;
         }
         return null;
     }
@@ -0,0 +1,480 @@
+package edu.rit.entityg.csv;
+
+import edu.rit.entityg.utils.ExceptionUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A persistent inverted index of a CSV file. For every indexed column, the index maps each value in that column to
+ * the byte offsets of the rows that contain it, so a lookup only has to read the matching rows (see
+ * {@link CSVConnection#getLineAt(long)}) instead of scanning the whole file.
+ * <p/>The index is stored in a sidecar file next to the CSV file (<code>[file].csv.idx</code>), and is reused across
+ * runs for as long as the CSV file's size and last-modified time match the ones recorded in the sidecar.
+ * <p/>The sidecar file has the following layout:
+ * <ul>
+ * <li>Header: magic number, version, CSV file size and CSV file last-modified time.</li>
+ * <li>Postings: the row offsets of every (column, value) pair, as consecutive <code>long</code>s.</li>
+ * <li>Directory: for every column, each value with the position and length of each run of its postings.</li>
+ * <li>Trailer: the position of the directory.</li>
+ * </ul>
+ * Only the directory is loaded into memory; postings are read with positional reads when they are looked up.
+ * <p/>Rows that are appended to a followed file are added with
+ * {@link CSVIndex#add(long, edu.rit.entityg.csv.TableRow)}, which keeps their postings in memory, and are written to
+ * the sidecar by {@link CSVIndex#flush(long)}. A flush writes the new postings where the old directory was, as one
+ * more run of each value that was appended to, followed by a new directory, so the postings that are already in the
+ * sidecar are never rewritten.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CSVIndex {
+
+    /**
+     * The extension that is added to the CSV file's name to get the sidecar file's name.
+     */
+    public static final String EXTENSION = ".idx";
+    private static final int MAGIC = 0x45474958;
+    private static final int VERSION = 3;
+    private static final String CHARSET = "UTF-8";
+    private static final long[] NO_ROWS = new long[0];
+    private final File sidecar;
+    private final File csvFile;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    /**
+     * A mapping of column number to the directory of that column. Each directory maps a value to the runs of its
+     * postings: the position in the sidecar file and number of rows of each run, one after the other.
+     */
+    private final HashMap<Integer, HashMap<String, long[]>> directory;
+    /**
+     * The position of the directory in the sidecar file.
+     */
+    private long directoryPosition;
+    /**
+     * The byte offset in the CSV file up to which rows are in the sidecar file.
+     */
+    private long end;
+    /**
+     * Postings of rows that were added since the last flush, for each column.
+     */
+    private final HashMap<Integer, HashMap<String, Postings>> added = new HashMap<Integer, HashMap<String, Postings>>();
+
+    private CSVIndex( File sidecar, File csvFile, Directory directory ) throws IOException {
+        this.sidecar = sidecar;
+        this.csvFile = csvFile;
+        this.raf = new RandomAccessFile( sidecar, "r" );
+        this.channel = raf.getChannel();
+        this.directory = directory.columns;
+        this.directoryPosition = directory.position;
+        this.end = directory.end;
+        for( Integer column : this.directory.keySet() ) {
+            added.put( column, new HashMap<String, Postings>() );
+        }
+    }
+
+    /**
+     * Returns the sidecar index file of <code>csvFile</code>.
+     */
+    public static File sidecarFor( File csvFile ) {
+        return new File( csvFile.getPath() + EXTENSION );
+    }
+
+    /**
+     * Opens the sidecar index of <code>conn</code>'s file, or builds a new one if the sidecar does not exist, is out
+     * of date, or does not index all of <code>columns</code>.
+     * @param conn The connection to the CSV file.
+     * @param columns The (zero-based) column numbers that should be indexed.
+     * @return The index.
+     * @throws IOException If the index could not be read or written.
+     */
+    public static CSVIndex openOrBuild( CSVConnection conn, int[] columns ) throws IOException {
+        File csvFile = conn.getFile();
+        File sidecar = sidecarFor( csvFile );
+        if( sidecar.isFile() ) {
+            Directory directory = readDirectory( sidecar, csvFile, conn.getEnd() );
+            if( directory != null && coversAll( directory.columns, columns ) ) {
+                return new CSVIndex( sidecar, csvFile, directory );
+            }
+            ExceptionUtils.handleMessage( sidecar + " is out of date. Rebuilding the index." );
+        }
+        build( conn, columns, sidecar );
+        Directory directory = readDirectory( sidecar, csvFile, conn.getEnd() );
+        if( directory == null ) {
+            throw new IOException( "The index " + sidecar + " could not be read after it was built." );
+        }
+        return new CSVIndex( sidecar, csvFile, directory );
+    }
+
+    private static boolean coversAll( HashMap<Integer, HashMap<String, long[]>> directory, int[] columns ) {
+        for( int column : columns ) {
+            if( !directory.containsKey( column ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scans the whole CSV file once and writes the sidecar index for <code>columns</code>. The index is written to a
+     * temporary file first, so a half-written sidecar is never picked up.
+     */
+    private static void build( CSVConnection conn, int[] columns, File sidecar ) throws IOException {
+        File csvFile = conn.getFile();
+        long modified = csvFile.lastModified();
+        long size;
+
+        HashMap<Integer, HashMap<String, Postings>> postings = new HashMap<Integer, HashMap<String, Postings>>();
+        for( int column : columns ) {
+            postings.put( column, new HashMap<String, Postings>() );
+        }
+        CSVLineScanner scanner = conn.newScanner();
+        CSVTokenizer tokenizer = new CSVTokenizer();
+        try {
+            while( scanner.nextRecord( tokenizer ) ) {
+                for( Map.Entry<Integer, HashMap<String, Postings>> entry : postings.entrySet() ) {
+                    int column = entry.getKey();
+                    if( column >= tokenizer.getFieldCount() ) {
+                        continue;
+                    }
+                    String value = tokenizer.getString( column );
+                    Postings rows = entry.getValue().get( value );
+                    if( rows == null ) {
+                        rows = new Postings();
+                        entry.getValue().put( value, rows );
+                    }
+                    rows.add( scanner.lineOffset() );
+                }
+            }
+            //Only rows up to here are indexed; in a followed file, a row may still be written after them.
+            size = scanner.position();
+        } finally {
+            scanner.close();
+        }
+
+        File temp = new File( sidecar.getPath() + ".tmp" );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) );
+        try {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeLong( size );
+            out.writeLong( modified );
+            long position = 24;
+            //Postings, in the same order the directory will be written in.
+            for( HashMap<String, Postings> values : postings.values() ) {
+                for( Postings rows : values.values() ) {
+                    rows.position = position;
+                    for( int i = 0; i < rows.size; i++ ) {
+                        out.writeLong( rows.offsets[i] );
+                    }
+                    position += 8L * rows.size;
+                }
+            }
+            //Directory
+            HashMap<Integer, HashMap<String, long[]>> directory = new HashMap<Integer, HashMap<String, long[]>>();
+            for( Map.Entry<Integer, HashMap<String, Postings>> column : postings.entrySet() ) {
+                HashMap<String, long[]> values = new HashMap<String, long[]>();
+                for( Map.Entry<String, Postings> value : column.getValue().entrySet() ) {
+                    values.put( value.getKey(), new long[]{ value.getValue().position, value.getValue().size } );
+                }
+                directory.put( column.getKey(), values );
+            }
+            writeDirectory( out, directory, position );
+        } finally {
+            out.close();
+        }
+        if( (sidecar.exists() && !sidecar.delete()) || !temp.renameTo( sidecar ) ) {
+            throw new IOException( "Could not replace the index " + sidecar );
+        }
+    }
+
+    /**
+     * Writes a directory, followed by the trailer.
+     * @param position The position the directory is written at.
+     */
+    private static void writeDirectory( DataOutputStream out, HashMap<Integer, HashMap<String, long[]>> directory,
+                                        long position ) throws IOException {
+        out.writeInt( directory.size() );
+        for( Map.Entry<Integer, HashMap<String, long[]>> column : directory.entrySet() ) {
+            out.writeInt( column.getKey() );
+            out.writeInt( column.getValue().size() );
+            for( Map.Entry<String, long[]> value : column.getValue().entrySet() ) {
+                byte[] bytes = value.getKey().getBytes( CHARSET );
+                out.writeInt( bytes.length );
+                out.write( bytes );
+                long[] runs = value.getValue();
+                out.writeInt( runs.length / 2 );
+                for( int i = 0; i < runs.length; i += 2 ) {
+                    out.writeLong( runs[i] );
+                    out.writeInt( (int) runs[i + 1] );
+                }
+            }
+        }
+        //Trailer
+        out.writeLong( position );
+    }
+
+    /**
+     * Reads the directory of a sidecar file.
+     * @param end The byte offset where the rows of the CSV file end; see {@link CSVConnection#getEnd()}.
+     * @return The directory, or null if the sidecar is not an index of <code>csvFile</code>'s current contents.
+     */
+    private static Directory readDirectory( File sidecar, File csvFile, long end ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( sidecar, "r" );
+        try {
+            if( raf.length() < 32
+                || raf.readInt() != MAGIC
+                || raf.readInt() != VERSION
+                || raf.readLong() != end
+                || raf.readLong() != csvFile.lastModified() ) {
+                return null;
+            }
+            Directory directory = new Directory();
+            directory.end = end;
+            raf.seek( raf.length() - 8 );
+            directory.position = raf.readLong();
+            raf.seek( directory.position );
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream( Channels.newInputStream( raf.getChannel() ) ) );
+            int columnCount = in.readInt();
+            for( int c = 0; c < columnCount; c++ ) {
+                int column = in.readInt();
+                int valueCount = in.readInt();
+                HashMap<String, long[]> values = new HashMap<String, long[]>( valueCount * 4 / 3 + 1 );
+                for( int v = 0; v < valueCount; v++ ) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully( bytes );
+                    long[] runs = new long[in.readInt() * 2];
+                    for( int i = 0; i < runs.length; i += 2 ) {
+                        runs[i] = in.readLong();
+                        runs[i + 1] = in.readInt();
+                    }
+                    values.put( new String( bytes, CHARSET ), runs );
+                }
+                directory.columns.put( column, values );
+            }
+            return directory;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns true if <code>column</code> is indexed.
+     */
+    public boolean covers( int column ) {
+        return directory.containsKey( column );
+    }
+
+    /**
+     * Looks up the rows which contain <code>value</code> in <code>column</code>.
+     * @param column A (zero-based) column number which is indexed.
+     * @param value The value to look up.
+     * @return The byte offsets of the matching rows, in file order, or an empty array if there are none.
+     */
+    public long[] lookup( int column, String value ) throws IOException {
+        return lookup( column, value, -1, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Looks up a page of the rows which contain <code>value</code> in <code>column</code>: the first
+     * <code>limit</code> of them which start after the byte offset <code>after</code>. The postings of each run are
+     * sorted, so the start of the page is found with a binary search of positional reads, and only the postings of
+     * the page are read, however many rows contain the value.
+     * @param column A (zero-based) column number which is indexed.
+     * @param value The value to look up.
+     * @param after Only rows which start after this byte offset are returned, or -1 for all rows.
+     * @param limit The maximum number of rows to return.
+     * @return The byte offsets of the matching rows, in file order, or an empty array if there are none.
+     */
+    public synchronized long[] lookup( int column, String value, long after, int limit ) throws IOException {
+        HashMap<String, long[]> values = directory.get( column );
+        long[] runs = (values == null) ? null : values.get( value );
+        HashMap<String, Postings> addedValues = added.get( column );
+        Postings addedRows = (addedValues == null) ? null : addedValues.get( value );
+        if( (runs == null && addedRows == null) || limit <= 0 ) {
+            return NO_ROWS;
+        }
+        long count = (addedRows == null) ? 0 : addedRows.size;
+        if( runs != null ) {
+            for( int i = 1; i < runs.length; i += 2 ) {
+                count += runs[i];
+            }
+        }
+        long[] rows = new long[(int) Math.min( limit, count )];
+        int size = 0;
+        if( runs != null ) {
+            for( int i = 0; i < runs.length && size < rows.length; i += 2 ) {
+                int runSize = (int) runs[i + 1];
+                int first = (after < 0) ? 0 : firstAfter( runs[i], runSize, after );
+                int length = Math.min( runSize - first, rows.length - size );
+                if( length > 0 ) {
+                    ByteBuffer bytes = readPostings( runs[i] + 8L * first, length );
+                    bytes.asLongBuffer().get( rows, size, length );
+                    size += length;
+                }
+            }
+        }
+        if( addedRows != null && size < rows.length ) {
+            int first = Arrays.binarySearch( addedRows.offsets, 0, addedRows.size, after + 1 );
+            if( first < 0 ) {
+                first = -first - 1;
+            }
+            int length = Math.min( addedRows.size - first, rows.length - size );
+            System.arraycopy( addedRows.offsets, first, rows, size, length );
+            size += length;
+        }
+        return (size == rows.length) ? rows : Arrays.copyOf( rows, size );
+    }
+
+    /**
+     * Returns the index of the first posting of a run which is greater than <code>after</code>, or
+     * <code>runSize</code> if there is none.
+     * @param position The position of the run in the sidecar file.
+     * @param runSize The number of postings in the run.
+     */
+    private int firstAfter( long position, int runSize, long after ) throws IOException {
+        int low = 0;
+        int high = runSize;
+        while( low < high ) {
+            int middle = (low + high) >>> 1;
+            if( readPostings( position + 8L * middle, 1 ).getLong() <= after ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads <code>count</code> postings, starting at <code>position</code> in the sidecar file.
+     * @return A buffer of the postings, ready to be read.
+     */
+    private ByteBuffer readPostings( long position, int count ) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate( count * 8 );
+        while( bytes.hasRemaining() ) {
+            int read = channel.read( bytes, position + bytes.position() );
+            if( read < 0 ) {
+                throw new IOException( "The index is truncated." );
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Adds a row that was appended to the CSV file. The row can be looked up right away, and is written to the
+     * sidecar file by the next {@link CSVIndex#flush(long)}. Rows that are already indexed are ignored.
+     * @param offset The byte offset of the start of the row.
+     * @param row The row.
+     */
+    public synchronized void add( long offset, TableRow row ) {
+        if( offset < end ) {
+            return;
+        }
+        int fieldCount = row.getColumnCount();
+        for( Map.Entry<Integer, HashMap<String, Postings>> entry : added.entrySet() ) {
+            int column = entry.getKey();
+            if( column >= fieldCount ) {
+                continue;
+            }
+            String value = row.getColumn( column );
+            Postings rows = entry.getValue().get( value );
+            if( rows == null ) {
+                rows = new Postings();
+                entry.getValue().put( value, rows );
+            }
+            rows.add( offset );
+        }
+    }
+
+    /**
+     * Writes the rows that were added since the last flush to the sidecar file, and records that the sidecar file
+     * indexes the CSV file up to <code>newEnd</code>. The new postings overwrite the old directory, and the new
+     * directory (with one more run for each value that rows were added to) is written after them. The header is
+     * written last, so a sidecar file that was only partly written is rebuilt instead of used.
+     * @param newEnd The byte offset right after the last row that was added.
+     */
+    public synchronized void flush( long newEnd ) throws IOException {
+        RandomAccessFile out = new RandomAccessFile( sidecar, "rw" );
+        try {
+            long position = directoryPosition;
+            DataOutputStream data = new DataOutputStream( new BufferedOutputStream( Channels.newOutputStream(
+                    out.getChannel().position( position ) ) ) );
+            for( Map.Entry<Integer, HashMap<String, Postings>> column : added.entrySet() ) {
+                HashMap<String, long[]> values = directory.get( column.getKey() );
+                for( Map.Entry<String, Postings> value : column.getValue().entrySet() ) {
+                    Postings rows = value.getValue();
+                    for( int i = 0; i < rows.size; i++ ) {
+                        data.writeLong( rows.offsets[i] );
+                    }
+                    long[] runs = values.get( value.getKey() );
+                    long[] moreRuns = (runs == null) ? new long[2] : Arrays.copyOf( runs, runs.length + 2 );
+                    moreRuns[moreRuns.length - 2] = position;
+                    moreRuns[moreRuns.length - 1] = rows.size;
+                    values.put( value.getKey(), moreRuns );
+                    position += 8L * rows.size;
+                }
+                column.getValue().clear();
+            }
+            writeDirectory( data, directory, position );
+            data.flush();
+            out.setLength( out.getChannel().position() );
+            directoryPosition = position;
+            end = newEnd;
+            out.seek( 8 );
+            out.writeLong( newEnd );
+            out.writeLong( csvFile.lastModified() );
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Closes the sidecar file.
+     */
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    /**
+     * The directory of a sidecar file, as it is read from the file.
+     */
+    private static class Directory {
+
+        private final HashMap<Integer, HashMap<String, long[]>> columns =
+                new HashMap<Integer, HashMap<String, long[]>>();
+        private long position;
+        private long end;
+    }
+
+    /**
+     * A growable list of row offsets, used while the index is built.
+     */
+    private static class Postings {
+
+        private long[] offsets = new long[4];
+        private int size;
+        private long position;
+
+        private void add( long offset ) {
+            if( size == offsets.length ) {
+                long[] larger = new long[size * 2];
+                System.arraycopy( offsets, 0, larger, 0, size );
+                offsets = larger;
+            }
+            offsets[size++] = offset;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package edu.rit.entityg.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads the lines of a CSV file while keeping track of the byte offset each line starts at. Unlike a
+ * {@link java.io.BufferedReader}, a {@link CSVLineScanner} can {@link CSVLineScanner#seek(long)} to any byte offset,
+ * which allows us to read a single row from the middle of the file, or to scan only part of a file.
+ * <p/>Lines end with a <code>\n</code>, and an optional <code>\r</code> before it is dropped, the same as
+ * {@link java.io.BufferedReader#readLine()}. Lines are decoded with the platform's default charset, which is the same
+ * charset that {@link java.io.FileReader} uses.
+ * <p/>{@link CSVLineScanner#nextRecord(edu.rit.entityg.csv.CSVTokenizer)} reads whole CSV records instead of lines,
+ * so a quoted field may span several lines. Records are decoded into a reusable buffer, and are never turned into
+ * Strings.
+ * <p/>A scanner of a {@link GzipCSVFile} reads the uncompressed file, and all offsets are uncompressed offsets.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CSVLineScanner {
+
+    /**
+     * The default number of bytes to read from a {@link FileChannel} at a time.
+     */
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final Charset CHARSET = Charset.defaultCharset();
+    /**
+     * The memory-mapped file we are scanning, or null if we are reading through <code>channel</code>.
+     */
+    private final MappedCSVFile mapped;
+    /**
+     * The file we are reading from, or null if we are scanning <code>mapped</code> or reading <code>gzip</code>.
+     */
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    /**
+     * The reader of the gzip file we are reading from, or null if the file is not compressed.
+     */
+    private final GzipCSVFile.Reader gzip;
+    /**
+     * Bytes read from <code>channel</code> (or <code>gzip</code>), starting at the file offset
+     * <code>bufferStart</code>.
+     */
+    private final ByteBuffer buffer;
+    private long bufferStart;
+    /**
+     * Reusable buffer that the current line's bytes are copied into before they are decoded.
+     */
+    private byte[] lineBytes = new byte[256];
+    private int lineLength;
+    /**
+     * Reusable buffer that the current line is decoded into by {@link CSVLineScanner#nextRecord(CSVTokenizer)}.
+     */
+    private CharBuffer lineChars = CharBuffer.allocate( 256 );
+    private final CharsetDecoder decoder = CHARSET.newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    /**
+     * The byte offset of the next line.
+     */
+    private long position;
+    /**
+     * The byte offset of the current line.
+     */
+    private long lineOffset = -1;
+    /**
+     * Scanning stops at the first line that starts at or after <code>end</code>.
+     */
+    private long end = Long.MAX_VALUE;
+    private String line;
+
+    /**
+     * Scans a memory-mapped file in place.
+     * @param mapped The memory-mapped CSV file.
+     */
+    public CSVLineScanner( MappedCSVFile mapped ) {
+        this.mapped = mapped;
+        this.raf = null;
+        this.channel = null;
+        this.gzip = null;
+        this.buffer = null;
+    }
+
+    /**
+     * Reads <code>file</code> through a {@link FileChannel}.
+     * @param file The CSV file.
+     */
+    public CSVLineScanner( File file ) throws IOException {
+        this( file, DEFAULT_BUFFER_SIZE );
+    }
+
+    /**
+     * Reads <code>file</code> through a {@link FileChannel}, <code>bufferSize</code> bytes at a time. A small buffer
+     * should be used when the scanner only reads single lines at random offsets.
+     * @param file The CSV file.
+     * @param bufferSize The number of bytes to read from the file at a time.
+     */
+    public CSVLineScanner( File file, int bufferSize ) throws IOException {
+        this.mapped = null;
+        this.raf = new RandomAccessFile( file, "r" );
+        this.channel = raf.getChannel();
+        this.gzip = null;
+        this.buffer = ByteBuffer.allocate( bufferSize );
+        this.buffer.limit( 0 );
+    }
+
+    /**
+     * Reads the uncompressed contents of a gzip file, <code>bufferSize</code> bytes at a time.
+     * @param file The gzip-compressed CSV file.
+     * @param bufferSize The number of uncompressed bytes to read at a time.
+     */
+    public CSVLineScanner( GzipCSVFile file, int bufferSize ) throws IOException {
+        this.mapped = null;
+        this.raf = null;
+        this.channel = null;
+        this.gzip = file.newReader();
+        this.buffer = ByteBuffer.allocate( bufferSize );
+        this.buffer.limit( 0 );
+    }
+
+    /**
+     * Moves this scanner to <code>offset</code>. The next call to {@link CSVLineScanner#next()} will read the line
+     * starting at <code>offset</code>, and scanning will continue until the end of the file.
+     * @param offset A byte offset which must be the start of a line.
+     */
+    public void seek( long offset ) {
+        seek( offset, Long.MAX_VALUE );
+    }
+
+    /**
+     * Moves this scanner to <code>offset</code>, and limits scanning to the lines which start before <code>end</code>.
+     * @param offset A byte offset which must be the start of a line.
+     * @param end The offset where scanning should stop.
+     */
+    public void seek( long offset, long end ) {
+        this.position = offset;
+        this.end = end;
+        this.lineOffset = -1;
+        this.line = null;
+    }
+
+    /**
+     * Reads the next line.
+     * @return True if there was a line, else false.
+     */
+    public boolean next() throws IOException {
+        line = null;
+        if( position >= end ) {
+            return false;
+        }
+        boolean found = (mapped != null) ? nextMapped() : nextFromChannel();
+        if( !found ) {
+            lineOffset = -1;
+        } else if( lineLength > 0 && lineBytes[lineLength - 1] == '\r' ) {
+            lineLength--;
+        }
+        return found;
+    }
+
+    /**
+     * Reads the next CSV record, which may span more than one line if it has a quoted field with line breaks in it,
+     * and tokenizes it with <code>tokenizer</code>. After this returns, {@link CSVLineScanner#lineOffset()} is the
+     * offset of the first line of the record.
+     * @param tokenizer The tokenizer that the record's fields should be read into.
+     * @return True if there was a record, else false.
+     */
+    public boolean nextRecord( CSVTokenizer tokenizer ) throws IOException {
+        long recordOffset = -1;
+        while( next() ) {
+            if( recordOffset < 0 ) {
+                recordOffset = lineOffset;
+            }
+            CharBuffer decoded = decodeLine();
+            if( tokenizer.feed( decoded.array(), 0, decoded.limit() ) ) {
+                lineOffset = recordOffset;
+                return true;
+            }
+        }
+        if( recordOffset < 0 ) {
+            return false;
+        }
+        //The file ended inside a quoted field.
+        tokenizer.finish();
+        lineOffset = recordOffset;
+        return true;
+    }
+
+    /**
+     * Decodes the current line into <code>lineChars</code>. Lines that are all ASCII are copied directly, without
+     * going through the decoder.
+     */
+    private CharBuffer decodeLine() {
+        int capacity = (int) Math.ceil( lineLength * (double) decoder.maxCharsPerByte() );
+        if( capacity > lineChars.capacity() ) {
+            lineChars = CharBuffer.allocate( Math.max( capacity, lineChars.capacity() * 2 ) );
+        }
+        lineChars.clear();
+        char[] chars = lineChars.array();
+        int i = 0;
+        while( i < lineLength && lineBytes[i] >= 0 ) {
+            chars[i] = (char) lineBytes[i];
+            i++;
+        }
+        if( i == lineLength ) {
+            lineChars.limit( i );
+            return lineChars;
+        }
+        decoder.reset();
+        decoder.decode( ByteBuffer.wrap( lineBytes, 0, lineLength ), lineChars, true );
+        decoder.flush( lineChars );
+        lineChars.flip();
+        return lineChars;
+    }
+
+    /**
+     * Copies the next line out of the memory-mapped file.
+     */
+    private boolean nextMapped() {
+        if( position >= mapped.size() ) {
+            return false;
+        }
+        long newline = mapped.indexOf( (byte) '\n', position );
+        int length = (int) (newline - position);
+        lineLength = 0;
+        ensureLineCapacity( length );
+        mapped.get( position, lineBytes, 0, length );
+        lineLength = length;
+        lineOffset = position;
+        //The last line may have no line break, in which case it ends at the end of the file.
+        position = Math.min( newline + 1, mapped.size() );
+        return true;
+    }
+
+    /**
+     * Copies the next line out of the buffered {@link FileChannel}, refilling the buffer as needed.
+     */
+    private boolean nextFromChannel() throws IOException {
+        lineLength = 0;
+        lineOffset = position;
+        while( true ) {
+            if( position < bufferStart || position >= bufferStart + buffer.limit() ) {
+                buffer.clear();
+                bufferStart = position;
+                if( fill( position ) <= 0 ) {
+                    buffer.limit( 0 );
+                    return lineLength > 0;
+                }
+                buffer.flip();
+            }
+            byte[] bytes = buffer.array();
+            int start = (int) (position - bufferStart);
+            int limit = buffer.limit();
+            int i = start;
+            while( i < limit && bytes[i] != '\n' ) {
+                i++;
+            }
+            ensureLineCapacity( lineLength + (i - start) );
+            System.arraycopy( bytes, start, lineBytes, lineLength, i - start );
+            lineLength += i - start;
+            position = bufferStart + i;
+            if( i < limit ) {
+                position++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads the bytes at <code>offset</code> into <code>buffer</code>.
+     * @return The number of bytes that were read, or -1 at the end of the file.
+     */
+    private int fill( long offset ) throws IOException {
+        if( gzip == null ) {
+            return channel.read( buffer, offset );
+        }
+        int read = gzip.read( offset, buffer.array(), 0, buffer.capacity() );
+        if( read > 0 ) {
+            buffer.position( read );
+        }
+        return read;
+    }
+
+    private void ensureLineCapacity( int length ) {
+        if( length > lineBytes.length ) {
+            byte[] larger = new byte[Math.max( length, lineBytes.length * 2 )];
+            System.arraycopy( lineBytes, 0, larger, 0, lineLength );
+            lineBytes = larger;
+        }
+    }
+
+    /**
+     * Copies raw bytes of the file into <code>dst</code>, without moving this scanner.
+     * @param offset The byte offset of the first byte to copy.
+     * @param dst The array to copy into.
+     * @return The number of bytes that were copied, or -1 if <code>offset</code> is at the end of the file.
+     */
+    public int read( long offset, byte[] dst ) throws IOException {
+        if( gzip != null ) {
+            return gzip.read( offset, dst, 0, dst.length );
+        }
+        if( mapped == null ) {
+            return channel.read( ByteBuffer.wrap( dst ), offset );
+        }
+        if( offset >= mapped.size() ) {
+            return -1;
+        }
+        int length = (int) Math.min( dst.length, mapped.size() - offset );
+        mapped.get( offset, dst, 0, length );
+        return length;
+    }
+
+    /**
+     * Returns the current line, decoded as a String.
+     */
+    public String line() {
+        if( line == null && lineOffset >= 0 ) {
+            line = new String( lineBytes, 0, lineLength, CHARSET );
+        }
+        return line;
+    }
+
+    /**
+     * Returns the byte offset that the current line starts at.
+     */
+    public long lineOffset() {
+        return lineOffset;
+    }
+
+    /**
+     * Returns the byte offset of the next line; this is the offset right after the current line's terminator.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Closes the underlying file. Closing a scanner of a memory-mapped file does nothing, since the mapping is owned
+     * by whoever created it.
+     */
+    public void close() throws IOException {
+        if( raf != null ) {
+            raf.close();
+        }
+        if( gzip != null ) {
+            gzip.close();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package edu.rit.entityg.csv;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans a CSV file on several threads. The file is split into chunks of roughly equal byte size, each chunk is
+ * matched on a {@link ForkJoinPool} with its own {@link CSVLineScanner} and {@link CSVTokenizer}, and the matches of
+ * each chunk are merged back together in file order, so the results are the same as a single-threaded scan.
+ * <p/>Chunk boundaries must be the start of a record. Since a quoted field may contain line breaks, a line break is
+ * only a record boundary if it is outside of a quoted field, and that can only be known by following the fields from
+ * the start of the file. The boundaries are found once, with a single {@link CSVRecordFinder} pass over the raw bytes
+ * (which is much cheaper than tokenizing), and are reused for every scan after that.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CSVParallelScanner {
+
+    /**
+     * Chunks are never made smaller than this, so small files are scanned on a single thread.
+     */
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    /**
+     * The pool that all scans run on.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    private static final long[] NO_ROWS = new long[0];
+    private final CSVConnection conn;
+    /**
+     * The record-aligned byte offset each chunk starts at. The last element is the end of the file.
+     */
+    private long[] boundaries;
+
+    /**
+     * Creates a parallel scanner of <code>conn</code>'s file.
+     * @param conn The connection to the CSV file.
+     */
+    public CSVParallelScanner( CSVConnection conn ) {
+        this.conn = conn;
+    }
+
+    /**
+     * Finds the rows which contain <code>value</code> in <code>column</code>.
+     * @param column A (zero-based) column number.
+     * @param value The value to look for.
+     * @param limit The maximum number of rows to return.
+     * @return The byte offsets of the first <code>limit</code> matching rows, in file order. The rows can be read with
+     *         {@link CSVConnection#getLineAt(long)}.
+     */
+    public long[] find( int column, String value, int limit ) throws IOException {
+        return find( column, value, limit, -1 );
+    }
+
+    /**
+     * Finds the rows after the byte offset <code>after</code> which contain <code>value</code> in
+     * <code>column</code>. Chunks that end before <code>after</code> are not scanned at all, and the chunk that
+     * <code>after</code> is in is only scanned from <code>after</code> on.
+     * @param column A (zero-based) column number.
+     * @param value The value to look for.
+     * @param limit The maximum number of rows to return.
+     * @param after Only rows which start after this byte offset are returned. This must be -1 or the start of a row;
+     *              for example, the offset of the last row a previous call returned.
+     * @return The byte offsets of the first <code>limit</code> matching rows after <code>after</code>, in file order.
+     */
+    public long[] find( int column, String value, int limit, long after ) throws IOException {
+        long[] chunks = getBoundaries();
+        try {
+            return POOL.invoke( new ScanTask( chunks, 0, chunks.length - 1, column, value, limit, after ) );
+        } catch( ScanException se ) {
+            throw se.getCause();
+        }
+    }
+
+    /**
+     * Returns the chunk boundaries, finding them first if this is the first scan. If rows were appended to a file that
+     * is followed since then, the last chunk is extended to the new end of the file.
+     */
+    private synchronized long[] getBoundaries() throws IOException {
+        if( boundaries == null ) {
+            boundaries = findBoundaries();
+        }
+        long end = conn.getEnd();
+        if( boundaries[boundaries.length - 1] < end ) {
+            long[] extended = boundaries.clone();
+            extended[extended.length - 1] = end;
+            boundaries = extended;
+        }
+        return boundaries;
+    }
+
+    /**
+     * Splits the data of the file into about one chunk per {@link ForkJoinPool#getParallelism() thread} (a few more,
+     * so threads that finish early can pick up more work), moving each split forward to the next line break that ends
+     * a record. A file which can't be read at an offset without reading it from the start is a single chunk.
+     */
+    private long[] findBoundaries() throws IOException {
+        long start = conn.getDataStart();
+        long end = conn.getEnd();
+        int count = !conn.isRandomAccess() ? 1
+                    : (int) Math.max( 1, Math.min( POOL.getParallelism() * 4L, (end - start) / MIN_CHUNK_SIZE ) );
+        long[] splits = new long[count + 1];
+        splits[0] = start;
+        int found = 1;
+        if( count > 1 ) {
+            long chunkSize = (end - start) / count;
+            long nextSplit = start + chunkSize;
+            CSVRecordFinder finder = new CSVRecordFinder();
+            CSVLineScanner scanner = conn.newScanner();
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                long position = start;
+                int read;
+                while( found < count && position < end && (read = scanner.read( position, buffer )) > 0 ) {
+                    read = (int) Math.min( read, end - position );
+                    for( int i = 0; i < read && found < count; i++ ) {
+                        if( finder.endsRecord( buffer[i] ) && position + i + 1 >= nextSplit ) {
+                            splits[found++] = position + i + 1;
+                            nextSplit = position + i + 1 + chunkSize;
+                        }
+                    }
+                    position += read;
+                }
+            } finally {
+                scanner.close();
+            }
+        }
+        splits[found] = end;
+        long[] ret = new long[found + 1];
+        System.arraycopy( splits, 0, ret, 0, found + 1 );
+        return ret;
+    }
+
+    /**
+     * Scans chunks <code>first</code> (inclusive) to <code>last</code> (exclusive), splitting the range in half until
+     * there is a single chunk left.
+     */
+    private class ScanTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+        private final long[] chunks;
+        private final int first;
+        private final int last;
+        private final int column;
+        private final String value;
+        private final int limit;
+        private final long after;
+
+        private ScanTask( long[] chunks, int first, int last, int column, String value, int limit, long after ) {
+            this.chunks = chunks;
+            this.first = first;
+            this.last = last;
+            this.column = column;
+            this.value = value;
+            this.limit = limit;
+            this.after = after;
+        }
+
+        @Override
+        protected long[] compute() {
+            if( last - first == 1 ) {
+                if( chunks[last] <= after ) {
+                    return NO_ROWS;
+                }
+                try {
+                    //after is the start of a record, so the chunk it is in can be scanned from there.
+                    return scanChunk( Math.max( chunks[first], after ), chunks[last] );
+                } catch( IOException ioe ) {
+                    throw new ScanException( ioe );
+                }
+            }
+            int middle = (first + last) >>> 1;
+            ScanTask right = new ScanTask( chunks, middle, last, column, value, limit, after );
+            right.fork();
+            long[] left = new ScanTask( chunks, first, middle, column, value, limit, after ).compute();
+            if( left.length >= limit ) {
+                right.cancel( false );
+                return left;
+            }
+            return merge( left, right.join() );
+        }
+
+        /**
+         * Concatenates the matches of two neighbouring ranges, keeping at most <code>limit</code> of them.
+         */
+        private long[] merge( long[] left, long[] right ) {
+            int length = Math.min( limit, left.length + right.length );
+            long[] ret = new long[length];
+            System.arraycopy( left, 0, ret, 0, left.length );
+            System.arraycopy( right, 0, ret, left.length, length - left.length );
+            return ret;
+        }
+
+        private long[] scanChunk( long start, long end ) throws IOException {
+            CSVLineScanner scanner = conn.newScanner();
+            CSVTokenizer tokenizer = new CSVTokenizer();
+            long[] matches = NO_ROWS;
+            int size = 0;
+            try {
+                scanner.seek( start, end );
+                while( size < limit && scanner.nextRecord( tokenizer ) ) {
+                    if( scanner.lineOffset() > after && column < tokenizer.getFieldCount()
+                        && tokenizer.fieldEquals( column, value ) ) {
+                        if( size == matches.length ) {
+                            long[] larger = new long[Math.max( 8, size * 2 )];
+                            System.arraycopy( matches, 0, larger, 0, size );
+                            matches = larger;
+                        }
+                        matches[size++] = scanner.lineOffset();
+                    }
+                }
+            } finally {
+                scanner.close();
+            }
+            long[] ret = new long[size];
+            System.arraycopy( matches, 0, ret, 0, size );
+            return ret;
+        }
+    }
+
+    /**
+     * Carries an {@link IOException} out of a {@link ScanTask}, since tasks can only throw unchecked exceptions.
+     */
+    private static class ScanException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private ScanException( IOException cause ) {
+            super( cause );
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
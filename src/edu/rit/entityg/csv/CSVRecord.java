@@ -0,0 +1,62 @@
+package edu.rit.entityg.csv;
+
+import java.util.List;
+
+/**
+ * Implementation for a {@link TableRow} which is a view of the record that a {@link CSVTokenizer} has most recently
+ * tokenized. Columns are only turned into Strings when {@link CSVRecord#getColumn(int)} is called.
+ * <p/><b>Note:</b> A reader reuses the same {@link CSVRecord} (and {@link CSVTokenizer}) for every row it reads, so a
+ * {@link CSVRecord} is only valid until the next row is read. Use {@link CSVRecord#getColumn(int)} to keep any data.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CSVRecord implements TableRow {
+
+    private final CSVTokenizer tokenizer;
+    private final CSVSchema schema;
+
+    public CSVRecord( CSVTokenizer tokenizer, CSVSchema schema ) {
+        this.tokenizer = tokenizer;
+        this.schema = schema;
+    }
+
+    public CSVSchema getSchema() {
+        return schema;
+    }
+
+    public List<String> getColumnNames() {
+        return schema.getColumnNames();
+    }
+
+    public String getColumn( int index ) {
+        return tokenizer.getString( index );
+    }
+
+    public CharSequence getColumnView( int index ) {
+        return tokenizer.getField( index );
+    }
+
+    public boolean columnEquals( int index, String value ) {
+        return tokenizer.fieldEquals( index, value );
+    }
+
+    public int getColumnCount() {
+        return tokenizer.getFieldCount();
+    }
+
+    public int getColumnIndex( String columnName ) {
+        return schema.indexOf( columnName );
+    }
+
+    @Override
+    public String toString() {
+        String ret = "";
+        ret += "\nColumn titles\t: " + schema;
+        ret += "\nRow data\t: [";
+        for( int i = 0; i < tokenizer.getFieldCount(); i++ ) {
+            ret += (i > 0 ? ", " : "") + tokenizer.getField( i );
+        }
+        ret += "]";
+        return ret;
+    }
+}
@@ -0,0 +1,80 @@
+package edu.rit.entityg.csv;
+
+import java.io.IOException;
+
+/**
+ * Finds where records end in the raw bytes of a CSV file, following the same rules as {@link CSVTokenizer}: a quote
+ * only opens a quoted field at the start of a field, a quote inside an unquoted field is an ordinary character, and a
+ * doubled quote inside a quoted field is an escaped quote. A line break ends a record unless it is inside a quoted
+ * field. Counting every quote instead would go wrong for the rest of the file after a single stray quote.
+ * <p/>Only single bytes are looked at, which is much cheaper than tokenizing. The delimiter, the quote and the line
+ * break can't be part of a multi-byte character, so the record boundaries are the same as the tokenizer's.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+class CSVRecordFinder {
+
+    private int state = CSVTokenizer.FIELD_START;
+
+    /**
+     * Creates a finder which starts at the start of a record.
+     */
+    CSVRecordFinder() {
+    }
+
+    /**
+     * Reads the next byte of the file.
+     * @return True if <code>b</code> is a line break which ends a record.
+     */
+    boolean endsRecord( byte b ) {
+        switch( state ) {
+            case CSVTokenizer.QUOTED:
+                if( b == CSVTokenizer.QUOTE ) {
+                    state = CSVTokenizer.QUOTE_IN_QUOTED;
+                }
+                return false;
+            case CSVTokenizer.QUOTE_IN_QUOTED:
+                //A second quote is an escaped quote, and anything else closes the quoted field.
+                state = (b == CSVTokenizer.QUOTE) ? CSVTokenizer.QUOTED : CSVTokenizer.UNQUOTED;
+                break;
+            case CSVTokenizer.FIELD_START:
+                state = (b == CSVTokenizer.QUOTE) ? CSVTokenizer.QUOTED : CSVTokenizer.UNQUOTED;
+                break;
+            default: //UNQUOTED
+                break;
+        }
+        if( b == CSVTokenizer.DELIMITER ) {
+            state = CSVTokenizer.FIELD_START;
+        } else if( b == '\n' ) {
+            state = CSVTokenizer.FIELD_START;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the end of the last complete record between <code>start</code> and <code>end</code>: the byte right after
+     * the last line break that ends a record.
+     * @param scanner A scanner of the file, which is only used to read raw bytes.
+     * @param start The start of a record.
+     * @param end The byte offset to stop reading at.
+     * @return The end of the last complete record, or <code>start</code> if no record was completed.
+     */
+    static long findLastRecordEnd( CSVLineScanner scanner, long start, long end ) throws IOException {
+        CSVRecordFinder finder = new CSVRecordFinder();
+        long last = start;
+        byte[] buffer = new byte[CSVLineScanner.DEFAULT_BUFFER_SIZE];
+        long offset = start;
+        int read;
+        while( offset < end && (read = scanner.read( offset, buffer )) > 0 ) {
+            int count = (int) Math.min( read, end - offset );
+            for( int i = 0; i < count; i++ ) {
+                if( finder.endsRecord( buffer[i] ) ) {
+                    last = offset + i + 1;
+                }
+            }
+            offset += count;
+        }
+        return last;
+    }
+}
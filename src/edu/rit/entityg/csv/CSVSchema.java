@@ -0,0 +1,92 @@
+package edu.rit.entityg.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The column names of a CSV file. A schema is built once per {@link CSVConnection}, from the file's header row, and
+ * is shared by every {@link TableRow} that connection reads, so rows do not carry (or search) their own copy of the
+ * header. A schema is immutable.
+ * <p/>Column names are looked up by exact name with a hash lookup. Looking up a column by part of its name is still
+ * possible with {@link CSVSchema#indexOfContaining(java.lang.String)}, but it must be asked for explicitly, since it
+ * has to check every column name. Either way, a column should be looked up once per query, and the returned index
+ * used for every row.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public final class CSVSchema {
+
+    private final List<String> columnNames;
+    /**
+     * A mapping of each column name to the index of the first column with that name.
+     */
+    private final HashMap<String, Integer> indexes;
+
+    /**
+     * Creates a schema of <code>columnNames</code>.
+     * @param columnNames The column names, in the order of the columns in the file.
+     */
+    public CSVSchema( List<String> columnNames ) {
+        this.columnNames = Collections.unmodifiableList( new ArrayList<String>( columnNames ) );
+        this.indexes = new HashMap<String, Integer>( columnNames.size() * 4 / 3 + 1 );
+        for( int i = columnNames.size() - 1; i >= 0; i-- ) {
+            indexes.put( columnNames.get( i ), i );
+        }
+    }
+
+    /**
+     * Returns the (unmodifiable) column names, in the order of the columns in the file.
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    /**
+     * Returns the name of column <code>index</code>.
+     * @param index A (zero-based) column number.
+     */
+    public String getColumnName( int index ) {
+        return columnNames.get( index );
+    }
+
+    /**
+     * Looks up a column by its exact name.
+     * @param columnName The name of the column.
+     * @return The (zero-based) number of the first column named <code>columnName</code>, or <code>-1</code> if there
+     *         is no such column.
+     */
+    public int indexOf( String columnName ) {
+        Integer index = indexes.get( columnName );
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     * Looks up a column by part of its name. This checks every column name in order, so it should only be used when
+     * the exact name is not known.
+     * @param fragment Part of the name of the column.
+     * @return The (zero-based) number of the first column whose name contains <code>fragment</code>, or
+     *         <code>-1</code> if there is no such column.
+     */
+    public int indexOfContaining( String fragment ) {
+        for( int i = 0; i < columnNames.size(); i++ ) {
+            if( columnNames.get( i ).contains( fragment ) ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return columnNames.toString();
+    }
+}
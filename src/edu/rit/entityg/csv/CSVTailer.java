@@ -0,0 +1,175 @@
+package edu.rit.entityg.csv;
+
+import edu.rit.entityg.utils.ExceptionUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a CSV file that is being appended to, and hands every new row to the {@link CSVAppendListener}s of a
+ * {@link CSVConnection}. The file's directory is watched with a {@link WatchService}, and the file's size is also
+ * checked every {@link CSVTailer#POLL_INTERVAL} milliseconds, since not every file system reports changes (network
+ * file systems in particular).
+ * <p/>Only the bytes after the last row that was read are ever read again, so the cost of an append is proportional
+ * to the size of the append, not of the file. A row is only read once its line break has been written (and the line
+ * break is outside of a quoted field), so a row that is still being written is never read half way.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+class CSVTailer implements Runnable {
+
+    /**
+     * The number of milliseconds between checks of the file's size.
+     */
+    static final long POLL_INTERVAL = 1000;
+    private final CSVConnection conn;
+    private final File file;
+    private final List<CSVAppendListener> listeners = new CopyOnWriteArrayList<CSVAppendListener>();
+    /**
+     * The byte offset right after the last row that was read.
+     */
+    private long position;
+    private volatile boolean running;
+    private Thread thread;
+    /**
+     * Watches the file's directory, or null if it is not watched (yet).
+     */
+    private volatile WatchService watcher;
+
+    /**
+     * Creates a tailer of <code>conn</code>'s file, which starts reading at <code>position</code>.
+     * @param conn The connection to the CSV file.
+     * @param position The byte offset right after the last complete row in the file.
+     */
+    CSVTailer( CSVConnection conn, long position ) {
+        this.conn = conn;
+        this.file = conn.getFile();
+        this.position = position;
+    }
+
+    void addListener( CSVAppendListener listener ) {
+        listeners.add( listener );
+    }
+
+    void removeListener( CSVAppendListener listener ) {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Starts following the file on a daemon thread, if it is not followed already.
+     */
+    synchronized void start() {
+        if( thread == null ) {
+            running = true;
+            thread = new Thread( this, "EntityG follow " + file.getName() );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops following the file. The thread is not interrupted, since an interrupt during a read closes the file
+     * channel it reads from. It stops when it next checks whether it is running, which is right away if it is waiting
+     * for the watcher, and at most {@link CSVTailer#POLL_INTERVAL} milliseconds later otherwise.
+     */
+    synchronized void stop() {
+        running = false;
+        thread = null;
+        WatchService w = watcher;
+        if( w != null ) {
+            try {
+                w.close();
+            } catch( IOException ioe ) {
+                ExceptionUtils.handleException( ioe );
+            }
+        }
+    }
+
+    public void run() {
+        WatchService watcher = null;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            file.getAbsoluteFile().getParentFile().toPath().register( watcher,
+                                                                        StandardWatchEventKinds.ENTRY_MODIFY );
+        } catch( IOException ioe ) {
+            ExceptionUtils.handleMessage( "Could not watch " + file + " for changes. Checking its size every "
+                                          + POLL_INTERVAL + "ms instead." );
+            watcher = null;
+        }
+        this.watcher = watcher;
+        CSVLineScanner scanner = null;
+        try {
+            scanner = new CSVLineScanner( file );
+            while( running ) {
+                if( watcher != null ) {
+                    WatchKey key = watcher.poll( POLL_INTERVAL, TimeUnit.MILLISECONDS );
+                    if( key != null ) {
+                        //Any change in the directory is a reason to check the file's size, so the events themselves
+                        //don't matter.
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep( POLL_INTERVAL );
+                }
+                readAppended( scanner );
+            }
+        } catch( ClosedWatchServiceException cwse ) {
+            //We were stopped.
+        } catch( InterruptedException ie ) {
+            //We were stopped.
+        } catch( IOException ioe ) {
+            ExceptionUtils.handleException( ioe );
+            ExceptionUtils.handleMessage( "Stopped following " + file + "." );
+        } finally {
+            try {
+                if( scanner != null ) {
+                    scanner.close();
+                }
+                if( watcher != null ) {
+                    watcher.close();
+                }
+            } catch( IOException ioe ) {
+                ExceptionUtils.handleException( ioe );
+            }
+        }
+    }
+
+    /**
+     * Reads the rows that were appended since the last call, if there are any.
+     */
+    private void readAppended( CSVLineScanner scanner ) throws IOException {
+        long length = file.length();
+        if( length < position ) {
+            ExceptionUtils.handleMessage( file + " was truncated. Restart EntityG to reload it." );
+            running = false;
+            return;
+        }
+        long end = CSVRecordFinder.findLastRecordEnd( scanner, position, length );
+        if( end <= position ) {
+            return;
+        }
+        //Make the new rows visible to scans before the listeners (indexes) hear about them; a listener which misses
+        //a row can always find it with a scan, and listeners ignore rows they already have.
+        conn.setEnd( end );
+        CSVTokenizer tokenizer = new CSVTokenizer();
+        CSVRecord record = new CSVRecord( tokenizer, conn.getSchema() );
+        scanner.seek( position, end );
+        while( scanner.nextRecord( tokenizer ) ) {
+            for( CSVAppendListener listener : listeners ) {
+                listener.rowAppended( scanner.lineOffset(), record );
+            }
+        }
+        position = end;
+        for( CSVAppendListener listener : listeners ) {
+            listener.appendFinished( end );
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package edu.rit.entityg.csv;
+
+/**
+ * Splits CSV records into fields, following RFC 4180: fields are separated by {@link CSVTokenizer#DELIMITER}, a field
+ * may be enclosed in double quotes, a quoted field may contain delimiters and line breaks, and a double quote inside a
+ * quoted field is escaped by doubling it (<code>""</code>).
+ * <p/>A tokenizer is meant to be reused for every record a reader reads. The unquoted contents of every field of the
+ * current record are copied into a single reusable <code>char</code> buffer, with the start and end of each field
+ * recorded in reusable offset arrays, so tokenizing a record does not allocate anything. Fields are exposed as
+ * {@link CharSequence} views of that buffer, and a String is only created when {@link CSVTokenizer#getString(int)}
+ * is called. Views and offsets are only valid until the next record is tokenized.
+ * <p/>Input that is not valid RFC 4180 is handled leniently: characters after the closing quote of a quoted field,
+ * and quotes inside an unquoted field, are kept as they are.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CSVTokenizer {
+
+    /**
+     * The character that separates fields.
+     */
+    public static final char DELIMITER = ',';
+    /**
+     * The character that encloses a quoted field.
+     */
+    public static final char QUOTE = '"';
+    /**
+     * Parser states. {@link CSVRecordFinder} follows the same states over raw bytes.
+     */
+    static final int FIELD_START = 0;
+    static final int UNQUOTED = 1;
+    static final int QUOTED = 2;
+    static final int QUOTE_IN_QUOTED = 3;
+    /**
+     * The unquoted contents of every field in the current record.
+     */
+    private char[] chars = new char[256];
+    private int length;
+    /**
+     * The start (inclusive) and end (exclusive) of each field in <code>chars</code>. <code>starts</code> has one more
+     * slot than <code>ends</code>, for the start of the field that is being read.
+     */
+    private int[] starts = new int[17];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    /**
+     * One reusable view per field index.
+     */
+    private FieldView[] views = new FieldView[0];
+    private int state;
+    /**
+     * True if the current record is complete, so the next line that is fed starts a new record.
+     */
+    private boolean complete;
+
+    /**
+     * Creates a tokenizer, ready for a new record.
+     */
+    public CSVTokenizer() {
+        reset();
+    }
+
+    /**
+     * Discards the current record, so the next call to {@link CSVTokenizer#feed(char[], int, int)} starts a new one.
+     */
+    public final void reset() {
+        length = 0;
+        fieldCount = 0;
+        state = FIELD_START;
+        starts[0] = 0;
+        complete = false;
+    }
+
+    /**
+     * Tokenizes a line of a record. If the line ends inside a quoted field, the record is not complete yet, and the
+     * next line should be fed as well; the line break between them becomes part of the quoted field. Once a record
+     * is complete, the next line that is fed starts a new record.
+     * @param line The characters of the line, without its line terminator.
+     * @param offset The index of the first character of the line in <code>line</code>.
+     * @param count The number of characters in the line.
+     * @return True if the record is complete, or false if the record continues on the next line.
+     */
+    public boolean feed( char[] line, int offset, int count ) {
+        if( complete ) {
+            reset();
+        }
+        if( state == QUOTED ) {
+            //We are continuing a quoted field from the previous line.
+            append( '\n' );
+        }
+        ensureCapacity( length + count );
+        int end = offset + count;
+        for( int i = offset; i < end; i++ ) {
+            char c = line[i];
+            switch( state ) {
+                case FIELD_START:
+                    if( c == QUOTE ) {
+                        state = QUOTED;
+                    } else if( c == DELIMITER ) {
+                        endField();
+                    } else {
+                        chars[length++] = c;
+                        state = UNQUOTED;
+                    }
+                    break;
+                case UNQUOTED:
+                    if( c == DELIMITER ) {
+                        endField();
+                    } else {
+                        chars[length++] = c;
+                    }
+                    break;
+                case QUOTED:
+                    if( c == QUOTE ) {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        chars[length++] = c;
+                    }
+                    break;
+                default: //QUOTE_IN_QUOTED
+                    if( c == QUOTE ) {
+                        //An escaped quote.
+                        chars[length++] = c;
+                        state = QUOTED;
+                    } else if( c == DELIMITER ) {
+                        endField();
+                    } else {
+                        chars[length++] = c;
+                        state = UNQUOTED;
+                    }
+                    break;
+            }
+        }
+        if( state == QUOTED ) {
+            return false;
+        }
+        finish();
+        return true;
+    }
+
+    /**
+     * Tokenizes a line of a record. See {@link CSVTokenizer#feed(char[], int, int)}.
+     * @param line The line, without its line terminator.
+     * @return True if the record is complete, or false if the record continues on the next line.
+     */
+    public boolean feed( String line ) {
+        char[] copy = line.toCharArray();
+        return feed( copy, 0, copy.length );
+    }
+
+    /**
+     * Ends the current record, even if it is inside a quoted field. This should be called when the input ends before
+     * a quoted field was closed.
+     */
+    public void finish() {
+        endField();
+        state = FIELD_START;
+        complete = true;
+    }
+
+    private void endField() {
+        if( fieldCount == ends.length ) {
+            int[] largerStarts = new int[fieldCount * 2 + 1];
+            int[] largerEnds = new int[fieldCount * 2];
+            System.arraycopy( starts, 0, largerStarts, 0, fieldCount + 1 );
+            System.arraycopy( ends, 0, largerEnds, 0, fieldCount );
+            starts = largerStarts;
+            ends = largerEnds;
+        }
+        ends[fieldCount++] = length;
+        starts[fieldCount] = length;
+        state = FIELD_START;
+    }
+
+    private void append( char c ) {
+        ensureCapacity( length + 1 );
+        chars[length++] = c;
+    }
+
+    private void ensureCapacity( int capacity ) {
+        if( capacity > chars.length ) {
+            char[] larger = new char[Math.max( capacity, chars.length * 2 )];
+            System.arraycopy( chars, 0, larger, 0, length );
+            chars = larger;
+        }
+    }
+
+    /**
+     * Returns the number of fields in the current record.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the length of field <code>index</code>.
+     */
+    public int getFieldLength( int index ) {
+        checkIndex( index );
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * Returns a view of field <code>index</code>. The view is reused, and is only valid until the next record is
+     * tokenized.
+     * @param index A (zero-based) field index.
+     */
+    public CharSequence getField( int index ) {
+        checkIndex( index );
+        if( index >= views.length ) {
+            FieldView[] larger = new FieldView[Math.max( fieldCount, views.length * 2 )];
+            System.arraycopy( views, 0, larger, 0, views.length );
+            for( int i = views.length; i < larger.length; i++ ) {
+                larger[i] = new FieldView( i );
+            }
+            views = larger;
+        }
+        return views[index];
+    }
+
+    /**
+     * Returns field <code>index</code> as a new String.
+     * @param index A (zero-based) field index.
+     */
+    public String getString( int index ) {
+        checkIndex( index );
+        return new String( chars, starts[index], ends[index] - starts[index] );
+    }
+
+    /**
+     * Compares field <code>index</code> to <code>value</code>, without creating a String.
+     * @param index A (zero-based) field index.
+     * @param value The value to compare to.
+     * @return True if the field is exactly <code>value</code>.
+     */
+    public boolean fieldEquals( int index, String value ) {
+        checkIndex( index );
+        int start = starts[index];
+        int fieldLength = ends[index] - start;
+        if( fieldLength != value.length() ) {
+            return false;
+        }
+        for( int i = 0; i < fieldLength; i++ ) {
+            if( chars[start + i] != value.charAt( i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkIndex( int index ) {
+        if( index < 0 || index >= fieldCount ) {
+            throw new IndexOutOfBoundsException( "Field " + index + " does not exist in a record of " + fieldCount
+                                                 + " fields." );
+        }
+    }
+
+    /**
+     * A view of a single field of the current record.
+     */
+    private class FieldView implements CharSequence {
+
+        private final int index;
+
+        private FieldView( int index ) {
+            this.index = index;
+        }
+
+        public int length() {
+            return ends[index] - starts[index];
+        }
+
+        public char charAt( int i ) {
+            if( i < 0 || i >= length() ) {
+                throw new IndexOutOfBoundsException( String.valueOf( i ) );
+            }
+            return chars[starts[index] + i];
+        }
+
+        public CharSequence subSequence( int start, int end ) {
+            return toString().substring( start, end );
+        }
+
+        @Override
+        public String toString() {
+            return getString( index );
+        }
+    }
+}
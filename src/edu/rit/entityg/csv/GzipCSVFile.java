@@ -0,0 +1,423 @@
+package edu.rit.entityg.csv;
+
+import edu.rit.entityg.utils.ExceptionUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A gzip-compressed CSV file (<code>[file].csv.gz</code>) that can be read at any uncompressed byte offset, without
+ * decompressing it to disk.
+ * <p/>A gzip file is made of one or more members, and decompression can only be started at the start of a member.
+ * The first time a file is opened, it is decompressed once to find where each member starts, in both the compressed
+ * and the uncompressed file. These restart points (at least {@link GzipCSVFile#RESTART_SPACING} uncompressed bytes
+ * apart) are kept in a sidecar file (<code>[file].csv.gz.gzi</code>), and reused for as long as the gzip file's size
+ * and last-modified time match the ones recorded in the sidecar. Reading at an offset then only has to decompress from
+ * the closest restart point before it.
+ * <p/>Files that are written by <code>bgzip</code> or <code>pigz --independent</code>, or that are several gzip files
+ * concatenated together, have a member every few kilobytes. A file written by plain <code>gzip</code> is a single
+ * member, so it can only be read from the start; reading such a file sequentially is still cheap, but reading single
+ * rows at random offsets is not.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class GzipCSVFile {
+
+    /**
+     * The extension that is added to the gzip file's name to get the sidecar file's name.
+     */
+    public static final String EXTENSION = ".gzi";
+    /**
+     * Restart points are only kept for members which start at least this many uncompressed bytes after the last
+     * restart point.
+     */
+    static final long RESTART_SPACING = 64 * 1024;
+    private static final int MAGIC = 0x45475a49;
+    private static final int VERSION = 1;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private final File file;
+    /**
+     * The compressed and uncompressed offset of each restart point, in increasing order. The first restart point is
+     * always the start of the file.
+     */
+    private final long[] compressedOffsets;
+    private final long[] uncompressedOffsets;
+    /**
+     * The size of the uncompressed file.
+     */
+    private final long length;
+
+    private GzipCSVFile( File file, long[] compressedOffsets, long[] uncompressedOffsets, long length ) {
+        this.file = file;
+        this.compressedOffsets = compressedOffsets;
+        this.uncompressedOffsets = uncompressedOffsets;
+        this.length = length;
+    }
+
+    /**
+     * Returns true if <code>file</code> is a gzip file, judging by its name.
+     */
+    public static boolean isGzip( File file ) {
+        return file.getName().endsWith( ".gz" );
+    }
+
+    /**
+     * Returns the sidecar file with the restart points of <code>gzipFile</code>.
+     */
+    public static File sidecarFor( File gzipFile ) {
+        return new File( gzipFile.getPath() + EXTENSION );
+    }
+
+    /**
+     * Opens a gzip file, reading its restart points from its sidecar file, or finding them (and writing the sidecar
+     * file) if the sidecar does not exist or is out of date.
+     * @param file The gzip file.
+     * @return The opened file.
+     * @throws IOException If the file is not a valid gzip file, or could not be read.
+     */
+    public static GzipCSVFile open( File file ) throws IOException {
+        File sidecar = sidecarFor( file );
+        if( sidecar.isFile() ) {
+            GzipCSVFile gzip = readSidecar( file, sidecar );
+            if( gzip != null ) {
+                return gzip;
+            }
+            ExceptionUtils.handleMessage( sidecar + " is out of date. Finding the restart points of " + file
+                                          + " again." );
+        }
+        GzipCSVFile gzip = findRestartPoints( file );
+        try {
+            gzip.writeSidecar( sidecar );
+        } catch( IOException ioe ) {
+            //The restart points can still be used; they will just be found again next time.
+            ExceptionUtils.handleException( ioe );
+        }
+        return gzip;
+    }
+
+    /**
+     * Decompresses the whole file once, and records a restart point at the start of every member that is at least
+     * {@link GzipCSVFile#RESTART_SPACING} bytes after the last restart point.
+     */
+    private static GzipCSVFile findRestartPoints( File file ) throws IOException {
+        long[] compressed = new long[16];
+        long[] uncompressed = new long[16];
+        int count = 0;
+        Reader reader = new GzipCSVFile( file, new long[]{ 0 }, new long[]{ 0 }, Long.MAX_VALUE ).newReader();
+        try {
+            byte[] skipped = new byte[CSVLineScanner.DEFAULT_BUFFER_SIZE];
+            reader.restart( 0, 0 );
+            while( true ) {
+                if( count == 0 || reader.position - uncompressed[count - 1] >= RESTART_SPACING ) {
+                    if( count == compressed.length ) {
+                        long[] largerCompressed = new long[count * 2];
+                        long[] largerUncompressed = new long[count * 2];
+                        System.arraycopy( compressed, 0, largerCompressed, 0, count );
+                        System.arraycopy( uncompressed, 0, largerUncompressed, 0, count );
+                        compressed = largerCompressed;
+                        uncompressed = largerUncompressed;
+                    }
+                    compressed[count] = reader.memberStart;
+                    uncompressed[count] = reader.position;
+                    count++;
+                }
+                //Inflate the rest of this member.
+                while( !reader.inflater.finished() ) {
+                    if( reader.inflate( skipped, 0, skipped.length ) < 0 ) {
+                        break;
+                    }
+                }
+                if( !reader.nextMember() ) {
+                    break;
+                }
+            }
+            long[] compressedOffsets = new long[count];
+            long[] uncompressedOffsets = new long[count];
+            System.arraycopy( compressed, 0, compressedOffsets, 0, count );
+            System.arraycopy( uncompressed, 0, uncompressedOffsets, 0, count );
+            return new GzipCSVFile( file, compressedOffsets, uncompressedOffsets, reader.position );
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the restart points from a sidecar file.
+     * @return The opened file, or null if the sidecar does not match <code>file</code>'s current contents.
+     */
+    private static GzipCSVFile readSidecar( File file, File sidecar ) throws IOException {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( sidecar ) ) );
+        try {
+            if( in.readInt() != MAGIC
+                || in.readInt() != VERSION
+                || in.readLong() != file.length()
+                || in.readLong() != file.lastModified() ) {
+                return null;
+            }
+            long length = in.readLong();
+            int count = in.readInt();
+            long[] compressedOffsets = new long[count];
+            long[] uncompressedOffsets = new long[count];
+            for( int i = 0; i < count; i++ ) {
+                compressedOffsets[i] = in.readLong();
+                uncompressedOffsets[i] = in.readLong();
+            }
+            return new GzipCSVFile( file, compressedOffsets, uncompressedOffsets, length );
+        } catch( EOFException eofe ) {
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the restart points to a sidecar file. The sidecar is written to a temporary file first, so a
+     * half-written sidecar is never picked up.
+     */
+    private void writeSidecar( File sidecar ) throws IOException {
+        File temp = new File( sidecar.getPath() + ".tmp" );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ) ) );
+        try {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeLong( file.length() );
+            out.writeLong( file.lastModified() );
+            out.writeLong( length );
+            out.writeInt( compressedOffsets.length );
+            for( int i = 0; i < compressedOffsets.length; i++ ) {
+                out.writeLong( compressedOffsets[i] );
+                out.writeLong( uncompressedOffsets[i] );
+            }
+        } finally {
+            out.close();
+        }
+        if( (sidecar.exists() && !sidecar.delete()) || !temp.renameTo( sidecar ) ) {
+            throw new IOException( "Could not replace " + sidecar );
+        }
+    }
+
+    /**
+     * Returns the size of the uncompressed file.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of restart points.
+     */
+    public int getRestartPointCount() {
+        return compressedOffsets.length;
+    }
+
+    /**
+     * Creates a reader of this file. A reader keeps its own decompressor, so each thread should use its own reader.
+     */
+    public Reader newReader() throws IOException {
+        return new Reader();
+    }
+
+    /**
+     * Returns the index of the last restart point at or before the uncompressed offset <code>offset</code>.
+     */
+    private int restartPointBefore( long offset ) {
+        int low = 0;
+        int high = uncompressedOffsets.length - 1;
+        while( low < high ) {
+            int middle = (low + high + 1) >>> 1;
+            if( uncompressedOffsets[middle] <= offset ) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads the uncompressed file at any offset. Reads that continue where the last read stopped keep decompressing
+     * from there; any other read starts decompressing at the closest restart point before it.
+     */
+    public class Reader {
+
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private final Inflater inflater = new Inflater( true );
+        private final byte[] input = new byte[CSVLineScanner.DEFAULT_BUFFER_SIZE];
+        /**
+         * The compressed offset of the next input byte to give to the inflater.
+         */
+        private long compressedPosition;
+        /**
+         * The compressed offset of the start of the current member.
+         */
+        private long memberStart;
+        /**
+         * The uncompressed offset of the next byte the inflater will produce.
+         */
+        private long position = -1;
+        private byte[] skipped;
+
+        private Reader() throws IOException {
+            this.raf = new RandomAccessFile( file, "r" );
+            this.channel = raf.getChannel();
+        }
+
+        /**
+         * Copies uncompressed bytes into <code>dst</code>.
+         * @param offset The uncompressed offset of the first byte to copy.
+         * @param dst The array to copy into.
+         * @param dstOffset The index in <code>dst</code> to copy the first byte to.
+         * @param count The maximum number of bytes to copy.
+         * @return The number of bytes that were copied, or -1 if <code>offset</code> is at the end of the file.
+         */
+        public int read( long offset, byte[] dst, int dstOffset, int count ) throws IOException {
+            if( offset >= length ) {
+                return -1;
+            }
+            int restart = restartPointBefore( offset );
+            if( position < 0 || offset < position || uncompressedOffsets[restart] > position ) {
+                restart( compressedOffsets[restart], uncompressedOffsets[restart] );
+            }
+            if( offset > position ) {
+                if( skipped == null ) {
+                    skipped = new byte[CSVLineScanner.DEFAULT_BUFFER_SIZE];
+                }
+                while( offset > position ) {
+                    if( inflate( skipped, 0, (int) Math.min( skipped.length, offset - position ) ) < 0 ) {
+                        return -1;
+                    }
+                }
+            }
+            int read = 0;
+            while( read == 0 ) {
+                read = inflate( dst, dstOffset, count );
+            }
+            return read;
+        }
+
+        /**
+         * Starts decompressing at a member start.
+         */
+        private void restart( long compressedOffset, long uncompressedOffset ) throws IOException {
+            position = uncompressedOffset;
+            startMember( compressedOffset );
+        }
+
+        /**
+         * Skips the header of the member at <code>start</code>, and resets the inflater to the member's data.
+         */
+        private void startMember( long start ) throws IOException {
+            memberStart = start;
+            inflater.reset();
+            ByteBuffer header = ByteBuffer.allocate( 10 );
+            readFully( header, start );
+            int magic = (header.get( 0 ) & 0xff) | ((header.get( 1 ) & 0xff) << 8);
+            if( magic != GZIP_MAGIC || header.get( 2 ) != 8 ) {
+                throw new IOException( file + " is not a gzip file, or is corrupt at byte " + start + "." );
+            }
+            int flags = header.get( 3 ) & 0xff;
+            long next = start + 10;
+            if( (flags & FEXTRA) != 0 ) {
+                ByteBuffer extraLength = ByteBuffer.allocate( 2 );
+                readFully( extraLength, next );
+                next += 2 + ((extraLength.get( 0 ) & 0xff) | ((extraLength.get( 1 ) & 0xff) << 8));
+            }
+            if( (flags & FNAME) != 0 ) {
+                next = skipString( next );
+            }
+            if( (flags & FCOMMENT) != 0 ) {
+                next = skipString( next );
+            }
+            if( (flags & FHCRC) != 0 ) {
+                next += 2;
+            }
+            compressedPosition = next;
+        }
+
+        /**
+         * Skips a zero-terminated string in a member header.
+         * @return The offset right after the string.
+         */
+        private long skipString( long start ) throws IOException {
+            ByteBuffer one = ByteBuffer.allocate( 1 );
+            long next = start;
+            do {
+                one.clear();
+                readFully( one, next++ );
+            } while( one.get( 0 ) != 0 );
+            return next;
+        }
+
+        private void readFully( ByteBuffer dst, long at ) throws IOException {
+            while( dst.hasRemaining() ) {
+                if( channel.read( dst, at + dst.position() ) < 0 ) {
+                    throw new EOFException( file + " ends in the middle of a gzip header." );
+                }
+            }
+        }
+
+        /**
+         * Moves to the next member, once the inflater has finished the current one.
+         * @return True if there is a next member, or false if the current member was the last one.
+         */
+        private boolean nextMember() throws IOException {
+            //The inflater did not use its remaining input; the 8 byte trailer (CRC and size) is right after the data.
+            long next = compressedPosition - inflater.getRemaining() + 8;
+            if( next >= raf.length() ) {
+                return false;
+            }
+            startMember( next );
+            return true;
+        }
+
+        /**
+         * Inflates at most <code>count</code> bytes into <code>dst</code>, moving on to the next member if the
+         * current one is finished.
+         * @return The number of bytes inflated, which may be 0, or -1 at the end of the file.
+         */
+        private int inflate( byte[] dst, int dstOffset, int count ) throws IOException {
+            if( inflater.finished() && !nextMember() ) {
+                return -1;
+            }
+            if( inflater.needsInput() ) {
+                int read = channel.read( ByteBuffer.wrap( input ), compressedPosition );
+                if( read <= 0 ) {
+                    throw new EOFException( file + " ends in the middle of a gzip member." );
+                }
+                compressedPosition += read;
+                inflater.setInput( input, 0, read );
+            }
+            try {
+                int inflated = inflater.inflate( dst, dstOffset, count );
+                position += inflated;
+                return inflated;
+            } catch( DataFormatException dfe ) {
+                throw new IOException( file + " is corrupt: " + dfe.getMessage() );
+            }
+        }
+
+        /**
+         * Closes the file and releases the decompressor.
+         */
+        public void close() throws IOException {
+            inflater.end();
+            raf.close();
+        }
+    }
+}
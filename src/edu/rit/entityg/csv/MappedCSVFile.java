@@ -0,0 +1,129 @@
+package edu.rit.entityg.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only, memory-mapped view of a CSV file. Since a single {@link MappedByteBuffer} can only address
+ * {@link Integer#MAX_VALUE} bytes, files larger than {@link MappedCSVFile#SEGMENT_SIZE} are mapped as several
+ * consecutive segments, and every position in this class is a <code>long</code> offset from the start of the file.
+ * <p/>The bytes are never copied or decoded by this class; callers scan the mapping in place and only decode the bytes
+ * that they actually need.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class MappedCSVFile {
+
+    /**
+     * Number of bits used to address a byte within a single segment.
+     */
+    private static final int SEGMENT_BITS = 30;
+    /**
+     * The size of each mapped segment (1 GB).
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    /**
+     * Mask used to find the position of a byte within its segment.
+     */
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    /**
+     * The mapped segments of the file, in file order.
+     */
+    private MappedByteBuffer[] segments;
+    /**
+     * The length of the file at the time it was mapped.
+     */
+    private final long size;
+
+    /**
+     * Maps <code>file</code> into memory.
+     * @param file The CSV file to map.
+     * @throws IOException If the file could not be opened or mapped.
+     */
+    public MappedCSVFile( File file ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            this.size = channel.size();
+            int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+            this.segments = new MappedByteBuffer[count];
+            for( int i = 0; i < count; i++ ) {
+                long start = (long) i << SEGMENT_BITS;
+                long length = Math.min( SEGMENT_SIZE, size - start );
+                segments[i] = channel.map( FileChannel.MapMode.READ_ONLY, start, length );
+            }
+        } finally {
+            //A mapping stays valid after its channel has been closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes that are mapped.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the byte at <code>position</code>.
+     * @param position Offset from the start of the file. Must be less than {@link MappedCSVFile#size()}.
+     */
+    public byte get( long position ) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get( (int) (position & SEGMENT_MASK) );
+    }
+
+    /**
+     * Finds the next occurrence of <code>b</code>, starting at <code>from</code>.
+     * @param b The byte we are looking for.
+     * @param from The offset to start looking from.
+     * @return The offset of the next <code>b</code>, or {@link MappedCSVFile#size()} if there are no more.
+     */
+    public long indexOf( byte b, long from ) {
+        long position = from;
+        while( position < size ) {
+            MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+            int limit = segment.limit();
+            for( int i = (int) (position & SEGMENT_MASK); i < limit; i++ ) {
+                if( segment.get( i ) == b ) {
+                    return (position & ~SEGMENT_MASK) + i;
+                }
+            }
+            position = (position & ~SEGMENT_MASK) + SEGMENT_SIZE;
+        }
+        return size;
+    }
+
+    /**
+     * Copies <code>length</code> bytes starting at <code>position</code> into <code>dst</code>, crossing segment
+     * boundaries if needed.
+     * @param position Offset from the start of the file of the first byte to copy.
+     * @param dst The array to copy into.
+     * @param offset The index in <code>dst</code> to start copying to.
+     * @param length The number of bytes to copy.
+     */
+    public void get( long position, byte[] dst, int offset, int length ) {
+        while( length > 0 ) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)].duplicate();
+            int start = (int) (position & SEGMENT_MASK);
+            int n = Math.min( length, segment.limit() - start );
+            segment.position( start );
+            segment.get( dst, offset, n );
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Releases our references to the mapped segments. The memory itself is unmapped once the segments are garbage
+     * collected.
+     */
+    public void close() {
+        segments = new MappedByteBuffer[0];
+    }
+}
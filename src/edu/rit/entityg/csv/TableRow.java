@@ -8,6 +8,11 @@ import java.util.List;
  */
 public interface TableRow {
 
+    /**
+     * Returns the schema of the file, which is shared by every row of the file.
+     */
+    public CSVSchema getSchema();
+
     /**
      * Returns the first row in the file.
      * <p/>
@@ -23,7 +28,32 @@ public interface TableRow {
     public String getColumn( int index );
 
     /**
-     * Looks for the specified column name in the file's header row.
+     * Returns the data in the current row at column <code>index</code> without creating a String. The returned
+     * {@link CharSequence} may be backed by a buffer that is reused for the next row, so it should not be kept.
+     * @param index Column number
+     * @return The data that is in column <code>index</code>.
+     */
+    public CharSequence getColumnView( int index );
+
+    /**
+     * Compares the data in the current row at column <code>index</code> to <code>value</code>. This should be
+     * preferred over <code>getColumn( index ).equals( value )</code> when scanning, since it does not need to create
+     * a String for every row.
+     * @param index Column number
+     * @param value The value to compare to.
+     * @return True if the data in column <code>index</code> is exactly <code>value</code>.
+     */
+    public boolean columnEquals( int index, String value );
+
+    /**
+     * Returns the number of columns in the current row.
+     */
+    public int getColumnCount();
+
+    /**
+     * Looks for the specified column name in the file's header row. Names must match exactly; use
+     * {@link CSVSchema#indexOfContaining(java.lang.String)} to look a column up by part of its name. A column should
+     * be looked up once per query, not once per row.
      *
      * @param columnName The name of the column we want to find.
      *
@@ -0,0 +1,333 @@
+package edu.rit.entityg.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static edu.rit.entityg.utils.ExceptionUtils.*;
+
+/**
+ * A bounded pool of database connections. Connections are borrowed with {@link ConnectionPool#borrow()} for as long
+ * as a single call needs them, and handed back with {@link ConnectionPool#release(java.sql.Connection)}, so several
+ * calls can use the database at once, and a connection that was dropped is replaced instead of ending the session.
+ * <ul>
+ * <li>At most <code>maxSize</code> connections are ever open. A borrow waits for a connection to be released while
+ * that many are borrowed.</li>
+ * <li>Every connection is validated when it is borrowed, and a connection that is no longer valid is closed and
+ * replaced.</li>
+ * <li>Connections that have been idle for longer than <code>idleTimeout</code> are closed in the background, as long
+ * as at least <code>minSize</code> connections stay open.</li>
+ * </ul>
+ * The most recently released connection is borrowed first, so the connections which are not needed stay idle long
+ * enough to be closed.
+ * <p/>Each connection has a {@link StatementCache} of up to <code>statementCacheSize</code> prepared statements, which
+ * live as long as the connection does; see {@link ConnectionPool#prepare(java.sql.Connection, java.lang.String)}.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class ConnectionPool {
+
+    /**
+     * The number of seconds to wait for a connection to answer when it is validated.
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+    /**
+     * The number of milliseconds to wait for a connection to be released when every connection is borrowed.
+     */
+    private static final long BORROW_TIMEOUT = 30 * 1000;
+    private final String url;
+    private final String uid;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final int statementCacheSize;
+    /**
+     * The prepared statements of each open connection.
+     */
+    private final IdentityHashMap<Connection, StatementCache> statements =
+            new IdentityHashMap<Connection, StatementCache>();
+    /**
+     * The idle connections, most recently released first.
+     */
+    private final ArrayDeque<IdleConnection> idle = new ArrayDeque<IdleConnection>();
+    /**
+     * The number of open connections, both idle and borrowed (and the ones that are being opened).
+     */
+    private int size = 0;
+    private boolean closed = false;
+    private final Timer evictor;
+
+    /**
+     * Creates a pool of connections to <code>url</code>, and opens <code>minSize</code> connections.
+     * @param url The JDBC URL of the database.
+     * @param uid User Id to access the database.
+     * @param password Password to access the database.
+     * @param minSize The number of connections that are kept open, even when they are idle.
+     * @param maxSize The maximum number of connections that are open at once.
+     * @param idleTimeout The number of milliseconds after which an idle connection is closed.
+     * @param statementCacheSize The maximum number of prepared statements that are kept for each connection.
+     */
+    public ConnectionPool( String url, String uid, String password, int minSize, int maxSize, long idleTimeout,
+                           int statementCacheSize ) {
+        this.url = url;
+        this.uid = uid;
+        this.password = password;
+        this.maxSize = Math.max( 1, maxSize );
+        this.minSize = Math.max( 0, Math.min( minSize, this.maxSize ) );
+        this.idleTimeout = idleTimeout;
+        this.statementCacheSize = Math.max( 1, statementCacheSize );
+        this.evictor = new Timer( "EntityG connection pool", true );
+        long period = Math.max( 1000, idleTimeout / 2 );
+        evictor.schedule( new TimerTask() {
+
+            @Override
+            public void run() {
+                evict();
+            }
+        }, period, period );
+        fill();
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle and less than <code>maxSize</code> are open. The
+     * connection must be handed back with {@link ConnectionPool#release(java.sql.Connection)} once it is no longer
+     * used, usually in a <code>finally</code> block.
+     * @return A valid connection.
+     * @throws SQLException If a connection could not be opened, the pool is closed, or no connection was released
+     *                      before the borrow timed out.
+     */
+    public Connection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+        while( true ) {
+            Connection connection = null;
+            synchronized( this ) {
+                if( closed ) {
+                    throw new SQLException( "The connection pool is closed." );
+                }
+                IdleConnection next = idle.pollFirst();
+                if( next != null ) {
+                    connection = next.connection;
+                } else if( size < maxSize ) {
+                    //Reserve a place for the new connection, which is opened outside of the lock.
+                    size++;
+                } else {
+                    long wait = deadline - System.currentTimeMillis();
+                    if( wait <= 0 ) {
+                        throw new SQLException( "Timed out waiting for one of " + maxSize + " database connections "
+                                                + "to be released." );
+                    }
+                    try {
+                        wait( wait );
+                    } catch( InterruptedException ie ) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException( "Interrupted while waiting for a database connection." );
+                    }
+                    continue;
+                }
+            }
+            if( connection == null ) {
+                return open();
+            } else if( isValid( connection ) ) {
+                return connection;
+            }
+            discard( connection );
+        }
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool. A connection that was closed by its borrower fails validation
+     * the next time it is borrowed, and is replaced then.
+     * @param connection The borrowed connection, or null (so this can be called even if a borrow failed).
+     */
+    public void release( Connection connection ) {
+        if( connection == null ) {
+            return;
+        }
+        boolean close;
+        synchronized( this ) {
+            close = closed;
+            if( !close ) {
+                idle.addFirst( new IdleConnection( connection ) );
+                notifyAll();
+            }
+        }
+        if( close ) {
+            discard( connection );
+        }
+    }
+
+    /**
+     * Returns the prepared statement of <code>sql</code> on a borrowed connection. The statement is prepared the first
+     * time <code>sql</code> is used on <code>connection</code>, and is cached with the connection after that, so it
+     * must not be closed by the caller (closing its results is enough).
+     * @param connection A connection from {@link ConnectionPool#borrow()}.
+     * @param sql The SQL of the statement, with a <code>?</code> for each parameter.
+     * @return The prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public PreparedStatement prepare( Connection connection, String sql ) throws SQLException {
+        StatementCache cache;
+        synchronized( this ) {
+            cache = statements.get( connection );
+            if( cache == null ) {
+                cache = new StatementCache( connection, statementCacheSize );
+                statements.put( connection, cache );
+            }
+        }
+        return cache.prepare( sql );
+    }
+
+    /**
+     * Closes a borrowed connection instead of handing it back, for example after it failed in a way that leaves it
+     * unusable.
+     * @param connection The borrowed connection.
+     */
+    public void invalidate( Connection connection ) {
+        if( connection != null ) {
+            discard( connection );
+        }
+    }
+
+    /**
+     * Closes every idle connection, and closes borrowed connections as they are released. Borrowing from a closed
+     * pool fails.
+     */
+    public void close() {
+        List<IdleConnection> toClose;
+        synchronized( this ) {
+            closed = true;
+            toClose = new ArrayList<IdleConnection>( idle );
+            idle.clear();
+            notifyAll();
+        }
+        evictor.cancel();
+        for( IdleConnection connection : toClose ) {
+            discard( connection.connection );
+        }
+    }
+
+    /**
+     * Returns true if the pool has not been closed.
+     */
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Returns the number of open connections, both idle and borrowed.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Opens a connection, in the place that was reserved for it.
+     */
+    private Connection open() throws SQLException {
+        try {
+            return DriverManager.getConnection( url, uid, password );
+        } catch( SQLException sqle ) {
+            synchronized( this ) {
+                size--;
+                notifyAll();
+            }
+            throw sqle;
+        }
+    }
+
+    private static boolean isValid( Connection connection ) {
+        try {
+            return connection.isValid( VALIDATION_TIMEOUT );
+        } catch( SQLException sqle ) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes a connection and gives up its place in the pool.
+     */
+    private void discard( Connection connection ) {
+        StatementCache cache;
+        synchronized( this ) {
+            size--;
+            cache = statements.remove( connection );
+            notifyAll();
+        }
+        if( cache != null ) {
+            cache.clear();
+        }
+        try {
+            connection.close();
+        } catch( SQLException sqle ) {
+            //The connection is being thrown away, most likely because it is already broken.
+        }
+    }
+
+    /**
+     * Closes the connections which have been idle for longer than <code>idleTimeout</code>, oldest first, as long as
+     * more than <code>minSize</code> connections are open, and then opens connections until <code>minSize</code> are
+     * open again (in case connections were dropped).
+     */
+    private void evict() {
+        List<Connection> toClose = new ArrayList<Connection>();
+        synchronized( this ) {
+            long oldest = System.currentTimeMillis() - idleTimeout;
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while( it.hasNext() && size - toClose.size() > minSize ) {
+                IdleConnection connection = it.next();
+                if( connection.released > oldest ) {
+                    break;
+                }
+                it.remove();
+                toClose.add( connection.connection );
+            }
+        }
+        for( Connection connection : toClose ) {
+            discard( connection );
+        }
+        fill();
+    }
+
+    /**
+     * Opens connections until at least <code>minSize</code> are open.
+     */
+    private void fill() {
+        while( true ) {
+            synchronized( this ) {
+                if( closed || size >= minSize ) {
+                    return;
+                }
+                size++;
+            }
+            try {
+                release( open() );
+            } catch( SQLException sqle ) {
+                handleException( sqle );
+                return;
+            }
+        }
+    }
+
+    /**
+     * A connection in the idle list, with the time it was released.
+     */
+    private static class IdleConnection {
+
+        private final Connection connection;
+        private final long released;
+
+        private IdleConnection( Connection connection ) {
+            this.connection = connection;
+            this.released = System.currentTimeMillis();
+        }
+    }
+}
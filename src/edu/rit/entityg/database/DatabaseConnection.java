@@ -1,6 +1,6 @@
 /**
  * Database connection. This class provides methods to:
- *  - connect to a database
+ *  - connect to a database, through a pool of connections
  *  - close the database
  *  - execute queries that return result sets
  *  - execute queries that don't return result sets
@@ -11,19 +11,44 @@ package edu.rit.entityg.database;
 
 import java.sql.Statement;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import static edu.rit.entityg.utils.ExceptionUtils.*;
 
 /**
- * Connects to a MySQL database.
+ * Connects to a MySQL database. Connections are kept in a {@link ConnectionPool}: a call that uses the database
+ * borrows a connection with {@link DatabaseConnection#borrow()}, and releases it with
+ * {@link DatabaseConnection#release(java.sql.Connection)} when it is done, so several calls can use the database at
+ * once. The methods which do not take a {@link Connection} all run on a single connection, which is borrowed the first
+ * time one of them is called and kept until the database is closed, so a transaction started with
+ * {@link DatabaseConnection#setAutoCommit(boolean)} stays on one connection.
+ * <p/>The queries of loaders are started with {@link DatabaseConnection#startQuery(java.lang.String, int,
+ * java.lang.String, java.lang.Object[])}, which bounds how much a data source can load the database, and how long a
+ * query can take:
+ * <ul>
+ * <li>At most <code>maxConcurrentQueries</code> queries run at once. A query waits for one of them to finish, for at
+ * most the query timeout.</li>
+ * <li>Every query is cancelled by the driver once it has run for longer than the query timeout.</li>
+ * <li>If hedging is on, a query that takes longer than the 95th percentile of its shape is run a second time on
+ * another connection, and the first of the two to come back is used (see {@link RunningQuery}).</li>
+ * </ul>
  * @author Eric Kisner
  */
 public class DatabaseConnection {
@@ -38,15 +63,74 @@ public class DatabaseConnection {
     private static final String PASSWORD = "";
     private static final String DRIVER = "com.mysql.jdbc.Driver";
     private static final String URL = "jdbc:mysql://";
+    private static final int POOL_MIN_SIZE = 1;
+    private static final int POOL_MAX_SIZE = 8;
+    private static final long POOL_IDLE_TIMEOUT = 5 * 60 * 1000;
+    /**
+     * The number of prepared statements that are cached for each connection.
+     */
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    /**
+     * The fetch size which makes the MySQL driver stream the rows of a result from the database one at a time, instead
+     * of reading the whole result into memory first. Nothing else can be run on the connection until the result is
+     * closed.
+     */
+    public static final int STREAM_RESULTS = Integer.MIN_VALUE;
+    /**
+     * The percentile of the execution time of a query shape after which a query of that shape is hedged.
+     */
+    private static final double HEDGE_PERCENTILE = 95;
+    /**
+     * The number of queries of a shape that have to be timed before its queries are hedged.
+     */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    /**
+     * Connection properties: prepare statements on the server, so a statement that is reused from the
+     * {@link StatementCache} is not parsed and planned again.
+     */
+    private static final String URL_PROPERTIES = "?zeroDateTimeBehavior=convertToNull&useServerPrepStmts=true";
     private String host = HOST;
     private String port = PORT;
     private String database = DATABASE;
     private String uid = UID;
     private String password = PASSWORD;
     /**
-     * Connection object
+     * The pool of connections to the database.
+     */
+    private ConnectionPool pool;
+    /**
+     * The connection that the methods which do not take a connection run on, or null if none of them were called.
      */
     private Connection connect = null;
+    /**
+     * The latencies of the queries that loaders run against the database.
+     */
+    private final QueryStats queryStats = new QueryStats();
+    /**
+     * The number of seconds after which a query is cancelled, or 0 to let queries run for as long as they take.
+     */
+    private volatile int queryTimeout = 0;
+    /**
+     * The permits of the queries that are started with {@link DatabaseConnection#startQuery(java.lang.String, int,
+     * java.lang.String, java.lang.Object[])}, one per query.
+     */
+    private final QueryPermits queryPermits = new QueryPermits();
+    private volatile boolean hedging = false;
+    /**
+     * Starts hedged queries, or null until the first one is scheduled.
+     */
+    private Timer hedger = null;
+    /**
+     * Runs the attempts of the queries that are started with {@link DatabaseConnection#startQuery(java.lang.String,
+     * int, java.lang.String, java.lang.Object[])}, or null until the first one is run. Every attempt holds a query
+     * permit, so there are never more threads than permits.
+     */
+    private ExecutorService queryRunner = null;
+    /**
+     * The queries that were started and are not closed yet.
+     */
+    private final Set<RunningQuery> running =
+            Collections.newSetFromMap( new ConcurrentHashMap<RunningQuery, Boolean>() );
     /**
      * Singleton Design Pattern DatabaseConnection instance.
      */
@@ -55,6 +139,9 @@ public class DatabaseConnection {
      * Default properties for connecting to a database.
      */
     private final static Properties setup = new Properties();
+    private static int poolMinSize = POOL_MIN_SIZE;
+    private static int poolMaxSize = POOL_MAX_SIZE;
+    private static long poolIdleTimeout = POOL_IDLE_TIMEOUT;
 
     static {
         setup.setProperty( "url", URL + HOST + ":" + PORT + "/" + DATABASE + "?zeroDateTimeBehavior=convertToNull" );
@@ -100,6 +187,33 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * Sets the size of the pool of connections. This must be called before the first call to
+     * {@link DatabaseConnection#instance()}.
+     * @param minSize The number of connections that are kept open, even when they are idle.
+     * @param maxSize The maximum number of connections that are open at once.
+     * @param idleTimeout The number of milliseconds after which an idle connection is closed.
+     */
+    public static void setPoolProperties( int minSize, int maxSize, long idleTimeout ) {
+        if( maxSize < 1 ) {
+            handleMessage( "'pool_max_size' must be at least 1. Using the default value: " + POOL_MAX_SIZE );
+            maxSize = POOL_MAX_SIZE;
+        }
+        if( minSize < 0 || minSize > maxSize ) {
+            handleMessage( "'pool_min_size' must be between 0 and " + maxSize + ". Using " + Math.min( POOL_MIN_SIZE,
+                                                                                                       maxSize ) );
+            minSize = Math.min( POOL_MIN_SIZE, maxSize );
+        }
+        if( idleTimeout < 0 ) {
+            handleMessage( "'pool_idle_timeout' must not be negative. Using the default value: "
+                           + POOL_IDLE_TIMEOUT / 1000 );
+            idleTimeout = POOL_IDLE_TIMEOUT;
+        }
+        poolMinSize = minSize;
+        poolMaxSize = maxSize;
+        poolIdleTimeout = idleTimeout;
+    }
+
     /**
      * Singleton-Design Pattern. We do not want to establish a connection to the database each time we transition
      * between different views, we also do not want to have to pass a database connection object throughout the
@@ -133,7 +247,7 @@ public class DatabaseConnection {
             password = props.getProperty( "password" );
         }
 
-        String url = URL + host + ":" + port + "/" + database + "?zeroDateTimeBehavior=convertToNull";
+        String url = URL + host + ":" + port + "/" + database + URL_PROPERTIES;
         connect( DRIVER, url, uid, password );
     }
 
@@ -143,17 +257,15 @@ public class DatabaseConnection {
      * @param pass Password to access the database
      * @param uid User Id to access the database
      * @param url URL to the database
-     * @throws java.sql.SQLException
      */
     private void connect( String driver, String url, String uid, String pass ) {
         try {
             Class.forName( driver );
-            connect = DriverManager.getConnection( url, uid, pass );
         } catch( ClassNotFoundException cnfe ) {
             handleException( cnfe );
-        } catch( SQLException sqle ) {
-            handleException( sqle );
         }
+        pool = new ConnectionPool( url, uid, pass, poolMinSize, poolMaxSize, poolIdleTimeout, STATEMENT_CACHE_SIZE );
+        queryPermits.setLimit( poolMaxSize );
     }
 
     /**
@@ -161,19 +273,211 @@ public class DatabaseConnection {
      * @throws java.sql.SQLException
      */
     public void close() throws SQLException {
-        if( !connect.isClosed() && instance != null ) {
-            connect.close();
+        if( pool.isOpen() && instance != null ) {
+            for( RunningQuery query : running ) {
+                query.cancel();
+            }
+            synchronized( this ) {
+                if( hedger != null ) {
+                    hedger.cancel();
+                    hedger = null;
+                }
+                if( queryRunner != null ) {
+                    queryRunner.shutdown();
+                    queryRunner = null;
+                }
+            }
+            synchronized( this ) {
+                if( connect != null ) {
+                    pool.release( connect );
+                    connect = null;
+                }
+            }
+            pool.close();
             instance = null;
         }
     }
 
+    /**
+     * Returns the latencies of the queries that loaders run against the database. Every query started with
+     * {@link DatabaseConnection#startQuery(java.lang.String, int, java.lang.String, java.lang.Object[])} is timed by
+     * its {@link RunningQuery}; other callers can time their queries with
+     * {@link QueryStats#start(java.lang.String, java.lang.String, java.lang.Object[])}.
+     */
+    public QueryStats getQueryStats() {
+        return queryStats;
+    }
+
+    /**
+     * Sets the number of seconds after which a query is cancelled. This does not apply to streamed results (see
+     * {@link DatabaseConnection#STREAM_RESULTS}), which read a whole table and are expected to take long.
+     * @param seconds The number of seconds, or 0 to let queries run for as long as they take.
+     */
+    public void setQueryTimeout( int seconds ) {
+        this.queryTimeout = Math.max( 0, seconds );
+    }
+
+    /**
+     * Sets the number of queries started with {@link DatabaseConnection#startQuery(java.lang.String, int,
+     * java.lang.String, java.lang.Object[])} that can run at once. Queries which are already running keep their
+     * permits; if the limit is lowered below the number of them, no other query starts until enough of them finished.
+     * @param maxConcurrentQueries The number of queries, or 0 for as many as there can be connections in the pool.
+     */
+    public void setMaxConcurrentQueries( int maxConcurrentQueries ) {
+        queryPermits.setLimit( (maxConcurrentQueries > 0) ? maxConcurrentQueries : poolMaxSize );
+    }
+
+    /**
+     * Turns hedging of slow queries on or off (see {@link RunningQuery}).
+     */
+    public void setHedging( boolean hedging ) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * Starts a query with parameters, on a connection of its own, once fewer than the max number of concurrent queries
+     * are running. The query is timed in the {@link DatabaseConnection#getQueryStats() query stats} under
+     * <code>shape</code>, and is hedged after the 95th percentile of the execution time of <code>shape</code>, if
+     * hedging is on and enough queries of that shape were timed.
+     * @param shape What the query loads (see {@link QueryStats#start(java.lang.String, java.lang.String,
+     *              java.lang.Object[])}).
+     * @param fetchSize The number of rows to fetch from the database at a time, or 0 to let the driver decide.
+     * @param query The query, with a <code>?</code> for each parameter.
+     * @param params The parameters, in the order of the <code>?</code>s.
+     * @return The query, which has come back from the database. It must be closed with
+     *         {@link RunningQuery#close()}.
+     * @throws SQLException If the query failed, or timed out waiting to run.
+     */
+    public RunningQuery startQuery( String shape, int fetchSize, String query, Object... params ) throws SQLException {
+        RunningQuery started = new RunningQuery( this, shape, fetchSize, query, params );
+        running.add( started );
+        long hedgeDelay = -1;
+        QueryStats.Histogram histogram = queryStats.getHistogram( shape, QueryStats.Phase.EXECUTE );
+        if( hedging && histogram != null && histogram.getCount() >= HEDGE_MIN_SAMPLES ) {
+            hedgeDelay = Math.max( 1, histogram.getPercentile( HEDGE_PERCENTILE ) / 1000000 );
+        }
+        try {
+            started.execute( hedgeDelay );
+        } catch( SQLException sqle ) {
+            started.close();
+            throw sqle;
+        }
+        return started;
+    }
+
+    /**
+     * Takes a query permit, waiting for at most the query timeout for one to be freed.
+     */
+    void acquirePermit() throws SQLException {
+        int timeout = queryTimeout;
+        try {
+            if( timeout == 0 ) {
+                queryPermits.acquire();
+            } else if( !queryPermits.tryAcquire( timeout, TimeUnit.SECONDS ) ) {
+                throw new SQLException( "The database is busy: no query finished within " + timeout + " seconds." );
+            }
+        } catch( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new SQLException( "Interrupted while waiting for the database." );
+        }
+    }
+
+    /**
+     * Takes a query permit if one is free right away.
+     */
+    boolean tryAcquirePermit() {
+        return queryPermits.tryAcquire();
+    }
+
+    void releasePermit() {
+        queryPermits.release();
+    }
+
+    synchronized void scheduleHedge( TimerTask task, long delay ) {
+        if( hedger == null ) {
+            hedger = new Timer( "EntityG query hedging", true );
+        }
+        hedger.schedule( task, delay );
+    }
+
+    /**
+     * Runs an attempt at a query on a query thread. If the connection is being closed, the attempt runs on the calling
+     * thread instead, where it fails on the closed pool.
+     */
+    void runAttempt( Runnable attempt ) {
+        synchronized( this ) {
+            if( queryRunner == null ) {
+                queryRunner = Executors.newCachedThreadPool( new ThreadFactory() {
+
+                    public Thread newThread( Runnable r ) {
+                        Thread thread = new Thread( r, "EntityG query" );
+                        thread.setDaemon( true );
+                        return thread;
+                    }
+                } );
+            }
+            try {
+                queryRunner.execute( attempt );
+                return;
+            } catch( RejectedExecutionException ree ) {
+                //The runner was shut down.
+            }
+        }
+        attempt.run();
+    }
+
+    void forget( RunningQuery query ) {
+        running.remove( query );
+    }
+
     /**
      * Returns current open-status of the database connection.
      * @return True if the database connection is open, else false.
      * @throws SQLException
      */
     public boolean isOpen() throws SQLException {
-        return !connect.isClosed();
+        return pool.isOpen();
+    }
+
+    /**
+     * Borrows a connection from the pool. It must be released with
+     * {@link DatabaseConnection#release(java.sql.Connection)} once it is no longer used, usually in a
+     * <code>finally</code> block.
+     * @return A valid connection to the database.
+     * @throws SQLException If no connection could be borrowed.
+     */
+    public Connection borrow() throws SQLException {
+        return pool.borrow();
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool.
+     * @param connection The borrowed connection, or null.
+     */
+    public void release( Connection connection ) {
+        pool.release( connection );
+    }
+
+    /**
+     * Closes a borrowed connection instead of handing it back to the pool.
+     * @param connection The borrowed connection, or null.
+     */
+    public void invalidate( Connection connection ) {
+        pool.invalidate( connection );
+    }
+
+    /**
+     * Returns the connection that the methods which do not take a connection run on, borrowing it if this is the
+     * first time it is needed.
+     */
+    private synchronized Connection connection() throws SQLException {
+        if( connect == null || connect.isClosed() ) {
+            if( connect != null ) {
+                pool.invalidate( connect );
+            }
+            connect = pool.borrow();
+        }
+        return connect;
     }
 
     /**
@@ -185,9 +489,9 @@ public class DatabaseConnection {
      */
     public void setAutoCommit( boolean on ) throws SQLException {
         if( on ) {
-            connect.commit();
+            connection().commit();
         }
-        connect.setAutoCommit( on );
+        connection().setAutoCommit( on );
     }
 
     /**
@@ -195,7 +499,7 @@ public class DatabaseConnection {
      * @throws SQLException
      */
     public void rollback() throws SQLException {
-        connect.rollback();
+        connection().rollback();
     }
 
     /**
@@ -204,7 +508,7 @@ public class DatabaseConnection {
      * @throws java.sql.SQLException
      */
     public void executeNonQuery( String query ) throws SQLException {
-        Statement st = connect.createStatement();
+        Statement st = connection().createStatement();
         st.execute( query );
     }
 
@@ -215,7 +519,7 @@ public class DatabaseConnection {
      * @throws SQLException
      */
     public int executeUpdateQuery( String query ) throws SQLException {
-        Statement st = connect.createStatement();
+        Statement st = connection().createStatement();
         return st.executeUpdate( query );
     }
 
@@ -226,11 +530,92 @@ public class DatabaseConnection {
      * @throws java.sql.SQLException
      */
     public ResultSet executeQuery( String query ) throws SQLException {
-        Statement st = connect.createStatement();
+        return executeQuery( connection(), query );
+    }
+
+    /**
+     * Execute a query that returns a result, on a borrowed connection. The result should be closed with
+     * {@link DatabaseConnection#closeResult(java.sql.ResultSet)} before the connection is released.
+     * @param connection A connection from {@link DatabaseConnection#borrow()}.
+     * @param query the query
+     * @return the ResultSet
+     * @throws java.sql.SQLException
+     */
+    public ResultSet executeQuery( Connection connection, String query ) throws SQLException {
+        Statement st = connection.createStatement();
+        st.setQueryTimeout( queryTimeout );
         ResultSet rs = st.executeQuery( query );
         return rs;
     }
 
+    /**
+     * Execute a query with parameters on a borrowed connection. The query is prepared once per connection and cached
+     * (see {@link ConnectionPool#prepare(java.sql.Connection, java.lang.String)}), and the parameters are bound to
+     * it, so they never need to be quoted or escaped. The result should be closed with
+     * {@link DatabaseConnection#closeResult(java.sql.ResultSet)} before the connection is released.
+     * @param connection A connection from {@link DatabaseConnection#borrow()}.
+     * @param query The query, with a <code>?</code> for each parameter.
+     * @param params The parameters, in the order of the <code>?</code>s.
+     * @return the ResultSet
+     * @throws SQLException
+     */
+    public ResultSet executePrepared( Connection connection, String query, Object... params ) throws SQLException {
+        return executePrepared( connection, 0, query, params );
+    }
+
+    /**
+     * Execute a query with parameters on a borrowed connection, reading its result <code>fetchSize</code> rows at a
+     * time. The result is forward-only and read-only, and should be read row by row, instead of with one of the
+     * <code>getData</code> methods, which hold the whole result in memory.
+     * @param connection A connection from {@link DatabaseConnection#borrow()}.
+     * @param fetchSize The number of rows to fetch from the database at a time, 0 to let the driver decide, or
+     *                  {@link DatabaseConnection#STREAM_RESULTS} to stream the rows.
+     * @param query The query, with a <code>?</code> for each parameter.
+     * @param params The parameters, in the order of the <code>?</code>s.
+     * @return the ResultSet
+     * @throws SQLException
+     * @see DatabaseConnection#executePrepared(java.sql.Connection, java.lang.String, java.lang.Object[])
+     */
+    public ResultSet executePrepared( Connection connection, int fetchSize, String query, Object... params )
+            throws SQLException {
+        return prepareQuery( connection, fetchSize, query, params ).executeQuery();
+    }
+
+    /**
+     * Returns the cached prepared statement of a query, with its fetch size, timeout and parameters set.
+     */
+    PreparedStatement prepareQuery( Connection connection, int fetchSize, String query, Object... params )
+            throws SQLException {
+        PreparedStatement st = pool.prepare( connection, query );
+        st.setFetchSize( fetchSize );
+        st.setQueryTimeout( (fetchSize == STREAM_RESULTS) ? 0 : queryTimeout );
+        st.clearParameters();
+        for( int i = 0; i < params.length; i++ ) {
+            st.setObject( i + 1, params[i] );
+        }
+        return st;
+    }
+
+    /**
+     * Closes a result, and the statement it came from unless that is a cached prepared statement (see
+     * {@link DatabaseConnection#executePrepared(java.sql.Connection, java.lang.String, java.lang.Object[])}).
+     * @param rs The result, or null.
+     */
+    public static void closeResult( ResultSet rs ) {
+        if( rs == null ) {
+            return;
+        }
+        try {
+            Statement st = rs.getStatement();
+            rs.close();
+            if( st != null && !(st instanceof PreparedStatement) ) {
+                st.close();
+            }
+        } catch( SQLException sqle ) {
+            handleException( sqle );
+        }
+    }
+
     /**
      * Create a new prepared statement that allows auto-generated keys to be returned.
      * @param query
@@ -238,7 +623,7 @@ public class DatabaseConnection {
      * @throws java.sql.SQLException
      */
     public PreparedStatement newPreparedStatement( String query ) throws SQLException {
-        return connect.prepareStatement( query, Statement.RETURN_GENERATED_KEYS );
+        return connection().prepareStatement( query, Statement.RETURN_GENERATED_KEYS );
     }
 
     /**
@@ -360,4 +745,57 @@ public class DatabaseConnection {
         }
         return ret;
     }
+
+    /**
+     * Gets a single row's data, the same as
+     * {@link DatabaseConnection#getSingleRowFromColumnHeaders(java.sql.ResultSet, java.util.List)}, but with the
+     * columns given by index, so callers that read the same query many times can look the column names up once (with
+     * {@link ResultSet#findColumn(java.lang.String)}) instead of on every row.
+     * @param rs The {@link ResultSet} object we want to retrieve data from.
+     * @param columns The (one-based) indexes of the columns within <code>rs</code>.
+     * @return A list of values after retrieving data from <code>rs</code> or an empty list of <code>rs</code> had no
+     *         results. <br/><b>Note:</b> If a column was <code>null</code> or had a value of "null", that column's
+     *         value will not be returned in this list; instead, it will be skipped.
+     * @throws SQLException
+     */
+    public ArrayList<String> getSingleRowFromColumns( ResultSet rs, int[] columns ) throws SQLException {
+        ArrayList<String> ret = new ArrayList<String>( columns.length );
+        if( !rs.next() ) {
+            return ret;
+        }
+        for( int column : columns ) {
+            String toAdd = rs.getString( column );
+            if( rs.wasNull() || toAdd.equalsIgnoreCase( "null" ) ) {
+                continue;
+            }
+            ret.add( toAdd );
+        }
+        return ret;
+    }
+
+    /**
+     * A fair semaphore whose number of permits can be changed while permits are taken.
+     */
+    private static class QueryPermits extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+        private int limit = 0;
+
+        private QueryPermits() {
+            super( 0, true );
+        }
+
+        /**
+         * Changes the number of permits to <code>limit</code>, by freeing or taking away the difference. Taking permits
+         * away can leave fewer than none available, until enough of the taken permits are released.
+         */
+        private synchronized void setLimit( int limit ) {
+            if( limit > this.limit ) {
+                release( limit - this.limit );
+            } else if( limit < this.limit ) {
+                reducePermits( this.limit - limit );
+            }
+            this.limit = limit;
+        }
+    }
 }
@@ -0,0 +1,269 @@
+package edu.rit.entityg.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static edu.rit.entityg.utils.ExceptionUtils.*;
+
+/**
+ * Latency histograms of the queries that are run against the database, by query shape (what the query loads, for
+ * example "center page: state") and by phase:
+ * <ul>
+ * <li>{@link Phase#EXECUTE}: running the query, until the first results come back from the database.</li>
+ * <li>{@link Phase#MATERIALIZE}: reading the values out of the results.</li>
+ * <li>{@link Phase#BUILD}: building the tree of nodes from the values.</li>
+ * </ul>
+ * A query is timed with a {@link Timing} from {@link QueryStats#start(java.lang.String, java.lang.String,
+ * java.lang.Object[])}. If a slow query threshold is set, every query which takes longer than that is logged, with
+ * its SQL, the parameters that were bound to it and the time of each phase, so the queries that need an index can be
+ * found from the log.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class QueryStats {
+
+    /**
+     * The phases of a query.
+     */
+    public enum Phase {
+
+        EXECUTE, MATERIALIZE, BUILD
+    }
+    /**
+     * The histograms of each phase, by query shape.
+     */
+    private final ConcurrentHashMap<String, Histogram[]> histograms = new ConcurrentHashMap<String, Histogram[]>();
+    /**
+     * The number of nanoseconds after which a query is logged, or 0 if no queries are logged.
+     */
+    private volatile long slowQueryThreshold = 0;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    /**
+     * Sets the time after which a query is logged as a slow query.
+     * @param millis The number of milliseconds, or 0 to log no queries.
+     */
+    public void setSlowQueryThreshold( long millis ) {
+        this.slowQueryThreshold = Math.max( 0, millis ) * 1000000L;
+    }
+
+    /**
+     * Starts timing a query.
+     * @param shape What the query loads. Queries with the same shape are counted in the same histograms, so this
+     *              should not contain any parameters.
+     * @param sql The SQL of the query, for the slow query log.
+     * @param params The parameters bound to the query, for the slow query log.
+     * @return The timing of the query, whose phases are marked with {@link Timing#lap(Phase)}.
+     */
+    public Timing start( String shape, String sql, Object... params ) {
+        return new Timing( shape, sql, params );
+    }
+
+    /**
+     * Counts a query that was hedged (see {@link RunningQuery}).
+     */
+    void recordHedge() {
+        hedges.incrementAndGet();
+    }
+
+    /**
+     * Counts a hedged query that came back before the query it hedged.
+     */
+    void recordHedgeWon() {
+        hedgesWon.incrementAndGet();
+    }
+
+    /**
+     * Returns the histogram of a phase of a query shape, or null if no query of that shape has been timed.
+     */
+    public Histogram getHistogram( String shape, Phase phase ) {
+        Histogram[] phases = histograms.get( shape );
+        return (phases == null) ? null : phases[phase.ordinal()];
+    }
+
+    /**
+     * Returns every query shape that has been timed, in order.
+     */
+    public List<String> getShapes() {
+        List<String> shapes = new ArrayList<String>( histograms.keySet() );
+        Collections.sort( shapes );
+        return shapes;
+    }
+
+    /**
+     * Returns the count, mean and percentiles of every phase of every query shape, one line each.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder( "Query latencies (ms):" );
+        if( hedges.get() > 0 ) {
+            report.append( " (" ).append( hedges.get() ).append( " queries hedged, " ).append( hedgesWon.get() )
+                    .append( " hedges came back first)" );
+        }
+        for( String shape : getShapes() ) {
+            Histogram[] phases = histograms.get( shape );
+            for( Phase phase : Phase.values() ) {
+                if( phases[phase.ordinal()].getCount() > 0 ) {
+                    report.append( System.getProperty( "line.separator" ) ).append( shape ).append( " [" )
+                            .append( phase.name().toLowerCase() ).append( "] " ).append( phases[phase.ordinal()] );
+                }
+            }
+        }
+        return report.toString();
+    }
+
+    private Histogram[] histograms( String shape ) {
+        Histogram[] phases = histograms.get( shape );
+        if( phases == null ) {
+            phases = new Histogram[Phase.values().length];
+            for( int i = 0; i < phases.length; i++ ) {
+                phases[i] = new Histogram();
+            }
+            Histogram[] existing = histograms.putIfAbsent( shape, phases );
+            if( existing != null ) {
+                phases = existing;
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * The timing of one query. The time since the last lap (or the start) is added to a phase with
+     * {@link Timing#lap(Phase)}, so a phase can be lapped several times, for example once per row when rows are read
+     * and built one at a time. {@link Timing#finish()} records the phases, and should be called in a
+     * <code>finally</code> block. A timing is only used by the thread which started it.
+     */
+    public class Timing {
+
+        private final String shape;
+        private final String sql;
+        private final Object[] params;
+        private final long start = System.nanoTime();
+        private long last = start;
+        private final long[] nanos = new long[Phase.values().length];
+        private final boolean[] lapped = new boolean[Phase.values().length];
+
+        private Timing( String shape, String sql, Object[] params ) {
+            this.shape = shape;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        /**
+         * Adds the time since the last lap to <code>phase</code>.
+         */
+        public void lap( Phase phase ) {
+            long now = System.nanoTime();
+            nanos[phase.ordinal()] += now - last;
+            lapped[phase.ordinal()] = true;
+            last = now;
+        }
+
+        /**
+         * Records the time of every phase that was lapped, and logs the query if it was slow.
+         */
+        public void finish() {
+            Histogram[] phases = histograms( shape );
+            for( int i = 0; i < nanos.length; i++ ) {
+                if( lapped[i] ) {
+                    phases[i].record( nanos[i] );
+                }
+            }
+            long total = System.nanoTime() - start;
+            long threshold = slowQueryThreshold;
+            if( threshold > 0 && total >= threshold ) {
+                handleMessage( "Slow query (" + millis( total ) + "ms: execute " + millis( nanos[0] )
+                               + "ms, materialize " + millis( nanos[1] ) + "ms, build " + millis( nanos[2] )
+                               + "ms) " + shape + ": " + sql + " with " + Arrays.toString( params ) );
+            }
+        }
+    }
+
+    private static String millis( long nanos ) {
+        return String.format( "%.3f", nanos / 1000000.0 );
+    }
+
+    /**
+     * A histogram of latencies, with one bucket per power of two microseconds, so it takes a fixed amount of memory
+     * however many latencies are recorded. Percentiles are the upper bound of the bucket they fall in.
+     */
+    public static class Histogram {
+
+        private static final int BUCKETS = 40;
+        private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records a latency.
+         * @param nanos The latency, in nanoseconds.
+         */
+        public void record( long nanos ) {
+            long micros = Math.max( 0, nanos / 1000 );
+            int bucket = Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( micros ) );
+            buckets.incrementAndGet( bucket );
+            count.incrementAndGet();
+            total.addAndGet( nanos );
+            long previous;
+            while( nanos > (previous = max.get()) && !max.compareAndSet( previous, nanos ) ) {
+                //Another thread raised the max first; try again against its value.
+            }
+        }
+
+        /**
+         * Returns the number of latencies recorded.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Returns the mean latency, in nanoseconds.
+         */
+        public long getMean() {
+            long n = count.get();
+            return (n == 0) ? 0 : total.get() / n;
+        }
+
+        /**
+         * Returns the largest latency, in nanoseconds.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns the latency that <code>percentile</code> percent of the latencies are at most, in nanoseconds.
+         * @param percentile A percentile between 0 and 100.
+         */
+        public long getPercentile( double percentile ) {
+            long n = count.get();
+            if( n == 0 ) {
+                return 0;
+            }
+            long rank = (long) Math.ceil( n * percentile / 100.0 );
+            long seen = 0;
+            for( int i = 0; i < BUCKETS; i++ ) {
+                seen += buckets.get( i );
+                if( seen >= rank ) {
+                    //Bucket i holds latencies below 2^i microseconds.
+                    return Math.min( (1L << i) * 1000, max.get() );
+                }
+            }
+            return max.get();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + " mean=" + millis( getMean() ) + " p50=" + millis( getPercentile( 50 ) )
+                   + " p95=" + millis( getPercentile( 95 ) ) + " p99=" + millis( getPercentile( 99 ) ) + " max="
+                   + millis( getMax() );
+        }
+    }
+}
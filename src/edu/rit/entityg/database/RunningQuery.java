@@ -0,0 +1,250 @@
+package edu.rit.entityg.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.TimerTask;
+
+/**
+ * A query which was started with {@link DatabaseConnection#startQuery(java.lang.String, int, java.lang.String,
+ * java.lang.Object[])}, and whose result is read with {@link RunningQuery#getResult()}. The query holds one of the data
+ * source's query permits, and a borrowed connection, until {@link RunningQuery#close()} is called, which should be in
+ * a <code>finally</code> block.
+ * <p/>Every attempt at the query runs on the query threads of the data source (see
+ * {@link DatabaseConnection#runAttempt(java.lang.Runnable)}), and the caller waits for the first one that comes back.
+ * If hedging is on, and the query has not come back after the hedge delay (the 95th percentile of the time its shape
+ * usually takes), the same query is run again on another connection, as long as a permit is free right away. The
+ * first of the two that comes back is used, and the other one is cancelled with {@link java.sql.Statement#cancel()}
+ * on the thread of the winner, so the caller does not wait for the cancel. A connection whose statement was cancelled is closed instead of handed back to
+ * the pool, so a late cancel can never hit the next query on it.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class RunningQuery {
+
+    private final DatabaseConnection conn;
+    private final int fetchSize;
+    private final String sql;
+    private final Object[] params;
+    private final QueryStats.Timing timing;
+    private final Attempt primary;
+    private Attempt hedge = null;
+    /**
+     * The attempt whose result is used, or null until one of them comes back.
+     */
+    private Attempt winner = null;
+    private TimerTask hedgeTask = null;
+    private boolean closed = false;
+
+    RunningQuery( DatabaseConnection conn, String shape, int fetchSize, String sql, Object[] params ) {
+        this.conn = conn;
+        this.fetchSize = fetchSize;
+        this.sql = sql;
+        this.params = params;
+        this.timing = conn.getQueryStats().start( shape, sql, params );
+        this.primary = new Attempt();
+    }
+
+    /**
+     * Runs the query, starts a hedged query after <code>hedgeDelay</code> milliseconds if it has not come back by then,
+     * and waits until one of them comes back, or every attempt failed.
+     * @param hedgeDelay The number of milliseconds to wait before hedging, or a negative number to never hedge.
+     * @throws SQLException If no attempt at the query succeeded.
+     */
+    void execute( long hedgeDelay ) throws SQLException {
+        conn.acquirePermit();
+        primary.permit = true;
+        if( hedgeDelay >= 0 ) {
+            synchronized( this ) {
+                hedgeTask = new TimerTask() {
+
+                    @Override
+                    public void run() {
+                        hedge();
+                    }
+                };
+            }
+            conn.scheduleHedge( hedgeTask, hedgeDelay );
+        }
+        conn.runAttempt( primary );
+        boolean failed;
+        synchronized( this ) {
+            while( winner == null && !(primary.done && (hedge == null || hedge.done)) ) {
+                try {
+                    wait();
+                } catch( InterruptedException ie ) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if( hedgeTask != null ) {
+                hedgeTask.cancel();
+            }
+            failed = winner == null;
+        }
+        if( failed ) {
+            cancel();
+            throw (primary.error != null) ? primary.error
+                  : new SQLException( "Interrupted while waiting for the query: " + sql );
+        }
+        timing.lap( QueryStats.Phase.EXECUTE );
+    }
+
+    /**
+     * Starts the hedged query, unless the query already came back or every permit is in use.
+     */
+    private void hedge() {
+        Attempt attempt;
+        synchronized( this ) {
+            if( winner != null || primary.done || closed || !conn.tryAcquirePermit() ) {
+                return;
+            }
+            attempt = new Attempt();
+            attempt.permit = true;
+            hedge = attempt;
+        }
+        conn.getQueryStats().recordHedge();
+        conn.runAttempt( attempt );
+    }
+
+    /**
+     * Returns the result of the query. It must not be closed by the caller; {@link RunningQuery#close()} closes it.
+     */
+    public ResultSet getResult() {
+        return winner.rs;
+    }
+
+    /**
+     * Returns the timing of the query, whose {@link QueryStats.Phase#EXECUTE} phase has already been lapped.
+     */
+    public QueryStats.Timing getTiming() {
+        return timing;
+    }
+
+    /**
+     * Cancels every attempt at the query which is still running, on the database.
+     */
+    public void cancel() {
+        Attempt[] attempts;
+        synchronized( this ) {
+            attempts = new Attempt[]{ primary, hedge };
+        }
+        for( Attempt attempt : attempts ) {
+            if( attempt != null ) {
+                attempt.cancel();
+            }
+        }
+    }
+
+    /**
+     * Closes the result, hands the connection back (or closes it, if it was cancelled), frees the permit of the query,
+     * and records its timing.
+     */
+    public void close() {
+        Attempt used;
+        synchronized( this ) {
+            if( closed ) {
+                return;
+            }
+            closed = true;
+            used = winner;
+        }
+        if( used != null ) {
+            used.discard();
+        }
+        conn.forget( this );
+        timing.finish();
+    }
+
+    /**
+     * One run of the query, on its own connection.
+     */
+    private class Attempt implements Runnable {
+
+        private boolean permit = false;
+        private Connection connection = null;
+        private PreparedStatement statement = null;
+        private ResultSet rs = null;
+        private SQLException error = null;
+        private boolean done = false;
+        private boolean cancelled = false;
+
+        public void run() {
+            try {
+                connection = conn.borrow();
+                PreparedStatement prepared = conn.prepareQuery( connection, fetchSize, sql, params );
+                synchronized( RunningQuery.this ) {
+                    if( winner != null || cancelled ) {
+                        throw new SQLException( "The query was cancelled: " + sql );
+                    }
+                    statement = prepared;
+                }
+                rs = prepared.executeQuery();
+            } catch( SQLException sqle ) {
+                error = sqle;
+            }
+            boolean won;
+            synchronized( RunningQuery.this ) {
+                done = true;
+                won = error == null && winner == null && !cancelled;
+                if( won ) {
+                    winner = this;
+                }
+                RunningQuery.this.notifyAll();
+            }
+            if( won ) {
+                Attempt other = (this == primary) ? hedge : primary;
+                if( other != null ) {
+                    other.cancel();
+                }
+                if( this != primary ) {
+                    conn.getQueryStats().recordHedgeWon();
+                }
+            } else {
+                discard();
+            }
+        }
+
+        /**
+         * Cancels the statement of the attempt if it is running.
+         */
+        private void cancel() {
+            PreparedStatement running;
+            synchronized( RunningQuery.this ) {
+                if( cancelled || this == winner ) {
+                    return;
+                }
+                cancelled = true;
+                running = done ? null : statement;
+            }
+            if( running != null ) {
+                try {
+                    running.cancel();
+                } catch( SQLException sqle ) {
+                    //The statement finished or failed already.
+                }
+            }
+        }
+
+        /**
+         * Closes the result, hands the connection back or closes it, and frees the permit.
+         */
+        private void discard() {
+            DatabaseConnection.closeResult( rs );
+            boolean invalid;
+            synchronized( RunningQuery.this ) {
+                invalid = cancelled && statement != null;
+            }
+            if( invalid ) {
+                conn.invalidate( connection );
+            } else {
+                conn.release( connection );
+            }
+            if( permit ) {
+                permit = false;
+                conn.releasePermit();
+            }
+        }
+    }
+}
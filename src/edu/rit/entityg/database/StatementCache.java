@@ -0,0 +1,69 @@
+package edu.rit.entityg.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The prepared statements of a single connection, by SQL, in least-recently-used order. A statement is only prepared
+ * the first time its SQL is used on the connection, and is reused from then on, so the database parses and plans
+ * each query shape once per connection instead of on every query. Once more than <code>capacity</code> statements
+ * are cached, the least recently used one is closed.
+ * <p/>A cache belongs to a connection, which is only ever used by one borrower at a time, so it is not thread-safe.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+class StatementCache {
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    StatementCache( Connection connection, final int capacity ) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>( 16, 0.75f, true ) {
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, PreparedStatement> eldest ) {
+                if( size() <= capacity ) {
+                    return false;
+                }
+                close( eldest.getValue() );
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the prepared statement of <code>sql</code>, preparing it if it is not cached. The statement must not be
+     * closed by the caller.
+     */
+    PreparedStatement prepare( String sql ) throws SQLException {
+        PreparedStatement statement = statements.get( sql );
+        if( statement == null || statement.isClosed() ) {
+            statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+            statements.put( sql, statement );
+        }
+        return statement;
+    }
+
+    /**
+     * Closes every cached statement.
+     */
+    void clear() {
+        for( PreparedStatement statement : statements.values() ) {
+            close( statement );
+        }
+        statements.clear();
+    }
+
+    private static void close( PreparedStatement statement ) {
+        try {
+            statement.close();
+        } catch( SQLException sqle ) {
+            //The statement is being thrown away.
+        }
+    }
+}
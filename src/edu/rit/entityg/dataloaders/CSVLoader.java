@@ -1,12 +1,20 @@
 package edu.rit.entityg.dataloaders;
 
+import edu.rit.entityg.csv.CSVAppendListener;
+import edu.rit.entityg.csv.CSVColumnStore;
 import edu.rit.entityg.csv.CSVConnection;
+import edu.rit.entityg.csv.CSVIndex;
+import edu.rit.entityg.csv.CSVParallelScanner;
 import edu.rit.entityg.csv.TableRow;
 import edu.rit.entityg.exceptions.BadSetupException;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
 import edu.rit.entityg.utils.ExceptionUtils;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implements {@link DataSourceLoader} for a {@link DataSourceType#CSV} data source. The following
@@ -19,15 +27,62 @@ import java.util.HashMap;
  * <br/>
  * <li>The information nodes column numbers.</li>
  * </ul>
+ * If {@link CSVLoader#setUseIndex(boolean)} is set, lookups are answered from a {@link CSVIndex} of the center node
+ * column and information node columns, instead of scanning the whole file on every click. If
+ * {@link CSVLoader#setUseColumnStore(boolean)} is set, those columns are also loaded into a {@link CSVColumnStore} in
+ * the background, which then answers all lookups from memory. Otherwise, if {@link CSVLoader#setParallelScan(boolean)}
+ * is set, the file is scanned on several threads with a {@link CSVParallelScanner}.
+ * <p/>If the connection is in {@link CSVConnection#isFollowMode() follow mode}, rows that are appended to the file
+ * are added to the index and the column store as they are appended, and center nodes for them are handed to the
+ * {@link ChildrenListener} for every information node that was already loaded. The rows that were added to the index
+ * are written to its sidecar file when the loader is closed.
+ * <p/>Lookups share the connection's position in the file, so they are synchronized, and a lookup on another thread
+ * (for example a {@link NodePrefetcher}) waits for the one in progress.
  * @date Jun 4, 2011
  * @author Eric Kisner
  */
-public class CSVLoader implements DataSourceLoader {
+public class CSVLoader implements DataSourceLoader, CSVAppendListener {
 
     private CSVConnection conn;
     private HashMap<Integer, String> columnToColumnNameMapping;
     private int centerNodeColumnNumber;
     private int[] informationNodeColumnNumbers;
+    private boolean useIndex = false;
+    /**
+     * The index of the CSV file, or null if lookups should scan the file.
+     */
+    private CSVIndex index;
+    private boolean useColumnStore = false;
+    /**
+     * The in-memory column store of the CSV file. This is null until the store has been built in the background, and
+     * lookups use <code>index</code> or scan the file until then.
+     */
+    private volatile CSVColumnStore columnStore;
+    /**
+     * Scans the file on several threads, or null if the file should be scanned on the calling thread.
+     */
+    private CSVParallelScanner parallelScanner;
+    /**
+     * Is told about center nodes of appended rows, or null if no one is listening.
+     */
+    private ChildrenListener childrenListener;
+    /**
+     * The followed information nodes, by column number and data, so center nodes of appended rows can be attached to
+     * them. This is only kept in follow mode, and has its own lock, so nodes can be followed while a load holds the
+     * lock of the loader.
+     */
+    private final HashMap<Integer, HashMap<String, List<GenericTreeNode<String>>>> followedInformationNodes =
+            new HashMap<Integer, HashMap<String, List<GenericTreeNode<String>>>>();
+    /**
+     * The center nodes of the rows of the current append, by the information node they belong to. Nodes are compared
+     * by identity, since a node's hash code changes when children are added to it.
+     */
+    private final IdentityHashMap<GenericTreeNode<String>, List<GenericTreeNode<String>>> foundChildren =
+            new IdentityHashMap<GenericTreeNode<String>, List<GenericTreeNode<String>>>();
+    /**
+     * The end of the last append, or -1 if nothing was appended.
+     */
+    private long appendedEnd = -1;
 
     /**
      * Default constructor.
@@ -39,9 +94,59 @@ public class CSVLoader implements DataSourceLoader {
     }
 
     public void close() throws IOException {
+        conn.removeAppendListener( this );
+        if( index != null ) {
+            synchronized( this ) {
+                if( appendedEnd >= 0 ) {
+                    index.flush( appendedEnd );
+                }
+            }
+            index.close();
+        }
         conn.close();
     }
 
+    /**
+     * Sets the listener which is told about center nodes of rows that are appended to a followed file.
+     * @param childrenListener The listener, or null.
+     */
+    public void setChildrenListener( ChildrenListener childrenListener ) {
+        this.childrenListener = childrenListener;
+    }
+
+    /**
+     * Sets whether lookups should use a {@link CSVIndex} sidecar file. The index is opened (or built, if it does not
+     * exist or is out of date) by {@link CSVLoader#loadAbsoluteParent(java.lang.Object)}.
+     * @param useIndex True if lookups should use an index.
+     */
+    public void setUseIndex( boolean useIndex ) {
+        this.useIndex = useIndex;
+    }
+
+    /**
+     * Sets whether the file should be scanned on several threads when there is no index or column store to answer a
+     * lookup. This is ignored for a file that can't be read at an offset without reading it from the start (see
+     * {@link CSVConnection#isRandomAccess()}), since every chunk would have to read the file from the start.
+     * @param parallelScan True if scans should use a {@link CSVParallelScanner}.
+     */
+    public void setParallelScan( boolean parallelScan ) {
+        if( parallelScan && !conn.isRandomAccess() ) {
+            ExceptionUtils.handleMessage( conn.getFile() + " can only be read from the start, so it will not be "
+                                          + "scanned in parallel." );
+            parallelScan = false;
+        }
+        this.parallelScanner = parallelScan ? new CSVParallelScanner( conn ) : null;
+    }
+
+    /**
+     * Sets whether lookups should use a {@link CSVColumnStore}. The store is built on a background thread which is
+     * started by {@link CSVLoader#loadAbsoluteParent(java.lang.Object)}.
+     * @param useColumnStore True if lookups should use an in-memory column store.
+     */
+    public void setUseColumnStore( boolean useColumnStore ) {
+        this.useColumnStore = useColumnStore;
+    }
+
     /**
      * Sets the number of the center node column.
      * @param columnNumber The number that represents a column in the CSV file, which relates to center nodes.
@@ -88,6 +193,10 @@ public class CSVLoader implements DataSourceLoader {
                                          + s + "'." );
         }
 
+        if( useIndex ) {
+            openIndex();
+        }
+
         try {
             //Get the first CSV row of actual data (not the header row)
             TableRow firstLine = conn.getLine();
@@ -100,6 +209,12 @@ public class CSVLoader implements DataSourceLoader {
                 rootParent.addChild( new GenericTreeNode<String>( false, firstLine.getColumn( infoNum ),
                                                                   columnToColumnNameMapping.get( infoNum ) ) );
             }
+            if( useColumnStore ) {
+                buildColumnStore();
+            }
+            if( conn.isFollowMode() ) {
+                conn.addAppendListener( this );
+            }
             return rootParent;
         } catch( IOException ioe ) {
             throw new BadSetupException( "There was an error trying to receieve data from the csv file." );
@@ -109,18 +224,46 @@ public class CSVLoader implements DataSourceLoader {
     /**
      * @param data The data that is contained in <code>parent</code>. <code>parent</code> will be a center node.
      */
-    public GenericTreeNode<String> loadInformationNodes( GenericTreeNode<String> parent, Object... data )
-            throws BadSetupException {
+    public synchronized GenericTreeNode<String> loadInformationNodes( GenericTreeNode<String> parent,
+                                                                      Object... data ) throws BadSetupException {
         String centerNodeData = (String) data[0];
 
+        CSVColumnStore store = columnStore;
+        if( store != null ) {
+            int[] rows = store.rowsWith( centerNodeColumnNumber, centerNodeData );
+            if( rows.length == 0 ) {
+                ExceptionUtils.handleMessage( "No information for center node: " + parent.toString() );
+                return parent;
+            }
+            for( int i = 0; i < informationNodeColumnNumbers.length; i++ ) {
+                int infoNum = informationNodeColumnNumbers[i];
+                String value = store.getValue( infoNum, rows[0] );
+                if( value != null ) {
+                    parent.addChild( new GenericTreeNode<String>( false, value,
+                                                                  columnToColumnNameMapping.get( infoNum ) ) );
+                }
+            }
+            return parent;
+        }
+
         try {
             TableRow row = null;
-            while( (row = conn.getLine()) != null ) {
-                if( row.getColumn( centerNodeColumnNumber ).equals( centerNodeData ) ) {
-                    break;
-                } else {
-                    row = null;
+            if( index != null || parallelScanner != null ) {
+                long[] rows = (index != null) ? index.lookup( centerNodeColumnNumber, centerNodeData, -1, 1 )
+                              : parallelScanner.find( centerNodeColumnNumber, centerNodeData, 1 );
+                if( rows.length > 0 ) {
+                    row = conn.getLineAt( rows[0] );
+                }
+            } else {
+                conn.reset();
+                while( (row = conn.getLine()) != null ) {
+                    if( row.columnEquals( centerNodeColumnNumber, centerNodeData ) ) {
+                        break;
+                    } else {
+                        row = null;
+                    }
                 }
+                conn.reset();
             }
 
             if( row != null ) {
@@ -132,7 +275,6 @@ public class CSVLoader implements DataSourceLoader {
             } else {
                 ExceptionUtils.handleMessage( "No information for center node: " + parent.toString() );
             }
-            conn.reset();
             return parent;
         } catch( IOException ioe ) {
             throw new BadSetupException( "There was a problem retrieving information from the csv file." );
@@ -140,34 +282,381 @@ public class CSVLoader implements DataSourceLoader {
     }
 
     /**
+     * Loads at most <code>maxNodes</code> center nodes, and stops reading the file as soon as one more than that is
+     * found. If there are more, the byte offset of the last row that was loaded is kept as <code>parent</code>'s
+     * continuation, so loading more center nodes of <code>parent</code> continues after that row instead of reading
+     * the file from the start again.
      * @param data Must be two strings: The data of the information node that the user clicked on, and that piece of
      *             data's column name.
      */
-    public GenericTreeNode<String> loadCenterNodes( GenericTreeNode<String> parent, int maxNodes, Object... data )
-            throws BadSetupException {
+    public synchronized GenericTreeNode<String> loadCenterNodes( GenericTreeNode<String> parent, int maxNodes,
+                                                                 Object... data ) throws BadSetupException {
         String informationNodeData = (String) data[0];
         String informationColumnHeader = (String) data[1];
 
-        int column = -1;
-        for( int i = 0; i < informationNodeColumnNumbers.length; i++ ) {
-            if( columnToColumnNameMapping.get( informationNodeColumnNumbers[i] ).equals( informationColumnHeader ) ) {
-                column = informationNodeColumnNumbers[i];
-            }
+        int column = getInformationColumn( informationColumnHeader );
+        if( column == -1 ) {
+            //Not an information node column, so no row has center nodes for it.
+            parent.setContinuation( null );
+            return parent;
+        }
+        //The offset of the last row that was already loaded, or -1 if nothing has been loaded yet.
+        long after = (parent.getContinuation() instanceof Long) ? (Long) parent.getContinuation() : -1;
+        long last = after;
+        int added = 0;
+        boolean more = false;
+        String centerHeader = columnToColumnNameMapping.get( centerNodeColumnNumber );
+
+        //One more matching row than is needed is looked for, so the continuation is only kept if there really are
+        //more center nodes to load. Rows which are too short to have a center node are skipped, so if a batch of rows
+        //didn't have enough center nodes, the rows after it are looked up as well.
+        CSVColumnStore store = columnStore;
+        if( store != null ) {
+            int[] rows;
+            do {
+                int wanted = maxNodes - added + 1;
+                rows = store.rowsWith( column, informationNodeData, last, wanted );
+                for( int i = 0; i < rows.length; i++ ) {
+                    String center = store.getValue( centerNodeColumnNumber, rows[i] );
+                    if( center != null ) {
+                        if( added == maxNodes ) {
+                            more = true;
+                            break;
+                        }
+                        parent.addChild( new GenericTreeNode<String>( true, center, centerHeader ) );
+                        added++;
+                    }
+                    last = store.getRowOffset( rows[i] );
+                }
+                if( rows.length < wanted ) {
+                    break;
+                }
+            } while( !more );
+            setContinuation( parent, more, last );
+            return parent;
         }
 
         try {
             TableRow row = null;
+            if( index != null || parallelScanner != null ) {
+                long[] rows;
+                do {
+                    int wanted = maxNodes - added + 1;
+                    rows = (index != null)
+                           ? index.lookup( column, informationNodeData, last, wanted )
+                           : parallelScanner.find( column, informationNodeData, wanted, last );
+                    for( int i = 0; i < rows.length; i++ ) {
+                        row = conn.getLineAt( rows[i] );
+                        if( centerNodeColumnNumber < row.getColumnCount() ) {
+                            if( added == maxNodes ) {
+                                more = true;
+                                break;
+                            }
+                            parent.addChild( new GenericTreeNode<String>( true, row.getColumn( centerNodeColumnNumber ),
+                                                                          centerHeader ) );
+                            added++;
+                        }
+                        last = rows[i];
+                    }
+                    if( rows.length < wanted ) {
+                        break;
+                    }
+                } while( !more );
+                setContinuation( parent, more, last );
+                return parent;
+            }
+            if( after >= 0 ) {
+                //Skip the last row that was loaded.
+                conn.seek( after );
+                conn.getLine();
+            } else {
+                conn.reset();
+            }
             while( (row = conn.getLine()) != null ) {
-                if( row.getColumn( column ).equals( informationNodeData ) ) {
-                    parent.addChild(
-                            new GenericTreeNode<String>( true, row.getColumn( centerNodeColumnNumber ),
-                                                         columnToColumnNameMapping.get( centerNodeColumnNumber ) ) );
+                int columnCount = row.getColumnCount();
+                if( column >= 0 && column < columnCount && centerNodeColumnNumber < columnCount
+                    && row.columnEquals( column, informationNodeData ) ) {
+                    if( added == maxNodes ) {
+                        more = true;
+                        break;
+                    }
+                    parent.addChild( new GenericTreeNode<String>( true, row.getColumn( centerNodeColumnNumber ),
+                                                                  centerHeader ) );
+                    last = conn.getLineOffset();
+                    added++;
                 }
             }
             conn.reset();
+            setContinuation( parent, more, last );
             return parent;
         } catch( IOException ioe ) {
             throw new BadSetupException( "There was a problem retrieving information from the csv file." );
         }
     }
+
+    /**
+     * Loads the information nodes of all <code>parents</code>. With a column store, an index or a parallel scanner,
+     * each lookup is already cheap, so the parents are loaded one after the other. Otherwise the file is scanned once
+     * for all of them, instead of once per parent, and the scan stops as soon as every parent has been found.
+     */
+    public synchronized List<GenericTreeNode<String>> loadAllInformationNodes( List<GenericTreeNode<String>> parents )
+            throws BadSetupException {
+        if( columnStore != null || index != null || parallelScanner != null ) {
+            for( GenericTreeNode<String> parent : parents ) {
+                loadInformationNodes( parent, parent.getData() );
+            }
+            return parents;
+        }
+        HashMap<String, List<GenericTreeNode<String>>> remaining = new HashMap<String, List<GenericTreeNode<String>>>();
+        for( GenericTreeNode<String> parent : parents ) {
+            List<GenericTreeNode<String>> same = remaining.get( parent.getData() );
+            if( same == null ) {
+                same = new ArrayList<GenericTreeNode<String>>( 1 );
+                remaining.put( parent.getData(), same );
+            }
+            same.add( parent );
+        }
+        try {
+            conn.reset();
+            TableRow row;
+            while( !remaining.isEmpty() && (row = conn.getLine()) != null ) {
+                if( centerNodeColumnNumber >= row.getColumnCount() ) {
+                    continue;
+                }
+                List<GenericTreeNode<String>> found = remaining.remove( row.getColumn( centerNodeColumnNumber ) );
+                if( found == null ) {
+                    continue;
+                }
+                for( GenericTreeNode<String> parent : found ) {
+                    for( int i = 0; i < informationNodeColumnNumbers.length; i++ ) {
+                        int infoNum = informationNodeColumnNumbers[i];
+                        parent.addChild( new GenericTreeNode<String>( false, row.getColumn( infoNum ),
+                                                                      columnToColumnNameMapping.get( infoNum ) ) );
+                    }
+                }
+            }
+            conn.reset();
+        } catch( IOException ioe ) {
+            throw new BadSetupException( "There was a problem retrieving information from the csv file." );
+        }
+        for( List<GenericTreeNode<String>> notFound : remaining.values() ) {
+            for( GenericTreeNode<String> parent : notFound ) {
+                ExceptionUtils.handleMessage( "No information for center node: " + parent.toString() );
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * Loads a page of center nodes of all <code>parents</code>, one after the other. Each parent continues from its
+     * own last loaded row, so the pages can't share a scan.
+     */
+    public synchronized List<GenericTreeNode<String>> loadAllCenterNodes( List<GenericTreeNode<String>> parents,
+                                                                          int maxNodes ) throws BadSetupException {
+        for( GenericTreeNode<String> parent : parents ) {
+            loadCenterNodes( parent, maxNodes, parent.getData(), parent.getDataHeader() );
+        }
+        return parents;
+    }
+
+    /**
+     * Keeps <code>last</code> as <code>parent</code>'s continuation if there are <code>more</code> rows after it.
+     * Otherwise, every center node has been loaded.
+     */
+    private static void setContinuation( GenericTreeNode<String> parent, boolean more, long last ) {
+        parent.setContinuation( more ? Long.valueOf( last ) : null );
+    }
+
+    /**
+     * Returns the number of the information node column named <code>header</code>, or -1 if there is none.
+     */
+    private int getInformationColumn( String header ) {
+        int column = -1;
+        for( int i = 0; i < informationNodeColumnNumbers.length; i++ ) {
+            if( columnToColumnNameMapping.get( informationNodeColumnNumbers[i] ).equals( header ) ) {
+                column = informationNodeColumnNumbers[i];
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Follows the center nodes of an information node which is on the graph, so center nodes of rows that are
+     * appended later are handed to the {@link ChildrenListener} as children of <code>parent</code>. Only nodes which
+     * are shown should be followed; detached copies and prefetched nodes never are. This does nothing if the file is
+     * not followed, or if <code>parent</code> is not an information node.
+     * @param parent The information node, as it is on the graph.
+     */
+    public void followChildren( GenericTreeNode<String> parent ) {
+        if( !conn.isFollowMode() || parent.isCenterNode() ) {
+            return;
+        }
+        int column = getInformationColumn( parent.getDataHeader() );
+        if( column == -1 ) {
+            return;
+        }
+        synchronized( followedInformationNodes ) {
+            HashMap<String, List<GenericTreeNode<String>>> values = followedInformationNodes.get( column );
+            if( values == null ) {
+                values = new HashMap<String, List<GenericTreeNode<String>>>();
+                followedInformationNodes.put( column, values );
+            }
+            List<GenericTreeNode<String>> nodes = values.get( parent.getData() );
+            if( nodes == null ) {
+                nodes = new ArrayList<GenericTreeNode<String>>( 1 );
+                values.put( parent.getData(), nodes );
+            }
+            for( GenericTreeNode<String> node : nodes ) {
+                if( node == parent ) {
+                    return;
+                }
+            }
+            nodes.add( parent );
+        }
+    }
+
+    /**
+     * Stops following the center nodes of <code>parent</code>, for example because its children were hidden.
+     * @see CSVLoader#followChildren(edu.rit.entityg.treeimpl.GenericTreeNode)
+     */
+    public void unfollowChildren( GenericTreeNode<String> parent ) {
+        if( !conn.isFollowMode() || parent.isCenterNode() ) {
+            return;
+        }
+        int column = getInformationColumn( parent.getDataHeader() );
+        synchronized( followedInformationNodes ) {
+            HashMap<String, List<GenericTreeNode<String>>> values = followedInformationNodes.get( column );
+            List<GenericTreeNode<String>> nodes = (values == null) ? null : values.get( parent.getData() );
+            if( nodes == null ) {
+                return;
+            }
+            for( int i = 0; i < nodes.size(); i++ ) {
+                if( nodes.get( i ) == parent ) {
+                    nodes.remove( i );
+                    break;
+                }
+            }
+            if( nodes.isEmpty() ) {
+                values.remove( parent.getData() );
+                if( values.isEmpty() ) {
+                    followedInformationNodes.remove( column );
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an appended row to the index and the column store, and creates a center node for it under every followed
+     * information node it belongs to. Information nodes which have more center nodes left to load are skipped, since
+     * loading more of them will reach the appended row.
+     */
+    public synchronized void rowAppended( long offset, TableRow row ) {
+        if( index != null ) {
+            index.add( offset, row );
+        }
+        CSVColumnStore store = columnStore;
+        if( store != null ) {
+            store.add( offset, row );
+        }
+        int columnCount = row.getColumnCount();
+        if( centerNodeColumnNumber >= columnCount ) {
+            return;
+        }
+        String centerData = null;
+        String centerHeader = columnToColumnNameMapping.get( centerNodeColumnNumber );
+        synchronized( followedInformationNodes ) {
+            for( Map.Entry<Integer, HashMap<String, List<GenericTreeNode<String>>>> entry
+                 : followedInformationNodes.entrySet() ) {
+                int column = entry.getKey();
+                if( column >= columnCount ) {
+                    continue;
+                }
+                List<GenericTreeNode<String>> nodes = entry.getValue().get( row.getColumn( column ) );
+                if( nodes == null ) {
+                    continue;
+                }
+                for( GenericTreeNode<String> node : nodes ) {
+                    if( node.hasMoreChildren() ) {
+                        continue;
+                    }
+                    if( centerData == null ) {
+                        centerData = row.getColumn( centerNodeColumnNumber );
+                    }
+                    List<GenericTreeNode<String>> children = foundChildren.get( node );
+                    if( children == null ) {
+                        children = new ArrayList<GenericTreeNode<String>>();
+                        foundChildren.put( node, children );
+                    }
+                    children.add( new GenericTreeNode<String>( true, centerData, centerHeader ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the center nodes of the rows of an append to the {@link ChildrenListener}.
+     */
+    public synchronized void appendFinished( long end ) {
+        appendedEnd = end;
+        if( childrenListener != null ) {
+            for( Map.Entry<GenericTreeNode<String>, List<GenericTreeNode<String>>> entry : foundChildren.entrySet() ) {
+                childrenListener.childrenFound( entry.getKey(), entry.getValue() );
+            }
+        }
+        foundChildren.clear();
+    }
+
+    /**
+     * Opens the {@link CSVIndex} of the center node column and all information node columns. If the index can't be
+     * opened or built, lookups will fall back to scanning the file.
+     */
+    private void openIndex() {
+        try {
+            index = CSVIndex.openOrBuild( conn, getLookupColumns() );
+        } catch( IOException ioe ) {
+            ExceptionUtils.handleException( ioe );
+            ExceptionUtils.handleMessage( "Could not open an index for " + conn.getFile() + ". Scanning the file "
+                                          + "instead." );
+            index = null;
+        }
+    }
+
+    /**
+     * Starts a background thread that builds the {@link CSVColumnStore} of the center node column and all information
+     * node columns. Until the thread is done, lookups keep using the index or scanning the file.
+     */
+    private void buildColumnStore() {
+        final int[] columns = getLookupColumns();
+        Thread builder = new Thread( new Runnable() {
+
+            public void run() {
+                try {
+                    CSVColumnStore store = CSVColumnStore.build( conn, columns );
+                    //Once the store is published, rowAppended adds appended rows to it. Catch up with the rows that were
+                    //appended while it was built first, while rowAppended can't run.
+                    synchronized( CSVLoader.this ) {
+                        store.update( conn );
+                        columnStore = store;
+                    }
+                } catch( IOException ioe ) {
+                    ExceptionUtils.handleException( ioe );
+                    ExceptionUtils.handleMessage( "Could not load " + conn.getFile() + " into memory. Lookups will "
+                                                  + "keep scanning the file." );
+                }
+            }
+        }, "EntityG column store" );
+        builder.setDaemon( true );
+        builder.setPriority( Thread.MIN_PRIORITY );
+        builder.start();
+    }
+
+    /**
+     * Returns the columns that lookups are done on: the center node column, followed by the information node columns.
+     */
+    private int[] getLookupColumns() {
+        int[] columns = new int[informationNodeColumnNumbers.length + 1];
+        columns[0] = centerNodeColumnNumber;
+        System.arraycopy( informationNodeColumnNumbers, 0, columns, 1, informationNodeColumnNumbers.length );
+        return columns;
+    }
 }
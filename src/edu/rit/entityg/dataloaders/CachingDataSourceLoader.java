@@ -0,0 +1,347 @@
+package edu.rit.entityg.dataloaders;
+
+import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.treeimpl.GenericTreeNode;
+import edu.rit.entityg.utils.ExceptionUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DataSourceLoader} which remembers what another loader loaded, so collapsing and expanding a node again, or
+ * reaching the same data through another node, is answered from memory instead of scanning or querying the data
+ * source again.
+ * <p/>Loads are cached by operation, column, value, max number of nodes and continuation, so every page of center
+ * nodes is cached on its own. A cached load hands out new copies of the children it loaded, since every parent on the
+ * graph needs its own children. The cache holds at most <code>capacity</code> nodes, and the least recently used loads
+ * are dropped first. A load that is older than the time to live is loaded again.
+ * <p/>Loads which found nothing are not cached, so data which is added to the data source later is found the next
+ * time. Loads of data that changed can be dropped with {@link CachingDataSourceLoader#invalidate(java.lang.String,
+ * java.lang.String)} or {@link CachingDataSourceLoader#invalidateAll()}. If rows are appended to the data source while
+ * it is loaded (see {@link CachingDataSourceLoader#setFollowed(boolean)}), the last page of center nodes is not
+ * cached at all.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class CachingDataSourceLoader implements DataSourceLoader {
+
+    private static final int INFORMATION = 0;
+    private static final int CENTER = 1;
+    private final DataSourceLoader delegate;
+    private final int capacity;
+    private final long timeToLive;
+    /**
+     * The cached loads, least recently used first.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>( 16, 0.75f, true );
+    /**
+     * The number of nodes in <code>entries</code>.
+     */
+    private int size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private volatile boolean followed = false;
+
+    /**
+     * Creates a cache of the loads of <code>delegate</code>.
+     * @param delegate The loader which loads from the data source.
+     * @param capacity The maximum number of nodes that are cached.
+     * @param timeToLive The number of milliseconds a load is cached for, or 0 to cache loads until they are dropped
+     *                   to make room for others.
+     */
+    public CachingDataSourceLoader( DataSourceLoader delegate, int capacity, long timeToLive ) {
+        this.delegate = delegate;
+        this.capacity = Math.max( 1, capacity );
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the loader which loads from the data source.
+     */
+    public DataSourceLoader getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Sets whether rows are appended to the data source while it is loaded. Appended rows belong at the end of the
+     * last page of center nodes of their data, so that page is not cached. Every other page ends before a row which
+     * was already there, so appended rows can't change it, and it is still cached.
+     * @param followed True if the data source is followed.
+     */
+    public void setFollowed( boolean followed ) {
+        this.followed = followed;
+    }
+
+    /**
+     * Logs how often loads were answered by the cache, drops every cached load, and closes the data source.
+     */
+    public void close() throws Exception {
+        synchronized( this ) {
+            ExceptionUtils.handleMessage( "Node cache: " + hits + " hits, " + misses + " misses." );
+            invalidateAll();
+        }
+        delegate.close();
+    }
+
+    /**
+     * The first node is only loaded once, so it is not cached.
+     */
+    public GenericTreeNode<String> loadAbsoluteParent( Object data ) throws BadSetupException {
+        return delegate.loadAbsoluteParent( data );
+    }
+
+    public GenericTreeNode<String> loadInformationNodes( GenericTreeNode<String> parent, Object... data )
+            throws BadSetupException {
+        Key key = new Key( INFORMATION, parent.getDataHeader(), data[0], 0, null );
+        if( !apply( key, parent ) ) {
+            int before = parent.getNumberOfChildren();
+            delegate.loadInformationNodes( parent, data );
+            put( key, parent, before );
+        }
+        return parent;
+    }
+
+    public GenericTreeNode<String> loadCenterNodes( GenericTreeNode<String> parent, int maxNodes, Object... data )
+            throws BadSetupException {
+        Key key = new Key( CENTER, data[1], data[0], maxNodes, parent.getContinuation() );
+        if( !apply( key, parent ) ) {
+            int before = parent.getNumberOfChildren();
+            delegate.loadCenterNodes( parent, maxNodes, data );
+            put( key, parent, before );
+        }
+        return parent;
+    }
+
+    /**
+     * Answers the parents whose information nodes are cached, and loads the others from the data source with a single
+     * call to the loader.
+     */
+    public List<GenericTreeNode<String>> loadAllInformationNodes( List<GenericTreeNode<String>> parents )
+            throws BadSetupException {
+        IdentityHashMap<GenericTreeNode<String>, Key> missed = new IdentityHashMap<GenericTreeNode<String>, Key>();
+        for( GenericTreeNode<String> parent : parents ) {
+            Key key = new Key( INFORMATION, parent.getDataHeader(), parent.getData(), 0, null );
+            if( !missed.containsKey( parent ) && !apply( key, parent ) ) {
+                missed.put( parent, key );
+            }
+        }
+        loadMissed( missed, INFORMATION, 0 );
+        return parents;
+    }
+
+    /**
+     * Answers the parents whose next page of center nodes is cached, and loads the others from the data source with a
+     * single call to the loader.
+     */
+    public List<GenericTreeNode<String>> loadAllCenterNodes( List<GenericTreeNode<String>> parents, int maxNodes )
+            throws BadSetupException {
+        IdentityHashMap<GenericTreeNode<String>, Key> missed = new IdentityHashMap<GenericTreeNode<String>, Key>();
+        for( GenericTreeNode<String> parent : parents ) {
+            Key key = new Key( CENTER, parent.getDataHeader(), parent.getData(), maxNodes, parent.getContinuation() );
+            if( !missed.containsKey( parent ) && !apply( key, parent ) ) {
+                missed.put( parent, key );
+            }
+        }
+        loadMissed( missed, CENTER, maxNodes );
+        return parents;
+    }
+
+    /**
+     * Loads the parents which were not cached, and caches what was loaded for each of them.
+     * @param missed The key of each parent that was not cached.
+     * @param operation Whether information nodes or center nodes are loaded.
+     * @param maxNodes The max number of center nodes of each parent.
+     */
+    private void loadMissed( IdentityHashMap<GenericTreeNode<String>, Key> missed, int operation, int maxNodes )
+            throws BadSetupException {
+        if( missed.isEmpty() ) {
+            return;
+        }
+        List<GenericTreeNode<String>> parents = new ArrayList<GenericTreeNode<String>>( missed.keySet() );
+        int[] before = new int[parents.size()];
+        for( int i = 0; i < before.length; i++ ) {
+            before[i] = parents.get( i ).getNumberOfChildren();
+        }
+        if( operation == INFORMATION ) {
+            delegate.loadAllInformationNodes( parents );
+        } else {
+            delegate.loadAllCenterNodes( parents, maxNodes );
+        }
+        for( int i = 0; i < before.length; i++ ) {
+            put( missed.get( parents.get( i ) ), parents.get( i ), before[i] );
+        }
+    }
+
+    /**
+     * Adds copies of the cached children of <code>key</code> to <code>parent</code>, and sets its continuation.
+     * @return True if <code>key</code> was cached, or false if it has to be loaded.
+     */
+    private boolean apply( Key key, GenericTreeNode<String> parent ) {
+        Entry entry;
+        synchronized( this ) {
+            entry = entries.get( key );
+            if( entry != null && timeToLive > 0 && System.currentTimeMillis() - entry.created > timeToLive ) {
+                remove( key );
+                entry = null;
+            }
+            if( entry == null ) {
+                misses++;
+                return false;
+            }
+            hits++;
+        }
+        for( int i = 0; i < entry.data.length; i++ ) {
+            parent.addChild( new GenericTreeNode<String>( entry.center[i], entry.data[i], entry.headers[i] ) );
+        }
+        if( key.operation == CENTER ) {
+            parent.setContinuation( entry.continuation );
+        }
+        return true;
+    }
+
+    /**
+     * Caches the children which were added to <code>parent</code> after its first <code>before</code> children, unless
+     * they are the last page of center nodes of a followed data source.
+     */
+    private void put( Key key, GenericTreeNode<String> parent, int before ) {
+        List<GenericTreeNode<String>> children = parent.getChildren();
+        if( children.size() <= before || (followed && key.operation == CENTER && !parent.hasMoreChildren()) ) {
+            return;
+        }
+        Entry entry = new Entry( children.subList( before, children.size() ), parent.getContinuation() );
+        synchronized( this ) {
+            remove( key );
+            entries.put( key, entry );
+            size += entry.data.length;
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while( size > capacity && it.hasNext() ) {
+                size -= it.next().getValue().data.length;
+                it.remove();
+            }
+        }
+    }
+
+    private void remove( Key key ) {
+        Entry removed = entries.remove( key );
+        if( removed != null ) {
+            size -= removed.data.length;
+        }
+    }
+
+    /**
+     * Drops every cached load of the information nodes of <code>value</code> in <code>column</code> (which is the
+     * center node column), and every cached page of center nodes of <code>value</code> in <code>column</code>.
+     * @param column The column name of the data that changed.
+     * @param value The data that changed.
+     */
+    public synchronized void invalidate( String column, String value ) {
+        for( Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Entry> next = it.next();
+            if( next.getKey().matches( column, value ) ) {
+                size -= next.getValue().data.length;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops every cached load.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of loads which were answered by the cache.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of loads which had to be loaded from the data source.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of nodes that are cached.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The operation, column, value, max number of nodes and continuation of a load.
+     */
+    private static class Key {
+
+        private final int operation;
+        private final Object column;
+        private final Object value;
+        private final int maxNodes;
+        private final Object continuation;
+
+        private Key( int operation, Object column, Object value, int maxNodes, Object continuation ) {
+            this.operation = operation;
+            this.column = column;
+            this.value = value;
+            this.maxNodes = maxNodes;
+            this.continuation = continuation;
+        }
+
+        private boolean matches( String column, String value ) {
+            return equal( this.column, column ) && equal( this.value, value );
+        }
+
+        private static boolean equal( Object a, Object b ) {
+            return (a == null) ? b == null : a.equals( b );
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if( !(obj instanceof Key) ) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return operation == other.operation && maxNodes == other.maxNodes && equal( column, other.column )
+                   && equal( value, other.value ) && equal( continuation, other.continuation );
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode( new Object[]{ operation, column, value, maxNodes, continuation } );
+        }
+    }
+
+    /**
+     * The children a load added, and the continuation it left, as of when it was loaded.
+     */
+    private static class Entry {
+
+        private final boolean[] center;
+        private final String[] data;
+        private final String[] headers;
+        private final Object continuation;
+        private final long created = System.currentTimeMillis();
+
+        private Entry( List<GenericTreeNode<String>> children, Object continuation ) {
+            this.center = new boolean[children.size()];
+            this.data = new String[children.size()];
+            this.headers = new String[children.size()];
+            for( int i = 0; i < data.length; i++ ) {
+                GenericTreeNode<String> child = children.get( i );
+                center[i] = child.isCenterNode();
+                data[i] = child.getData();
+                headers[i] = child.getDataHeader();
+            }
+            this.continuation = continuation;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package edu.rit.entityg.dataloaders;
+
+import edu.rit.entityg.treeimpl.GenericTreeNode;
+import java.util.List;
+
+/**
+ * Listens for children that a {@link DataSourceLoader} finds for a node after the node was loaded, for example because
+ * rows were appended to the data source.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public interface ChildrenListener {
+
+    /**
+     * Called when new children of <code>parent</code> are found. The children have not been added to
+     * <code>parent</code> yet; the listener should add them. This is called on the loader's own thread.
+     * @param parent A node that was already loaded.
+     * @param children The new children of <code>parent</code>.
+     */
+    public void childrenFound( GenericTreeNode<String> parent, List<GenericTreeNode<String>> children );
+}
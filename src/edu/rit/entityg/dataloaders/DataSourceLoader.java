@@ -3,6 +3,7 @@ package edu.rit.entityg.dataloaders;
 import edu.rit.entityg.exceptions.BadSetupException;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * This is the interface for all data source loaders to implement.
@@ -47,6 +48,10 @@ public interface DataSourceLoader {
      * Loads center nodes. Center nodes are nodes which we want to find more information about. This method is used
      * when an information node is clicked, since we want to find all center nodes which share <code>parent's</code>
      * data.
+     * <p/>If there may be more center nodes than <code>maxNodes</code>, a loader should record where it stopped with
+     * {@link GenericTreeNode#setContinuation(java.lang.Object)}. Calling this method again with the same
+     * <code>parent</code> then loads the next <code>maxNodes</code> center nodes from there, and adds them to the
+     * children <code>parent</code> already has.
      * @param parent A {@link GenericTreeNode} that is an information node.
      * @param maxNodes The max number of center nodes that we should be returning as children to <code>parent</code>.
      *                 Since it's possible to have a very large number of nodes which share <code>parent's</code> data,
@@ -60,4 +65,32 @@ public interface DataSourceLoader {
      */
     public GenericTreeNode<String> loadCenterNodes( GenericTreeNode<String> parent, int maxNodes,
                                                     Object... data ) throws BadSetupException;
+
+    /**
+     * Loads the information nodes of several center nodes at once, for example when a session is restored, or nodes
+     * are prefetched. The result is the same as calling
+     * {@link DataSourceLoader#loadInformationNodes(edu.rit.entityg.treeimpl.GenericTreeNode, java.lang.Object[])}
+     * for each of <code>parents</code> with its data, but a loader should read the data source as few times as it can
+     * (one query or scan for all of them, rather than one per parent).
+     * @param parents The {@link GenericTreeNode} center nodes that we should load information for. The data of each
+     *                parent is the key its information is loaded for.
+     * @return <code>parents</code>, each with its information nodes as children.
+     * @throws BadSetupException
+     */
+    public List<GenericTreeNode<String>> loadAllInformationNodes( List<GenericTreeNode<String>> parents )
+            throws BadSetupException;
+
+    /**
+     * Loads center nodes of several information nodes at once. The result is the same as calling
+     * {@link DataSourceLoader#loadCenterNodes(edu.rit.entityg.treeimpl.GenericTreeNode, int, java.lang.Object[])}
+     * for each of <code>parents</code> with its data and data header (including continuations), but a loader should
+     * read the data source as few times as it can.
+     * @param parents The {@link GenericTreeNode} information nodes that we should load center nodes for. The data
+     *                header and data of each parent are the (column, value) key its center nodes are loaded for.
+     * @param maxNodes The max number of center nodes that we should be returning as children to each parent.
+     * @return <code>parents</code>, each with center nodes as its children.
+     * @throws BadSetupException
+     */
+    public List<GenericTreeNode<String>> loadAllCenterNodes( List<GenericTreeNode<String>> parents, int maxNodes )
+            throws BadSetupException;
 }
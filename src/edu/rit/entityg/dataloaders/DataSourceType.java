@@ -19,5 +19,9 @@ public enum DataSourceType {
     /**
      * Load data from a CSV file.
      */
-    CSV
+    CSV,
+    /**
+     * Load data from a snapshot that a CSV file or database was compiled into.
+     */
+    SNAPSHOT
 }
@@ -1,12 +1,25 @@
 package edu.rit.entityg.dataloaders;
 
 import edu.rit.entityg.database.DatabaseConnection;
+import edu.rit.entityg.database.QueryStats;
+import edu.rit.entityg.database.RunningQuery;
 import edu.rit.entityg.exceptions.BadSetupException;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
+import edu.rit.entityg.utils.ExceptionUtils;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Implements {@link DataSourceLoader} for a {@link DataSourceType#DATABASE} data source. The following
@@ -19,14 +32,65 @@ import java.util.Arrays;
  * <br/>
  * <li>The information nodes column names.</li>
  * </ul>
+ * Every query is started with {@link DatabaseConnection#startQuery(java.lang.String, int, java.lang.String,
+ * java.lang.Object[])} on its own connection from the {@link DatabaseConnection}'s pool, and is closed before the call
+ * returns, so calls from several threads run against the database at once, up to the data source's limit of
+ * concurrent queries, and every query is bounded by the query timeout (and hedged, if hedging is on). Each query is
+ * the base query followed by a condition on one column, with the data bound as a parameter, so each (column, base
+ * query) pair is prepared once per connection and reused for every node.
+ * <p/>A base query that selects every column (<code>SELECT * FROM ...</code>) is narrowed to select only the center
+ * node column and the information node columns, so columns that are never displayed are not sent from the database.
+ * The columns are found in the results of each query by index, which is looked up once per query.
+ * <p/>Every query is timed in the {@link DatabaseConnection#getQueryStats() query stats}: running it, reading its
+ * results and building nodes from them. The latencies of each kind of query are logged when the loader is closed.
+ * <p/>The batch methods load many nodes with one query per {@link DatabaseLoader#BATCH_SIZE} keys, instead of one
+ * query per node, so expanding many nodes costs about one round trip to the database.
  * @date May 6, 2011
  * @author Eric Kisner
  */
 public class DatabaseLoader implements DataSourceLoader {
 
+    /**
+     * The maximum number of keys in the <code>IN (...)</code> list of a batch of information node lookups.
+     */
+    static final int BATCH_SIZE = 256;
+    /**
+     * The maximum number of pages of center nodes in one query of a batch of center node lookups.
+     */
+    static final int PAGE_BATCH_SIZE = 32;
+    /**
+     * The maximum number of queries whose column indexes are kept.
+     */
+    private static final int COLUMN_INDEX_CACHE_SIZE = 256;
+    /**
+     * Matches a query which selects every column: <code>SELECT * FROM</code>.
+     */
+    private static final Pattern SELECT_ALL = Pattern.compile( "^(\\s*SELECT\\s+)\\*(\\s+FROM\\s)",
+                                                               Pattern.CASE_INSENSITIVE );
+    /**
+     * Matches the start of the projection of a query: <code>SELECT</code>, and <code>DISTINCT</code> if it is there.
+     */
+    private static final Pattern SELECT = Pattern.compile( "^\\s*SELECT\\s+(DISTINCT\\s+)?",
+                                                           Pattern.CASE_INSENSITIVE );
+
     private String baseQuery = null;
     private String centerNodeColumnName = null;
     private String[] columnNames = null;
+    /**
+     * The base query, with its projection narrowed to the center node column and information node columns if it
+     * selects every column. Every query is built from this.
+     */
+    private String query = null;
+    /**
+     * The base query, with its projection narrowed to the center node column if it can be found in it. The pages of
+     * a batch of center node lookups are built from this, since they are derived tables, which can't have two
+     * columns with the same name.
+     */
+    private String centerQuery = null;
+    /**
+     * The indexes of the columns that are read from the results of each query, by query.
+     */
+    private final ConcurrentHashMap<String, int[]> columnIndexes = new ConcurrentHashMap<String, int[]>();
     /**
      * The database connection.
      */
@@ -41,6 +105,7 @@ public class DatabaseLoader implements DataSourceLoader {
     }
 
     public void close() throws SQLException {
+        ExceptionUtils.handleMessage( conn.getQueryStats().report() );
         conn.close();
     }
 
@@ -58,6 +123,7 @@ public class DatabaseLoader implements DataSourceLoader {
      */
     public void setBaseQuery( String baseQuery ) {
         this.baseQuery = baseQuery.trim() + " ";
+        project();
     }
 
     /**
@@ -67,6 +133,7 @@ public class DatabaseLoader implements DataSourceLoader {
      */
     public void setCenterNodeColumnName( String centerNodeColumnName ) {
         this.centerNodeColumnName = centerNodeColumnName;
+        project();
     }
 
     /**
@@ -77,6 +144,121 @@ public class DatabaseLoader implements DataSourceLoader {
      */
     public void setInformationNodeColumNames( String[] columnNames ) {
         this.columnNames = columnNames;
+        project();
+    }
+
+    private void project() {
+        query = (baseQuery == null) ? null : projectColumns( baseQuery, centerNodeColumnName, columnNames );
+        centerQuery = (query == null) ? null : projectCenterColumn( query, centerNodeColumnName );
+        columnIndexes.clear();
+    }
+
+    /**
+     * Narrows the projection of a base query which selects every column (<code>SELECT * FROM ...</code>) to the
+     * center node column and the information node columns. Any other base query is returned as it is, since its
+     * projection may compute or rename the columns.
+     * @param baseQuery The base query.
+     * @param centerNodeColumnName The center node column name, or null if it is not known yet.
+     * @param columnNames The information node column names, or null if they are not known yet.
+     * @return The base query, with only the columns EntityG displays selected.
+     */
+    public static String projectColumns( String baseQuery, String centerNodeColumnName, String[] columnNames ) {
+        Matcher matcher = SELECT_ALL.matcher( baseQuery );
+        if( centerNodeColumnName == null || columnNames == null || !matcher.find() ) {
+            return baseQuery;
+        }
+        LinkedHashSet<String> columns = new LinkedHashSet<String>();
+        columns.add( centerNodeColumnName.trim() );
+        for( String columnName : columnNames ) {
+            columns.add( columnName.trim() );
+        }
+        StringBuilder projection = new StringBuilder();
+        for( String column : columns ) {
+            projection.append( (projection.length() == 0) ? "" : ", " ).append( column );
+        }
+        return matcher.group( 1 ) + projection + matcher.group( 2 ) + baseQuery.substring( matcher.end() );
+    }
+
+    /**
+     * Narrows the projection of a query to the center node column. The projection is split at its top level commas,
+     * and the first column that is the center node column (<code>center</code>, <code>t.center</code> or
+     * <code>... AS center</code>) is kept, or the center node column if it selects every column. Any other query is
+     * returned as it is.
+     * @param query The query.
+     * @param centerNodeColumnName The center node column name, or null if it is not known yet.
+     * @return The query, with only the center node column selected.
+     */
+    public static String projectCenterColumn( String query, String centerNodeColumnName ) {
+        Matcher matcher = SELECT.matcher( query );
+        if( centerNodeColumnName == null || !matcher.find() ) {
+            return query;
+        }
+        String center = columnName( centerNodeColumnName );
+        String kept = null;
+        int start = matcher.end();
+        int depth = 0;
+        char quote = 0;
+        for( int i = start; i < query.length(); i++ ) {
+            char c = query.charAt( i );
+            if( quote != 0 ) {
+                quote = (c == quote) ? 0 : quote;
+            } else if( c == '\'' || c == '"' || c == '`' ) {
+                quote = c;
+            } else if( c == '(' ) {
+                depth++;
+            } else if( c == ')' ) {
+                depth--;
+            } else if( depth == 0 && (c == ',' || (Character.isWhitespace( c ) && isFrom( query, i + 1 ))) ) {
+                String column = query.substring( start, i ).trim();
+                if( kept == null && column.equals( "*" ) ) {
+                    kept = centerNodeColumnName.trim();
+                } else if( kept == null && columnName( column ).equalsIgnoreCase( center ) ) {
+                    kept = column;
+                }
+                if( c != ',' ) {
+                    return (kept == null) ? query : query.substring( 0, matcher.end() ) + kept + query.substring( i );
+                }
+                start = i + 1;
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Returns whether the keyword <code>FROM</code> is at <code>index</code> of <code>query</code>.
+     */
+    private static boolean isFrom( String query, int index ) {
+        return query.regionMatches( true, index, "FROM", 0, 4 )
+               && (index + 4 == query.length() || !Character.isJavaIdentifierPart( query.charAt( index + 4 ) ));
+    }
+
+    /**
+     * Returns the name of a column of a projection: its alias, or the column without its table and quotes.
+     */
+    private static String columnName( String column ) {
+        String[] words = column.trim().split( "\\s+" );
+        String name = words[words.length - 1];
+        name = name.substring( name.lastIndexOf( '.' ) + 1 );
+        return name.replaceAll( "[`\"\\[\\]]", "" );
+    }
+
+    /**
+     * Returns the (one-based) indexes of <code>names</code> in the results of <code>sql</code>. They are looked up in
+     * <code>rs</code> the first time <code>sql</code> is run, and kept for every result of it after that.
+     */
+    private int[] columnIndexes( String sql, ResultSet rs, String... names ) throws SQLException {
+        int[] indexes = columnIndexes.get( sql );
+        if( indexes == null ) {
+            indexes = new int[names.length];
+            for( int i = 0; i < names.length; i++ ) {
+                indexes[i] = rs.findColumn( names[i] );
+            }
+            if( columnIndexes.size() >= COLUMN_INDEX_CACHE_SIZE ) {
+                columnIndexes.clear();
+            }
+            columnIndexes.put( sql, indexes );
+        }
+        return indexes;
     }
 
     public GenericTreeNode<String> loadAbsoluteParent( Object data ) throws BadSetupException {
@@ -87,10 +269,14 @@ public class DatabaseLoader implements DataSourceLoader {
                                          + "before loading any data." );
         }
 
-        String sql = baseQuery + centerNodeColumnName + " = '" + (String) data + "'";
+        String sql = query + centerNodeColumnName + " = ?";
+        RunningQuery running = null;
         try {
-            ResultSet rs = conn.executeQuery( sql );
-            ArrayList<String> results = conn.getSingleRowFromColumnHeaders( rs, Arrays.asList( columnNames ) );
+            running = conn.startQuery( "first node", 0, sql, data );
+            ResultSet rs = running.getResult();
+            QueryStats.Timing timing = running.getTiming();
+            ArrayList<String> results = conn.getSingleRowFromColumns( rs, columnIndexes( sql, rs, columnNames ) );
+            timing.lap( QueryStats.Phase.MATERIALIZE );
             if( results.isEmpty() ) {
                 throw new BadSetupException( longErrorMessage() );
             } else if( columnNames.length > results.size() ) {
@@ -104,10 +290,14 @@ public class DatabaseLoader implements DataSourceLoader {
             for( int i = 0; i < results.size(); i++ ) {
                 rootParent.addChild( new GenericTreeNode<String>( false, results.get( i ), columnNames[i] ) );
             }
+            timing.lap( QueryStats.Phase.BUILD );
             return rootParent;
         } catch( SQLException sqle ) {
-            throw new BadSetupException( "There was an error trying to create a SQL Query from " + sql + " with "
-                                         + Arrays.toString( columnNames ) + " as columns to retreive data from." );
+            throw new BadSetupException( "There was an error trying to create a SQL Query from " + sql + " (with '"
+                                         + data + "') with " + Arrays.toString( columnNames ) + " as columns to "
+                                         + "retreive data from." );
+        } finally {
+            close( running );
         }
     }
 
@@ -115,10 +305,14 @@ public class DatabaseLoader implements DataSourceLoader {
                                                          Object... obj ) throws BadSetupException {
         String data = (String) obj[0];
         String columnHeader = (String) obj[1];
-        String sql = baseQuery + columnHeader + " = '" + data + "'";
+        String sql = query + columnHeader + " = ?";
+        RunningQuery running = null;
         try {
-            ResultSet rs = conn.executeQuery( sql );
-            ArrayList<String> results = conn.getSingleRowFromColumnHeaders( rs, Arrays.asList( columnNames ) );
+            running = conn.startQuery( "information: " + columnHeader, 0, sql, data );
+            ResultSet rs = running.getResult();
+            QueryStats.Timing timing = running.getTiming();
+            ArrayList<String> results = conn.getSingleRowFromColumns( rs, columnIndexes( sql, rs, columnNames ) );
+            timing.lap( QueryStats.Phase.MATERIALIZE );
             if( columnNames.length > results.size() ) {
                 throw new BadSetupException( "There are null values in your database which you want displayed. "
                                              + "Ignoring this data." );
@@ -129,36 +323,294 @@ public class DatabaseLoader implements DataSourceLoader {
                     parent.addChild( new GenericTreeNode<String>( false, results.get( i ), columnNames[i] ) );
                 }
             }
+            timing.lap( QueryStats.Phase.BUILD );
             return parent;
         } catch( SQLException sqle ) {
             throw new BadSetupException( sqle.getMessage() );
+        } finally {
+            close( running );
         }
     }
 
+    /**
+     * Loads one page of at most <code>maxNodes</code> center nodes, using keyset pagination: the center nodes are
+     * ordered by the center node column, and only one more row than a page is asked for, to know whether there is
+     * another page. The center node data of the last row that was loaded is kept as <code>parent</code>'s
+     * continuation, and the next page is the rows after it (<code>center &gt; last</code>). With an index on the
+     * information node column and the center node column, every page costs the same, however deep it is. Rows with
+     * the same center node data are the same node on the graph, so a page never ends between them.
+     * <p/>The rows are read from the result one at a time, and the result is never held in memory.
+     * @param obj Must be two strings: The data of the information node that the user clicked on, and that piece of
+     *            data's column name.
+     */
     public GenericTreeNode<String> loadCenterNodes( GenericTreeNode<String> parent, int maxNodes,
                                                     Object... obj ) throws BadSetupException {
         String data = (String) obj[0];
         String columnHeader = (String) obj[1];
-        String sql = baseQuery + columnHeader + " = '" + data + "'";
+        //The center node data of the last row that was already loaded, or null if nothing has been loaded yet.
+        String after = (parent.getContinuation() instanceof String) ? (String) parent.getContinuation() : null;
+        String sql = pageQuery( query, columnHeader, after != null );
+        Object[] params = (after == null) ? new Object[]{ data, maxNodes + 1 }
+                          : new Object[]{ data, after, maxNodes + 1 };
+        RunningQuery running = null;
         try {
-            ResultSet rs = conn.executeQuery( sql );
-            ArrayList<ArrayList<String>> results = conn.getData( rs, centerNodeColumnName );
-            if( results.isEmpty() ) {
-                return parent;
-            }
-            for( int i = 0; i < results.size(); i++ ) {
-                if( i >= maxNodes )
+            running = conn.startQuery( "center page: " + columnHeader + ((after == null) ? "" : " (more)"),
+                                       maxNodes + 1, sql, params );
+            ResultSet rs = running.getResult();
+            QueryStats.Timing timing = running.getTiming();
+            int center = columnIndexes( sql, rs, centerNodeColumnName )[0];
+            ArrayList<String> page = new ArrayList<String>();
+            String extra = null;
+            while( rs.next() ) {
+                String value = rs.getString( center );
+                timing.lap( QueryStats.Phase.MATERIALIZE );
+                if( page.size() >= maxNodes ) {
+                    extra = value;
                     break;
-                //Get the only piece of information in our current row.
-                String result = results.get( i ).get( 0 );
-                parent.addChild( new GenericTreeNode<String>( true, result, centerNodeColumnName ) );
+                }
+                page.add( value );
             }
+            addPage( parent, page, extra );
+            timing.lap( QueryStats.Phase.BUILD );
         } catch( SQLException sqle ) {
             throw new BadSetupException( sqle.getMessage() );
+        } finally {
+            close( running );
         }
         return parent;
     }
 
+    /**
+     * Adds a page of center node data, read in order, to <code>parent</code>, and keeps where the next page starts as
+     * its continuation. <code>extra</code> is the data of the row after the page, or null if there is none. If it is
+     * the same center node as the end of the page, the next page (the rows after the continuation) would skip its
+     * rows, so the page ends before that center node instead, and the next page starts with it. A page of only one
+     * center node is kept whole.
+     */
+    private void addPage( GenericTreeNode<String> parent, List<String> page, String extra ) {
+        int end = page.size();
+        if( extra != null ) {
+            while( end > 0 && page.get( end - 1 ).equalsIgnoreCase( extra ) ) {
+                end--;
+            }
+            if( end == 0 ) {
+                end = page.size();
+            }
+        }
+        for( int i = 0; i < end; i++ ) {
+            parent.addChild( new GenericTreeNode<String>( true, page.get( i ), centerNodeColumnName ) );
+        }
+        parent.setContinuation( (extra == null) ? null : page.get( end - 1 ) );
+    }
+
+    /**
+     * Closes a query, if it was started.
+     */
+    private static void close( RunningQuery running ) {
+        if( running != null ) {
+            running.close();
+        }
+    }
+
+    /**
+     * Returns the query of one page of center nodes of an information node in <code>columnHeader</code>. Its
+     * parameters are the information node data, the center node data of the last row that was already loaded (if
+     * <code>continued</code>), and the number of rows to return.
+     * @param base The base query to build it from.
+     */
+    private String pageQuery( String base, String columnHeader, boolean continued ) {
+        return base + columnHeader + " = ? AND " + centerNodeColumnName
+               + (continued ? " > ?" : " IS NOT NULL") + " ORDER BY " + centerNodeColumnName + " LIMIT ?";
+    }
+
+    /**
+     * Loads the information nodes of all <code>parents</code> with <code>IN (...)</code> queries of up to
+     * {@link DatabaseLoader#BATCH_SIZE} keys each. Every parent with the same data gets the information of the same
+     * (first) row. The rows are matched back to the parents by their exact data first, and otherwise ignoring case,
+     * since the database may compare values without case.
+     */
+    public List<GenericTreeNode<String>> loadAllInformationNodes( List<GenericTreeNode<String>> parents )
+            throws BadSetupException {
+        //The parents of each value, by column.
+        LinkedHashMap<String, LinkedHashMap<String, List<GenericTreeNode<String>>>> keys =
+                new LinkedHashMap<String, LinkedHashMap<String, List<GenericTreeNode<String>>>>();
+        for( GenericTreeNode<String> parent : parents ) {
+            LinkedHashMap<String, List<GenericTreeNode<String>>> values = keys.get( parent.getDataHeader() );
+            if( values == null ) {
+                values = new LinkedHashMap<String, List<GenericTreeNode<String>>>();
+                keys.put( parent.getDataHeader(), values );
+            }
+            List<GenericTreeNode<String>> same = values.get( parent.getData() );
+            if( same == null ) {
+                same = new ArrayList<GenericTreeNode<String>>( 1 );
+                values.put( parent.getData(), same );
+            }
+            same.add( parent );
+        }
+        try {
+            for( Map.Entry<String, LinkedHashMap<String, List<GenericTreeNode<String>>>> entry : keys.entrySet() ) {
+                List<String> values = new ArrayList<String>( entry.getValue().keySet() );
+                for( int start = 0; start < values.size(); start += BATCH_SIZE ) {
+                    loadInformationBatch( entry.getKey(),
+                                          values.subList( start, Math.min( values.size(), start + BATCH_SIZE ) ),
+                                          entry.getValue() );
+                }
+            }
+        } catch( SQLException sqle ) {
+            throw new BadSetupException( sqle.getMessage() );
+        }
+        return parents;
+    }
+
+    /**
+     * Runs one <code>IN (...)</code> query for <code>values</code> of <code>columnHeader</code>. The list of
+     * parameters is padded (with the last value) to a power of two, so only a few shapes of the query are ever
+     * prepared.
+     */
+    private void loadInformationBatch( String columnHeader, List<String> values,
+                                       Map<String, List<GenericTreeNode<String>>> parents ) throws SQLException {
+        int size = Math.min( BATCH_SIZE, Integer.highestOneBit( values.size() - 1 ) << 1 );
+        size = Math.max( size, values.size() );
+        Object[] params = new Object[size];
+        StringBuilder sql = new StringBuilder( query ).append( columnHeader ).append( " IN (" );
+        TreeMap<String, String> ignoringCase = new TreeMap<String, String>( String.CASE_INSENSITIVE_ORDER );
+        for( int i = 0; i < size; i++ ) {
+            params[i] = values.get( Math.min( i, values.size() - 1 ) );
+            sql.append( (i == 0) ? "?" : ", ?" );
+        }
+        sql.append( ")" );
+        for( String value : values ) {
+            ignoringCase.put( value, value );
+        }
+        HashSet<String> loaded = new HashSet<String>();
+        RunningQuery running = conn.startQuery( "information batch: " + columnHeader + " x" + size, 0,
+                                                sql.toString(), params );
+        try {
+            ResultSet rs = running.getResult();
+            QueryStats.Timing timing = running.getTiming();
+            String[] names = new String[columnNames.length + 1];
+            names[0] = columnHeader;
+            System.arraycopy( columnNames, 0, names, 1, columnNames.length );
+            int[] indexes = columnIndexes( sql.toString(), rs, names );
+            int key = indexes[0];
+            int[] columns = Arrays.copyOfRange( indexes, 1, indexes.length );
+            while( rs.next() && loaded.size() < values.size() ) {
+                String value = rs.getString( key );
+                if( value == null ) {
+                    continue;
+                }
+                if( !parents.containsKey( value ) ) {
+                    value = ignoringCase.get( value );
+                }
+                if( value == null || !loaded.add( value ) ) {
+                    continue;
+                }
+                String[] results = new String[columns.length];
+                for( int i = 0; i < columns.length; i++ ) {
+                    results[i] = rs.getString( columns[i] );
+                    if( results[i] == null || results[i].equalsIgnoreCase( "null" ) ) {
+                        results = null;
+                        break;
+                    }
+                }
+                timing.lap( QueryStats.Phase.MATERIALIZE );
+                if( results == null ) {
+                    ExceptionUtils.handleMessage( "There are null values in your database which you want displayed "
+                                                  + "for '" + value + "'. Ignoring this data." );
+                    continue;
+                }
+                for( GenericTreeNode<String> parent : parents.get( value ) ) {
+                    for( int i = 0; i < results.length; i++ ) {
+                        parent.addChild( new GenericTreeNode<String>( false, results[i], columnNames[i] ) );
+                    }
+                }
+                timing.lap( QueryStats.Phase.BUILD );
+            }
+        } finally {
+            running.close();
+        }
+    }
+
+    /**
+     * Loads a page of center nodes of all <code>parents</code>, with queries of up to
+     * {@link DatabaseLoader#PAGE_BATCH_SIZE} pages each. An <code>IN (...)</code> query can't limit the number of
+     * rows of each key, so each query is a <code>UNION ALL</code> of the page queries of
+     * {@link DatabaseLoader#loadCenterNodes(edu.rit.entityg.treeimpl.GenericTreeNode, int, java.lang.Object[])},
+     * each tagged with the number of its parent, which is how the rows are matched back to the parents. Each page
+     * selects only the center node column (see {@link DatabaseLoader#projectCenterColumn(java.lang.String,
+     * java.lang.String)}), since a derived table can't have two columns with the same name. The order of a derived
+     * table is not kept by the query around it, so the rows are ordered again by parent and center node.
+     */
+    public List<GenericTreeNode<String>> loadAllCenterNodes( List<GenericTreeNode<String>> parents, int maxNodes )
+            throws BadSetupException {
+        //A parent that is in the list twice is only loaded once.
+        List<GenericTreeNode<String>> distinct = new ArrayList<GenericTreeNode<String>>( parents.size() );
+        IdentityHashMap<GenericTreeNode<String>, Boolean> seen =
+                new IdentityHashMap<GenericTreeNode<String>, Boolean>();
+        for( GenericTreeNode<String> parent : parents ) {
+            if( seen.put( parent, Boolean.TRUE ) == null ) {
+                distinct.add( parent );
+            }
+        }
+        try {
+            for( int start = 0; start < distinct.size(); start += PAGE_BATCH_SIZE ) {
+                loadCenterBatch( distinct.subList( start, Math.min( distinct.size(), start + PAGE_BATCH_SIZE ) ),
+                                 maxNodes );
+            }
+        } catch( SQLException sqle ) {
+            throw new BadSetupException( sqle.getMessage() );
+        }
+        return parents;
+    }
+
+    private void loadCenterBatch( List<GenericTreeNode<String>> parents, int maxNodes ) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        ArrayList<Object> params = new ArrayList<Object>( parents.size() * 3 );
+        for( int i = 0; i < parents.size(); i++ ) {
+            GenericTreeNode<String> parent = parents.get( i );
+            String after = (parent.getContinuation() instanceof String) ? (String) parent.getContinuation() : null;
+            if( i > 0 ) {
+                sql.append( " UNION ALL " );
+            }
+            sql.append( "SELECT " ).append( i ).append( " AS entityg_parent, page.* FROM (" );
+            sql.append( pageQuery( centerQuery, parent.getDataHeader(), after != null ) ).append( ") page" );
+            params.add( parent.getData() );
+            if( after != null ) {
+                params.add( after );
+            }
+            params.add( maxNodes + 1 );
+        }
+        sql.append( " ORDER BY entityg_parent, " ).append( columnName( centerNodeColumnName ) );
+        List<List<String>> pages = new ArrayList<List<String>>( parents.size() );
+        String[] extra = new String[parents.size()];
+        for( int i = 0; i < parents.size(); i++ ) {
+            pages.add( new ArrayList<String>() );
+        }
+        RunningQuery running = conn.startQuery( "center batch x" + parents.size(), (maxNodes + 1) * parents.size(),
+                                                sql.toString(), params.toArray() );
+        try {
+            ResultSet rs = running.getResult();
+            QueryStats.Timing timing = running.getTiming();
+            int center = columnIndexes( sql.toString(), rs, centerNodeColumnName )[0];
+            while( rs.next() ) {
+                int i = rs.getInt( 1 );
+                String value = rs.getString( center );
+                timing.lap( QueryStats.Phase.MATERIALIZE );
+                if( pages.get( i ).size() >= maxNodes ) {
+                    extra[i] = value;
+                } else {
+                    pages.get( i ).add( value );
+                }
+            }
+            for( int i = 0; i < parents.size(); i++ ) {
+                addPage( parents.get( i ), pages.get( i ), extra[i] );
+            }
+            timing.lap( QueryStats.Phase.BUILD );
+        } finally {
+            running.close();
+        }
+    }
+
     /**
      * Returns a verbose error message to be used in {@link DatabaseLoader#loadAbsoluteParent(java.lang.Object)}.
      */
@@ -0,0 +1,148 @@
+package edu.rit.entityg.dataloaders;
+
+import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.treeimpl.GenericTreeNode;
+import edu.rit.entityg.utils.ExceptionUtils;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the children of nodes which were just rendered in the background, while the user looks at the graph, so the
+ * next double click on one of them is answered by a {@link CachingDataSourceLoader} instead of waiting on the data
+ * source. The information nodes of center nodes are loaded, and the first page of center nodes of information nodes,
+ * which are the same loads a click on them would make.
+ * <p/>The prefetched children are loaded into copies of the nodes, so the nodes on the graph are not changed until
+ * they are clicked. At most <code>budget</code> nodes are prefetched after each expansion. Prefetching a new set of
+ * nodes, or calling {@link NodePrefetcher#cancel()} (when the user clicks somewhere else), drops the nodes which have
+ * not been loaded yet. Nodes are loaded {@link NodePrefetcher#BATCH_SIZE} at a time, so a cancelled prefetch stops
+ * after the batch it is loading, and a load is never interrupted halfway through.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class NodePrefetcher implements Runnable {
+
+    /**
+     * The number of nodes that are loaded with one call to the loader.
+     */
+    static final int BATCH_SIZE = 8;
+    private final DataSourceLoader loader;
+    private final int budget;
+    /**
+     * The nodes which are waiting to be prefetched, and the max number of center nodes to prefetch for each of them.
+     */
+    private List<GenericTreeNode<String>> pending = new ArrayList<GenericTreeNode<String>>();
+    private int maxNodes;
+    private boolean running = false;
+    private Thread thread;
+
+    /**
+     * Creates a prefetcher of nodes.
+     * @param loader The loader to prefetch with. This should be a {@link CachingDataSourceLoader}, since prefetched
+     *               children are otherwise thrown away.
+     * @param budget The max number of nodes that are prefetched after each expansion.
+     */
+    public NodePrefetcher( DataSourceLoader loader, int budget ) {
+        this.loader = loader;
+        this.budget = budget;
+    }
+
+    /**
+     * Replaces the nodes which are waiting to be prefetched with the first <code>budget</code> of <code>nodes</code>
+     * which have no children yet.
+     * @param nodes The nodes which were just rendered.
+     * @param maxNodes The max number of center nodes to prefetch for each information node.
+     */
+    public synchronized void prefetch( List<GenericTreeNode<String>> nodes, int maxNodes ) {
+        List<GenericTreeNode<String>> copies = new ArrayList<GenericTreeNode<String>>();
+        for( GenericTreeNode<String> node : nodes ) {
+            if( copies.size() >= budget ) {
+                break;
+            }
+            if( !node.hasChildren() ) {
+                GenericTreeNode<String> copy = new GenericTreeNode<String>( node.isCenterNode(), node.getData(),
+                                                                            node.getDataHeader() );
+                copy.setContinuation( node.getContinuation() );
+                copies.add( copy );
+            }
+        }
+        pending = copies;
+        this.maxNodes = maxNodes;
+        if( copies.isEmpty() ) {
+            return;
+        }
+        if( thread == null ) {
+            running = true;
+            thread = new Thread( this, "EntityG prefetch" );
+            thread.setDaemon( true );
+            thread.setPriority( Thread.MIN_PRIORITY );
+            thread.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Drops the nodes which are waiting to be prefetched.
+     */
+    public synchronized void cancel() {
+        pending = new ArrayList<GenericTreeNode<String>>();
+    }
+
+    /**
+     * Drops the nodes which are waiting to be prefetched, and stops the prefetch thread once its current batch is
+     * loaded.
+     */
+    public synchronized void close() {
+        cancel();
+        running = false;
+        notifyAll();
+    }
+
+    public void run() {
+        while( true ) {
+            List<GenericTreeNode<String>> batch;
+            int batchMaxNodes;
+            synchronized( this ) {
+                while( running && pending.isEmpty() ) {
+                    try {
+                        wait();
+                    } catch( InterruptedException ie ) {
+                        return;
+                    }
+                }
+                if( !running ) {
+                    thread = null;
+                    return;
+                }
+                int size = Math.min( BATCH_SIZE, pending.size() );
+                batch = new ArrayList<GenericTreeNode<String>>( pending.subList( 0, size ) );
+                pending = new ArrayList<GenericTreeNode<String>>( pending.subList( size, pending.size() ) );
+                batchMaxNodes = maxNodes;
+            }
+            load( batch, batchMaxNodes );
+        }
+    }
+
+    /**
+     * Loads the children of a batch of node copies. Any failure is only logged, since the node is loaded again (and
+     * the failure shown) when it is clicked.
+     */
+    private void load( List<GenericTreeNode<String>> batch, int maxNodes ) {
+        List<GenericTreeNode<String>> centers = new ArrayList<GenericTreeNode<String>>();
+        List<GenericTreeNode<String>> information = new ArrayList<GenericTreeNode<String>>();
+        for( GenericTreeNode<String> node : batch ) {
+            (node.isCenterNode() ? centers : information).add( node );
+        }
+        try {
+            if( !centers.isEmpty() ) {
+                loader.loadAllInformationNodes( centers );
+            }
+            if( !information.isEmpty() ) {
+                loader.loadAllCenterNodes( information, maxNodes );
+            }
+        } catch( BadSetupException bse ) {
+            ExceptionUtils.handleMessage( "Could not prefetch " + batch.size() + " nodes: " + bse.getMessage() );
+        } catch( RuntimeException re ) {
+            ExceptionUtils.handleException( re );
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.rit.entityg.dataloaders;
+
+import edu.rit.entityg.exceptions.BadSetupException;
+import edu.rit.entityg.snapshot.SnapshotFile;
+import edu.rit.entityg.snapshot.SnapshotWriter;
+import edu.rit.entityg.treeimpl.GenericTreeNode;
+import java.util.List;
+
+/**
+ * Implements {@link DataSourceLoader} for a {@link DataSourceType#SNAPSHOT} data source: a {@link SnapshotFile} that
+ * a CSV file or a database query was compiled into by a {@link SnapshotWriter}. Every lookup is answered from the
+ * memory-mapped snapshot, so nothing is scanned or queried, and nothing but the returned data is parsed.
+ * <p/>The center nodes of an information node are paged: the number of center nodes that were already loaded is
+ * kept as the information node's continuation, for as long as there are more to load.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class SnapshotLoader implements DataSourceLoader {
+
+    private SnapshotFile snapshot;
+
+    /**
+     * Default constructor.
+     * @param snapshot The snapshot to load data from.
+     */
+    public SnapshotLoader( SnapshotFile snapshot ) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Nothing needs to be closed; the snapshot is unmapped once it is no longer used.
+     */
+    public void close() {
+    }
+
+    /**
+     * @param data The data of the first center node, or null (or an empty string) to start with the center node of
+     *             the first row of the data source.
+     */
+    public GenericTreeNode<String> loadAbsoluteParent( Object data ) throws BadSetupException {
+        String center = (String) data;
+        if( center == null || center.isEmpty() ) {
+            center = snapshot.getFirstCenter();
+            if( center == null ) {
+                throw new BadSetupException( snapshot.getFile() + " does not contain any center nodes." );
+            }
+        }
+        String[] information = snapshot.getInformation( center );
+        if( information == null ) {
+            throw new BadSetupException( "'" + center + "' is not a " + snapshot.getCenterColumnName() + " in "
+                                         + snapshot.getFile() + ". Please provide a first node entry that is." );
+        }
+        GenericTreeNode<String> rootParent = new GenericTreeNode<String>( true, center,
+                                                                          snapshot.getCenterColumnName() );
+        addInformationNodes( rootParent, information );
+        return rootParent;
+    }
+
+    /**
+     * @param data The data that is contained in <code>parent</code>. <code>parent</code> will be a center node.
+     */
+    public GenericTreeNode<String> loadInformationNodes( GenericTreeNode<String> parent, Object... data )
+            throws BadSetupException {
+        String[] information = snapshot.getInformation( (String) data[0] );
+        if( information != null ) {
+            addInformationNodes( parent, information );
+        }
+        return parent;
+    }
+
+    /**
+     * Loads the next <code>maxNodes</code> center nodes of <code>parent</code>.
+     * @param data Must be two strings: The data of the information node that the user clicked on, and that piece of
+     *             data's column name.
+     */
+    public GenericTreeNode<String> loadCenterNodes( GenericTreeNode<String> parent, int maxNodes, Object... data )
+            throws BadSetupException {
+        String informationNodeData = (String) data[0];
+        int column = snapshot.findInformationColumn( (String) data[1] );
+        if( column < 0 ) {
+            throw new BadSetupException( "'" + data[1] + "' is not an information node column of "
+                                         + snapshot.getFile() + "." );
+        }
+        int from = (parent.getContinuation() instanceof Integer) ? (Integer) parent.getContinuation() : 0;
+        String[] centers = snapshot.getCenters( column, informationNodeData, from, maxNodes );
+        for( String center : centers ) {
+            parent.addChild( new GenericTreeNode<String>( true, center, snapshot.getCenterColumnName() ) );
+        }
+        int loaded = from + centers.length;
+        parent.setContinuation( (loaded < snapshot.countCenters( column, informationNodeData ))
+                                ? Integer.valueOf( loaded ) : null );
+        return parent;
+    }
+
+    /**
+     * Every lookup in a snapshot is a few reads of the mapped file, so the information nodes of each parent are simply
+     * loaded one after the other.
+     */
+    public List<GenericTreeNode<String>> loadAllInformationNodes( List<GenericTreeNode<String>> parents )
+            throws BadSetupException {
+        for( GenericTreeNode<String> parent : parents ) {
+            loadInformationNodes( parent, parent.getData() );
+        }
+        return parents;
+    }
+
+    /**
+     * Every lookup in a snapshot is a few reads of the mapped file, so the center nodes of each parent are simply
+     * loaded one after the other.
+     */
+    public List<GenericTreeNode<String>> loadAllCenterNodes( List<GenericTreeNode<String>> parents, int maxNodes )
+            throws BadSetupException {
+        for( GenericTreeNode<String> parent : parents ) {
+            loadCenterNodes( parent, maxNodes, parent.getData(), parent.getDataHeader() );
+        }
+        return parents;
+    }
+
+    private void addInformationNodes( GenericTreeNode<String> parent, String[] information ) {
+        for( int i = 0; i < information.length; i++ ) {
+            if( information[i] != null ) {
+                parent.addChild( new GenericTreeNode<String>( false, information[i],
+                                                              snapshot.getInformationColumnName( i ) ) );
+            }
+        }
+    }
+}
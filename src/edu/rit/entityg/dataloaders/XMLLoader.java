@@ -2,6 +2,7 @@ package edu.rit.entityg.dataloaders;
 
 import edu.rit.entityg.exceptions.BadSetupException;
 import edu.rit.entityg.treeimpl.GenericTreeNode;
+import java.util.List;
 
 /**
  * @date Jun 7, 2011
@@ -25,4 +26,14 @@ public class XMLLoader implements DataSourceLoader {
         throw new UnsupportedOperationException( "Not supported yet." );
     }
 
+    public List<GenericTreeNode<String>> loadAllInformationNodes( List<GenericTreeNode<String>> parents )
+            throws BadSetupException {
+        throw new UnsupportedOperationException( "Not supported yet." );
+    }
+
+    public List<GenericTreeNode<String>> loadAllCenterNodes( List<GenericTreeNode<String>> parents, int maxNodes )
+            throws BadSetupException {
+        throw new UnsupportedOperationException( "Not supported yet." );
+    }
+
 }
@@ -0,0 +1,134 @@
+package edu.rit.entityg.prefuse;
+
+import java.util.Arrays;
+
+/**
+ * A set of undirected edges between the rows of the nodes of a {@link prefuse.data.Graph}, so whether two nodes are
+ * connected is answered in constant time, however many edges either node has. {@link prefuse.data.Graph#getEdge(
+ * prefuse.data.Node, prefuse.data.Node)} walks the edges of the source node instead.
+ * <p/>Each edge is kept as a single <code>long</code>, the smaller row in the high half and the larger row in the
+ * low half, in an open-addressing hash table with linear probing, so no objects are created per edge. Removed edges
+ * leave a marker behind, which is dropped the next time the table is rebuilt.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class EdgeSet {
+
+    private static final long EMPTY = -1L;
+    private static final long REMOVED = -2L;
+    private long[] table = newTable( 64 );
+    private int size = 0;
+    /**
+     * The number of slots that are not empty: edges and removed markers.
+     */
+    private int used = 0;
+
+    /**
+     * Adds the edge between the nodes of row <code>a</code> and row <code>b</code>.
+     * @return True if the edge was not in the set.
+     */
+    public boolean add( int a, int b ) {
+        long key = key( a, b );
+        int slot = find( key );
+        if( table[slot] == key ) {
+            return false;
+        }
+        if( (used + 1) * 2 > table.length ) {
+            rehash();
+            slot = find( key );
+        }
+        if( table[slot] == EMPTY ) {
+            used++;
+        }
+        table[slot] = key;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns true if there is an edge between the nodes of row <code>a</code> and row <code>b</code>, in either
+     * direction.
+     */
+    public boolean contains( int a, int b ) {
+        long key = key( a, b );
+        return table[find( key )] == key;
+    }
+
+    /**
+     * Removes the edge between the nodes of row <code>a</code> and row <code>b</code>.
+     * @return True if the edge was in the set.
+     */
+    public boolean remove( int a, int b ) {
+        long key = key( a, b );
+        int slot = find( key );
+        if( table[slot] != key ) {
+            return false;
+        }
+        table[slot] = REMOVED;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of edges in the set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every edge.
+     */
+    public void clear() {
+        Arrays.fill( table, EMPTY );
+        size = 0;
+        used = 0;
+    }
+
+    private static long key( int a, int b ) {
+        return (a < b) ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /**
+     * Returns the slot of <code>key</code>, or otherwise the slot it would be added in: the first removed slot on its
+     * probe sequence, or the empty slot that ends it.
+     */
+    private int find( long key ) {
+        int mask = table.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        int free = -1;
+        while( true ) {
+            long current = table[slot];
+            if( current == key ) {
+                return slot;
+            }
+            if( current == EMPTY ) {
+                return (free >= 0) ? free : slot;
+            }
+            if( current == REMOVED && free < 0 ) {
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Rebuilds the table without removed markers, twice as large if it is at least a quarter full of edges.
+     */
+    private void rehash() {
+        long[] old = table;
+        table = newTable( (size * 4 >= old.length) ? old.length * 2 : old.length );
+        used = size;
+        for( long key : old ) {
+            if( key >= 0 ) {
+                table[find( key )] = key;
+            }
+        }
+    }
+
+    private static long[] newTable( int capacity ) {
+        long[] table = new long[capacity];
+        Arrays.fill( table, EMPTY );
+        return table;
+    }
+}
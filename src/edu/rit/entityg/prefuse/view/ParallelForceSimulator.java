@@ -0,0 +1,723 @@
+package edu.rit.entityg.prefuse.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import prefuse.util.force.DragForce;
+import prefuse.util.force.Force;
+import prefuse.util.force.ForceItem;
+import prefuse.util.force.ForceSimulator;
+import prefuse.util.force.NBodyForce;
+import prefuse.util.force.RungeKuttaIntegrator;
+import prefuse.util.force.Spring;
+import prefuse.util.force.SpringForce;
+
+/**
+ * A {@link ForceSimulator} which runs each step of the layout across all cores, so the layout keeps up with graphs of
+ * tens of thousands of nodes. It matches prefuse's forces ({@link NBodyForce}, {@link DragForce} and
+ * {@link SpringForce}, with the parameters they are set to) and integration (a {@link RungeKuttaIntegrator}) up to
+ * floating-point summation order and random jitter: forces are summed in a different order, and coincident items are
+ * pushed apart by different random numbers, so positions are close to prefuse's but not the same. A step is run as
+ * follows:
+ * <ul>
+ * <li>The positions, velocities and forces of the items are copied into primitive <code>float</code> arrays at the
+ * start of a step, and back into the {@link ForceItem}s at the end of it.</li>
+ * <li>The Barnes-Hut quadtree is built by partitioning the items in place, one quadrant per fork/join task, and is
+ * kept in arrays as well, so no objects are created per node of the tree.</li>
+ * <li>The forces on the items, and each stage of the integration, are computed over ranges of items in parallel. The
+ * springs of each item are kept next to each other, and each item adds up its own end of its springs, so no two
+ * threads write to the same item.</li>
+ * </ul>
+ * If any other force or integrator is used, the step is run by {@link ForceSimulator} instead.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class ParallelForceSimulator extends ForceSimulator {
+
+    /**
+     * The number of items below which a range of items is not split into more tasks.
+     */
+    private static final int GRAIN = 256;
+    /**
+     * The number of items below which a quadrant of the quadtree is built on one thread.
+     */
+    private static final int BUILD_GRAIN = 2048;
+    /**
+     * The size below which a cell of the quadtree is not split, the same distance under which {@link NBodyForce}
+     * treats two items as being in the same place. The items of such a cell are kept in a single leaf.
+     */
+    private static final float MIN_CELL_SIZE = 0.01f;
+    private static final int STAGES = 4;
+    private final ForkJoinPool pool;
+    /**
+     * The parameters of the forces of the current step.
+     */
+    private boolean nbody;
+    private float gravConstant;
+    private float minDistance;
+    private float theta;
+    private float drag;
+    private boolean springs;
+    private float springCoeff;
+    private float springLength;
+    /**
+     * The items of the current step, and the index of each of them in the arrays below. The index is only rebuilt
+     * when the items change.
+     */
+    private ForceItem[] items = new ForceItem[0];
+    private final IdentityHashMap<ForceItem, Integer> indices = new IdentityHashMap<ForceItem, Integer>();
+    private int n = 0;
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] vx = new float[0];
+    private float[] vy = new float[0];
+    private float[] fx = new float[0];
+    private float[] fy = new float[0];
+    private float[] mass = new float[0];
+    private float[] px = new float[0];
+    private float[] py = new float[0];
+    /**
+     * The change of position (k) and of velocity (l) of each item at each stage of the integration.
+     */
+    private float[][] kx = new float[STAGES][0];
+    private float[][] ky = new float[STAGES][0];
+    private float[][] lx = new float[STAGES][0];
+    private float[][] ly = new float[STAGES][0];
+    /**
+     * The springs of item <code>i</code> are <code>springStart[i]</code> up to <code>springStart[i + 1]</code>: the
+     * item at the other end, the coefficient and the rest length of each. Every spring is kept once for each end.
+     */
+    private int[] springStart = new int[1];
+    private int[] springOther = new int[0];
+    private float[] springK = new float[0];
+    private float[] springRest = new float[0];
+    /**
+     * The quadtree. The items of the tree are ordered so that the items of every cell are <code>order[start]</code>
+     * up to <code>order[end]</code>. A cell has four children (-1 if empty), or none if it is a leaf.
+     */
+    private int[] order = new int[0];
+    private int capacity = 0;
+    private int[] cellChild = new int[0];
+    private int[] cellStart = new int[0];
+    private int[] cellEnd = new int[0];
+    private float[] cellSize = new float[0];
+    private float[] cellMass = new float[0];
+    private float[] cellX = new float[0];
+    private float[] cellY = new float[0];
+    private final AtomicInteger cells = new AtomicInteger();
+    private volatile boolean overflow;
+    private int root = -1;
+
+    /**
+     * Creates a simulator which runs on all available cores.
+     */
+    public ParallelForceSimulator() {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Creates a simulator which runs on <code>threads</code> threads.
+     */
+    public ParallelForceSimulator( int threads ) {
+        super( new RungeKuttaIntegrator() );
+        this.pool = new ForkJoinPool( Math.max( 1, threads ) );
+    }
+
+    @Override
+    public void runSimulator( final long timestep ) {
+        if( !readForces() ) {
+            super.runSimulator( timestep );
+            return;
+        }
+        gather();
+        if( n == 0 ) {
+            return;
+        }
+        pool.invoke( new RecursiveAction() {
+
+            @Override
+            protected void compute() {
+                step( timestep );
+            }
+        } );
+        scatter();
+    }
+
+    /**
+     * Reads the parameters of the forces of the simulator.
+     * @return False if the simulator has a force or an integrator which this class does not compute.
+     */
+    private boolean readForces() {
+        if( !(getIntegrator() instanceof RungeKuttaIntegrator) ) {
+            return false;
+        }
+        nbody = false;
+        springs = false;
+        drag = 0;
+        boolean dragged = false;
+        for( Force force : getForces() ) {
+            if( force instanceof NBodyForce && !nbody ) {
+                nbody = true;
+                gravConstant = force.getParameter( NBodyForce.GRAVITATIONAL_CONST );
+                minDistance = force.getParameter( NBodyForce.MIN_DISTANCE );
+                theta = force.getParameter( NBodyForce.BARNES_HUT_THETA );
+            } else if( force instanceof DragForce && !dragged ) {
+                dragged = true;
+                drag = force.getParameter( DragForce.DRAG_COEFF );
+            } else if( force instanceof SpringForce && !springs ) {
+                springs = true;
+                springCoeff = force.getParameter( SpringForce.SPRING_COEFF );
+                springLength = force.getParameter( SpringForce.SPRING_LENGTH );
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the items and springs of the simulator into the arrays.
+     */
+    private void gather() {
+        List<ForceItem> current = new ArrayList<ForceItem>();
+        for( Iterator<?> it = getItems(); it.hasNext(); ) {
+            current.add( (ForceItem) it.next() );
+        }
+        boolean same = current.size() == items.length;
+        for( int i = 0; same && i < items.length; i++ ) {
+            same = current.get( i ) == items[i];
+        }
+        if( !same ) {
+            items = current.toArray( new ForceItem[current.size()] );
+            n = items.length;
+            indices.clear();
+            for( int i = 0; i < n; i++ ) {
+                indices.put( items[i], i );
+            }
+            if( x.length < n ) {
+                allocate( Math.max( n, x.length * 3 / 2 ) );
+            }
+        }
+        for( int i = 0; i < n; i++ ) {
+            ForceItem item = items[i];
+            x[i] = item.location[0];
+            y[i] = item.location[1];
+            vx[i] = item.velocity[0];
+            vy[i] = item.velocity[1];
+            mass[i] = item.mass;
+        }
+        gatherSprings();
+    }
+
+    private void allocate( int size ) {
+        x = new float[size];
+        y = new float[size];
+        vx = new float[size];
+        vy = new float[size];
+        fx = new float[size];
+        fy = new float[size];
+        mass = new float[size];
+        px = new float[size];
+        py = new float[size];
+        kx = new float[STAGES][size];
+        ky = new float[STAGES][size];
+        lx = new float[STAGES][size];
+        ly = new float[STAGES][size];
+        springStart = new int[size + 1];
+        order = new int[size];
+    }
+
+    /**
+     * Sorts the springs of the simulator by item, once for each end.
+     */
+    private void gatherSprings() {
+        List<Spring> all = new ArrayList<Spring>();
+        if( springs ) {
+            for( Iterator<?> it = getSprings(); it.hasNext(); ) {
+                all.add( (Spring) it.next() );
+            }
+        }
+        int[] ends = new int[all.size() * 2];
+        Arrays.fill( springStart, 0, n + 1, 0 );
+        for( int s = 0; s < all.size(); s++ ) {
+            Integer a = indices.get( all.get( s ).item1 );
+            Integer b = indices.get( all.get( s ).item2 );
+            ends[2 * s] = (a == null || b == null) ? -1 : a;
+            ends[2 * s + 1] = (a == null || b == null) ? -1 : b;
+            if( a != null && b != null ) {
+                springStart[a + 1]++;
+                springStart[b + 1]++;
+            }
+        }
+        for( int i = 0; i < n; i++ ) {
+            springStart[i + 1] += springStart[i];
+        }
+        int total = springStart[n];
+        if( springOther.length < total ) {
+            springOther = new int[total];
+            springK = new float[total];
+            springRest = new float[total];
+        }
+        int[] next = new int[n];
+        System.arraycopy( springStart, 0, next, 0, n );
+        for( int s = 0; s < all.size(); s++ ) {
+            int a = ends[2 * s];
+            int b = ends[2 * s + 1];
+            if( a < 0 ) {
+                continue;
+            }
+            Spring spring = all.get( s );
+            float k = (spring.coeff < 0) ? springCoeff : spring.coeff;
+            float rest = (spring.length < 0) ? springLength : spring.length;
+            addSpring( next[a]++, b, k, rest );
+            addSpring( next[b]++, a, k, rest );
+        }
+    }
+
+    private void addSpring( int slot, int other, float k, float rest ) {
+        springOther[slot] = other;
+        springK[slot] = k;
+        springRest[slot] = rest;
+    }
+
+    /**
+     * Copies the new positions, velocities and forces back into the items.
+     */
+    private void scatter() {
+        for( int i = 0; i < n; i++ ) {
+            ForceItem item = items[i];
+            item.plocation[0] = px[i];
+            item.plocation[1] = py[i];
+            item.location[0] = x[i];
+            item.location[1] = y[i];
+            item.velocity[0] = vx[i];
+            item.velocity[1] = vy[i];
+            item.force[0] = fx[i];
+            item.force[1] = fy[i];
+        }
+    }
+
+    /**
+     * Runs one step of fourth order Runge-Kutta integration, the same as {@link RungeKuttaIntegrator}: the forces are
+     * computed at the start of the step and at three predicted positions, and the step is their weighted average.
+     * Velocities are limited to the speed limit of the simulator.
+     */
+    private void step( long timestep ) {
+        final float dt = timestep;
+        final float limit = getSpeedLimit();
+        accumulateForces();
+        forEach( new Loop() {
+
+            void run( int lo, int hi ) {
+                for( int i = lo; i < hi; i++ ) {
+                    float coeff = dt / mass[i];
+                    px[i] = x[i];
+                    py[i] = y[i];
+                    kx[0][i] = dt * vx[i];
+                    ky[0][i] = dt * vy[i];
+                    lx[0][i] = coeff * fx[i];
+                    ly[0][i] = coeff * fy[i];
+                    x[i] += 0.5f * kx[0][i];
+                    y[i] += 0.5f * ky[0][i];
+                }
+            }
+        } );
+        for( int stage = 1; stage < STAGES; stage++ ) {
+            final int s = stage;
+            //The middle stages start from half of the change in velocity of the stage before, the last one from all
+            //of it. Both middle stages predict the position half a step ahead, as RungeKuttaIntegrator does.
+            final float before = (s < STAGES - 1) ? 0.5f : 1f;
+            final float ahead = 0.5f;
+            accumulateForces();
+            forEach( new Loop() {
+
+                void run( int lo, int hi ) {
+                    for( int i = lo; i < hi; i++ ) {
+                        float coeff = dt / mass[i];
+                        float ux = vx[i] + before * lx[s - 1][i];
+                        float uy = vy[i] + before * ly[s - 1][i];
+                        float v = (float) Math.sqrt( ux * ux + uy * uy );
+                        if( v > limit ) {
+                            ux = limit * ux / v;
+                            uy = limit * uy / v;
+                        }
+                        kx[s][i] = dt * ux;
+                        ky[s][i] = dt * uy;
+                        lx[s][i] = coeff * fx[i];
+                        ly[s][i] = coeff * fy[i];
+                        if( s < STAGES - 1 ) {
+                            x[i] = px[i] + ahead * kx[s][i];
+                            y[i] = py[i] + ahead * ky[s][i];
+                        } else {
+                            finish( i, limit );
+                        }
+                    }
+                }
+            } );
+        }
+    }
+
+    /**
+     * Moves item <code>i</code> by the weighted average of the changes of the four stages, and changes its velocity
+     * the same way.
+     */
+    private void finish( int i, float limit ) {
+        x[i] = px[i] + (kx[0][i] + kx[3][i]) / 6.0f + (kx[1][i] + kx[2][i]) / 3.0f;
+        y[i] = py[i] + (ky[0][i] + ky[3][i]) / 6.0f + (ky[1][i] + ky[2][i]) / 3.0f;
+        float dvx = (lx[0][i] + lx[3][i]) / 6.0f + (lx[1][i] + lx[2][i]) / 3.0f;
+        float dvy = (ly[0][i] + ly[3][i]) / 6.0f + (ly[1][i] + ly[2][i]) / 3.0f;
+        float dv = (float) Math.sqrt( dvx * dvx + dvy * dvy );
+        if( dv > limit ) {
+            dvx = limit * dvx / dv;
+            dvy = limit * dvy / dv;
+        }
+        vx[i] += dvx;
+        vy[i] += dvy;
+    }
+
+    /**
+     * Computes the force on every item at its current position into <code>fx</code> and <code>fy</code>: the n-body
+     * force through the quadtree, the drag of its velocity, and its springs.
+     */
+    private void accumulateForces() {
+        if( nbody ) {
+            buildTree();
+        }
+        forEach( new Loop() {
+
+            void run( int lo, int hi ) {
+                for( int j = lo; j < hi; j++ ) {
+                    //In the order of the quadtree, items which are close to each other walk the same cells.
+                    int i = nbody ? order[j] : j;
+                    fx[i] = 0;
+                    fy[i] = 0;
+                    if( nbody && root >= 0 ) {
+                        nbodyForce( i, root );
+                    }
+                    fx[i] -= drag * vx[i];
+                    fy[i] -= drag * vy[i];
+                    for( int s = springStart[i]; s < springStart[i + 1]; s++ ) {
+                        springForce( i, s );
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * Adds the force of the items of <code>cell</code> on item <code>i</code>, the same way as {@link NBodyForce}: a
+     * cell which is small enough for how far away it is, compared to theta, pulls as a single item at its center of
+     * mass, and otherwise each of its children pulls on its own.
+     */
+    private void nbodyForce( int i, int cell ) {
+        float dx = cellX[cell] - x[i];
+        float dy = cellY[cell] - y[i];
+        float r = (float) Math.sqrt( dx * dx + dy * dy );
+        boolean leaf = cellChild[4 * cell] == -2;
+        if( leaf || r == 0 || cellSize[cell] / r >= theta ) {
+            if( leaf ) {
+                for( int j = cellStart[cell]; j < cellEnd[cell]; j++ ) {
+                    if( order[j] != i ) {
+                        pairForce( i, order[j] );
+                    }
+                }
+            } else {
+                for( int c = 0; c < 4; c++ ) {
+                    if( cellChild[4 * cell + c] >= 0 ) {
+                        nbodyForce( i, cellChild[4 * cell + c] );
+                    }
+                }
+            }
+            return;
+        }
+        if( minDistance > 0 && r > minDistance ) {
+            return;
+        }
+        float v = gravConstant * mass[i] * cellMass[cell] / (r * r * r);
+        fx[i] += v * dx;
+        fy[i] += v * dy;
+    }
+
+    /**
+     * Adds the force of item <code>j</code> on item <code>i</code>. Items in the same place are pushed apart in a
+     * random direction.
+     */
+    private void pairForce( int i, int j ) {
+        float dx = x[j] - x[i];
+        float dy = y[j] - y[i];
+        float r = (float) Math.sqrt( dx * dx + dy * dy );
+        if( r == 0 ) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            dx = (random.nextFloat() - 0.5f) / 50.0f;
+            dy = (random.nextFloat() - 0.5f) / 50.0f;
+            r = (float) Math.sqrt( dx * dx + dy * dy );
+        }
+        if( minDistance > 0 && r > minDistance ) {
+            return;
+        }
+        float v = gravConstant * mass[i] * mass[j] / (r * r * r);
+        fx[i] += v * dx;
+        fy[i] += v * dy;
+    }
+
+    /**
+     * Adds the force of spring <code>s</code> on item <code>i</code>, the same way as {@link SpringForce}.
+     */
+    private void springForce( int i, int s ) {
+        int j = springOther[s];
+        float dx = x[j] - x[i];
+        float dy = y[j] - y[i];
+        float r = (float) Math.sqrt( dx * dx + dy * dy );
+        if( r == 0 ) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            dx = (random.nextFloat() - 0.5f) / 50.0f;
+            dy = (random.nextFloat() - 0.5f) / 50.0f;
+            r = (float) Math.sqrt( dx * dx + dy * dy );
+        }
+        float coeff = springK[s] * (r - springRest[s]) / r;
+        fx[i] += coeff * dx;
+        fy[i] += coeff * dy;
+    }
+
+    /**
+     * Builds the quadtree of the current positions. Its bounds are the square that holds every item, the same as the
+     * bounds of {@link NBodyForce}. If the tree does not fit in the cell arrays, they are made larger and the tree is
+     * built again.
+     */
+    private void buildTree() {
+        float x1 = Float.MAX_VALUE;
+        float y1 = Float.MAX_VALUE;
+        float x2 = -Float.MAX_VALUE;
+        float y2 = -Float.MAX_VALUE;
+        for( int i = 0; i < n; i++ ) {
+            //Compared like NBodyForce does, so an item with no position does not make the bounds NaN.
+            if( x[i] < x1 ) {
+                x1 = x[i];
+            }
+            if( y[i] < y1 ) {
+                y1 = y[i];
+            }
+            if( x[i] > x2 ) {
+                x2 = x[i];
+            }
+            if( y[i] > y2 ) {
+                y2 = y[i];
+            }
+            order[i] = i;
+        }
+        if( x2 - x1 > y2 - y1 ) {
+            y2 = y1 + (x2 - x1);
+        } else {
+            x2 = x1 + (y2 - y1);
+        }
+        if( capacity < 2 * n + 16 ) {
+            allocateCells( 4 * n + 16 );
+        }
+        while( true ) {
+            cells.set( 0 );
+            overflow = false;
+            root = new BuildTask( 0, n, x1, y1, x2, y2 ).build();
+            if( !overflow ) {
+                return;
+            }
+            allocateCells( capacity * 2 );
+        }
+    }
+
+    private void allocateCells( int size ) {
+        capacity = size;
+        cellChild = new int[4 * size];
+        cellStart = new int[size];
+        cellEnd = new int[size];
+        cellSize = new float[size];
+        cellMass = new float[size];
+        cellX = new float[size];
+        cellY = new float[size];
+    }
+
+    /**
+     * Builds the cell of the quadtree which holds the items <code>order[start]</code> up to <code>order[end]</code>:
+     * splits the items into the four quadrants of the cell, builds a child cell for each quadrant, and adds up their
+     * mass. Quadrants with many items are built by tasks of their own.
+     */
+    private class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final int start;
+        private final int end;
+        private final float x1;
+        private final float y1;
+        private final float x2;
+        private final float y2;
+        private int cell = -1;
+
+        private BuildTask( int start, int end, float x1, float y1, float x2, float y2 ) {
+            this.start = start;
+            this.end = end;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        /**
+         * Builds the cell on the calling thread, apart from the quadrants it forks.
+         * @return The cell, or -1 if the cell arrays are full.
+         */
+        private int build() {
+            compute();
+            return cell;
+        }
+
+        @Override
+        protected void compute() {
+            cell = cells.getAndIncrement();
+            if( cell >= capacity ) {
+                overflow = true;
+                cell = -1;
+                return;
+            }
+            cellStart[cell] = start;
+            cellEnd[cell] = end;
+            cellSize[cell] = x2 - x1;
+            //A NaN size is a leaf as well, so an item with no position can't split cells forever.
+            if( end - start == 1 || !(x2 - x1 >= MIN_CELL_SIZE) ) {
+                leaf();
+                return;
+            }
+            float sx = (x1 + x2) / 2;
+            float sy = (y1 + y2) / 2;
+            //Quadrant c is to the right of sx if (c & 1) != 0, and below sy if c > 1, the same as in NBodyForce.
+            int middle = partition( start, end, y, sy );
+            int[] bounds = { start, partition( start, middle, x, sx ), middle, partition( middle, end, x, sx ), end };
+            BuildTask[] quadrants = new BuildTask[4];
+            for( int c = 0; c < 4; c++ ) {
+                if( bounds[c + 1] > bounds[c] ) {
+                    boolean right = (c & 1) != 0;
+                    boolean below = c > 1;
+                    quadrants[c] = new BuildTask( bounds[c], bounds[c + 1], right ? sx : x1, below ? sy : y1,
+                                                  right ? x2 : sx, below ? y2 : sy );
+                    if( bounds[c + 1] - bounds[c] > BUILD_GRAIN ) {
+                        quadrants[c].fork();
+                    }
+                }
+            }
+            //Small quadrants are built here while other threads build the large ones.
+            for( int c = 0; c < 4; c++ ) {
+                if( quadrants[c] != null && bounds[c + 1] - bounds[c] <= BUILD_GRAIN ) {
+                    quadrants[c].compute();
+                }
+            }
+            for( int c = 0; c < 4; c++ ) {
+                if( quadrants[c] != null && bounds[c + 1] - bounds[c] > BUILD_GRAIN ) {
+                    quadrants[c].join();
+                }
+            }
+            float m = 0;
+            float mx = 0;
+            float my = 0;
+            for( int c = 0; c < 4; c++ ) {
+                int child = (quadrants[c] == null) ? -1 : quadrants[c].cell;
+                if( quadrants[c] != null && child < 0 ) {
+                    return;
+                }
+                cellChild[4 * cell + c] = child;
+                if( child >= 0 ) {
+                    m += cellMass[child];
+                    mx += cellMass[child] * cellX[child];
+                    my += cellMass[child] * cellY[child];
+                }
+            }
+            setCenter( m, mx, my );
+        }
+
+        /**
+         * Makes the cell a leaf, which holds all of its items.
+         */
+        private void leaf() {
+            cellChild[4 * cell] = -2;
+            float m = 0;
+            float mx = 0;
+            float my = 0;
+            for( int j = start; j < end; j++ ) {
+                int i = order[j];
+                m += mass[i];
+                mx += mass[i] * x[i];
+                my += mass[i] * y[i];
+            }
+            setCenter( m, mx, my );
+        }
+
+        private void setCenter( float m, float mx, float my ) {
+            cellMass[cell] = m;
+            cellX[cell] = (m == 0) ? (x1 + x2) / 2 : mx / m;
+            cellY[cell] = (m == 0) ? (y1 + y2) / 2 : my / m;
+        }
+    }
+
+    /**
+     * Reorders <code>order[start]</code> up to <code>order[end]</code> so the items whose coordinate is below
+     * <code>split</code> come first.
+     * @return The index of the first item whose coordinate is not below <code>split</code>.
+     */
+    private int partition( int start, int end, float[] coordinate, float split ) {
+        int lo = start;
+        int hi = end - 1;
+        while( lo <= hi ) {
+            if( coordinate[order[lo]] < split ) {
+                lo++;
+            } else {
+                int swap = order[lo];
+                order[lo] = order[hi];
+                order[hi--] = swap;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Runs <code>loop</code> over every item, in ranges of items split across the threads of the pool. This must be
+     * called from a task of the pool.
+     */
+    private void forEach( Loop loop ) {
+        new LoopTask( loop, 0, n ).invoke();
+    }
+
+    /**
+     * The work of a step for a range of items.
+     */
+    private abstract static class Loop {
+
+        abstract void run( int lo, int hi );
+    }
+
+    private static class LoopTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final Loop loop;
+        private final int lo;
+        private final int hi;
+
+        private LoopTask( Loop loop, int lo, int hi ) {
+            this.loop = loop;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if( hi - lo <= GRAIN ) {
+                loop.run( lo, hi );
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll( new LoopTask( loop, lo, mid ), new LoopTask( loop, mid, hi ) );
+        }
+    }
+}
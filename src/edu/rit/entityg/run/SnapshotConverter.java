@@ -0,0 +1,32 @@
+package edu.rit.entityg.run;
+
+import edu.rit.entityg.configure.EntityGConfiguration;
+
+/**
+ * Compiles a database or CSV data source into a snapshot file, which can then be loaded with a
+ * <code>snapshot</code> data source type. The data source is configured exactly as it is to run EntityG (with
+ * command-line arguments and/or a configuration file), plus the <code>snapshot_file</code> option to name the
+ * snapshot file to write. For example:
+ * <br/><code>SnapshotConverter -config_file entityg.ini -snapshot_file data.egs</code>
+ * <p/>A database is read with a single streamed query. If the <code>high_water_mark_column</code> option is set,
+ * converting into the same snapshot file again refreshes it with only the rows that were added since it was written.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class SnapshotConverter {
+
+    public static void main( String[] args ) {
+        try {
+            EntityGConfiguration config = new EntityGConfiguration( args );
+            long start = System.currentTimeMillis();
+            config.writeSnapshot();
+            System.out.println( "Wrote the snapshot in " + (System.currentTimeMillis() - start) + "ms." );
+        } catch( Exception e ) {
+            System.err.println( e.getMessage() );
+            e.printStackTrace();
+            //No snapshot was written, which scripts running the conversion need to see.
+            System.exit( 1 );
+        }
+        System.exit( 0 );
+    }
+}
@@ -0,0 +1,426 @@
+package edu.rit.entityg.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A read-only, memory-mapped snapshot of an entity graph: the center nodes of a data source, the information nodes of
+ * each center node, and the center nodes of each information node. A snapshot is written once by a
+ * {@link SnapshotWriter}, and every lookup is then answered straight from the mapped file, without parsing anything
+ * but the strings that are returned.
+ * <p/>Every distinct string (node data and column names) is stored once, in a string table, and everything else refers
+ * to strings by their id. The file has the following layout, with every number a big-endian <code>int</code>:
+ * <ul>
+ * <li>Header: magic number, version, number of columns (the center node column, followed by the information node
+ * columns), number of strings, capacity of the string hash table, number of center nodes, the first center node,
+ * the length of the string data, and the string ids of the high-water mark column and its high-water mark (or -1 if
+ * the snapshot was not written with one). Version 1 snapshots have no high-water mark.</li>
+ * <li>The string id of each column name, and the number of distinct values of each information node column.</li>
+ * <li>String table: the start of each string in the string data, followed by the end of the last one.</li>
+ * <li>String hash table: an open-addressing table of string ids (plus one, so zero is an empty slot), which finds the
+ * id of a string.</li>
+ * <li>Center nodes: the string id of each center node, sorted, followed by the string ids of the information nodes
+ * of each center node (-1 for a missing value).</li>
+ * <li>For every information node column, the information nodes in CSR form: the string id of each value, sorted, the
+ * start of the center nodes of each value, followed by the end of the last one, and the string ids of the center
+ * nodes of every value, one value after the other.</li>
+ * <li>String data: every string, encoded as UTF-8.</li>
+ * </ul>
+ * A snapshot is mapped with a single {@link MappedByteBuffer}, so it can be at most {@link Integer#MAX_VALUE} bytes.
+ * Since each string is only stored once, that is a lot more than the size of the data source.
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class SnapshotFile {
+
+    static final int MAGIC = 0x4547534E;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 10 * 4;
+    static final Charset CHARSET = Charset.forName( "UTF-8" );
+    private static final String[] NO_STRINGS = new String[0];
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int columnCount;
+    private final int stringCount;
+    private final int hashCapacity;
+    private final int centerCount;
+    private final int firstCenter;
+    private final int highWaterMarkColumn;
+    private final int highWaterMark;
+    private final int[] columnNames;
+    private final int stringOffsets;
+    private final int hashTable;
+    private final int centerIds;
+    private final int centerInformation;
+    /**
+     * For each information node column, the number of distinct values, and the positions of the sorted values, their
+     * starts, and their center nodes.
+     */
+    private final int[] keyCounts;
+    private final int[] keys;
+    private final int[] starts;
+    private final int[] targets;
+    private final int stringData;
+
+    private SnapshotFile( File file, ByteBuffer buffer ) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if( buffer.capacity() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC ) {
+            throw new IOException( file + " is not an EntityG snapshot." );
+        }
+        int version = buffer.getInt( 4 );
+        if( version != 1 && version != VERSION ) {
+            throw new IOException( file + " is a snapshot of version " + version + ", but only versions 1 to "
+                                   + VERSION + " can be read. Convert the data source again." );
+        }
+        this.columnCount = buffer.getInt( 8 );
+        this.stringCount = buffer.getInt( 12 );
+        this.hashCapacity = buffer.getInt( 16 );
+        this.centerCount = buffer.getInt( 20 );
+        this.firstCenter = buffer.getInt( 24 );
+        int stringDataLength = buffer.getInt( 28 );
+        this.highWaterMarkColumn = (version == 1) ? -1 : buffer.getInt( 32 );
+        this.highWaterMark = (version == 1) ? -1 : buffer.getInt( 36 );
+        int width = columnCount - 1;
+
+        int position = (version == 1) ? 8 * 4 : HEADER_SIZE;
+        this.columnNames = new int[columnCount];
+        for( int i = 0; i < columnCount; i++, position += 4 ) {
+            columnNames[i] = buffer.getInt( position );
+        }
+        this.keyCounts = new int[width];
+        for( int i = 0; i < width; i++, position += 4 ) {
+            keyCounts[i] = buffer.getInt( position );
+        }
+        this.stringOffsets = position;
+        position += 4 * (stringCount + 1);
+        this.hashTable = position;
+        position += 4 * hashCapacity;
+        this.centerIds = position;
+        position += 4 * centerCount;
+        this.centerInformation = position;
+        position += 4 * centerCount * width;
+        this.keys = new int[width];
+        this.starts = new int[width];
+        this.targets = new int[width];
+        for( int i = 0; i < width; i++ ) {
+            keys[i] = position;
+            position += 4 * keyCounts[i];
+            starts[i] = position;
+            position += 4 * (keyCounts[i] + 1);
+            targets[i] = position;
+            position += 4 * buffer.getInt( starts[i] + 4 * keyCounts[i] );
+        }
+        this.stringData = position;
+        if( (long) stringData + stringDataLength != buffer.capacity() ) {
+            throw new IOException( file + " is not a complete snapshot." );
+        }
+    }
+
+    /**
+     * Maps a snapshot into memory.
+     * @param file The snapshot file.
+     * @return The snapshot.
+     * @throws IOException If the file could not be mapped, or is not a snapshot.
+     */
+    public static SnapshotFile open( File file ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            if( channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException( file + " is larger than a snapshot can be." );
+            }
+            return new SnapshotFile( file, channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+        } finally {
+            //A mapping stays valid after its channel has been closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot into memory, instead of mapping it. A mapping can't be released before it is garbage
+     * collected, and on some platforms a mapped file can't be replaced, so a snapshot that is about to be replaced is
+     * read this way.
+     * @param file The snapshot file.
+     * @return The snapshot, which no longer refers to <code>file</code>'s contents.
+     * @throws IOException If the file could not be read, or is not a snapshot.
+     */
+    static SnapshotFile read( File file ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            if( channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException( file + " is larger than a snapshot can be." );
+            }
+            ByteBuffer buffer = ByteBuffer.allocate( (int) channel.size() );
+            while( buffer.hasRemaining() ) {
+                if( channel.read( buffer ) < 0 ) {
+                    throw new IOException( file + " was truncated while it was read." );
+                }
+            }
+            return new SnapshotFile( file, buffer );
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * The hash of a string in the string hash table.
+     */
+    static int hash( String value ) {
+        int h = value.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of information node columns.
+     */
+    public int getInformationColumnCount() {
+        return columnCount - 1;
+    }
+
+    /**
+     * Returns the name of the center node column.
+     */
+    public String getCenterColumnName() {
+        return getString( columnNames[0] );
+    }
+
+    /**
+     * Returns the name of an information node column.
+     * @param column The (zero-based) information node column number.
+     */
+    public String getInformationColumnName( int column ) {
+        return getString( columnNames[column + 1] );
+    }
+
+    /**
+     * Looks up an information node column by name.
+     * @param name The name of the column.
+     * @return The (zero-based) number of the first information node column named <code>name</code>, or
+     *         <code>-1</code> if there is no such column.
+     */
+    public int findInformationColumn( String name ) {
+        int id = idOf( name );
+        for( int i = 1; i < columnCount && id >= 0; i++ ) {
+            if( columnNames[i] == id ) {
+                return i - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of center nodes.
+     */
+    public int getCenterCount() {
+        return centerCount;
+    }
+
+    /**
+     * Returns the center node of the first row of the data source, or null if there are no center nodes.
+     */
+    public String getFirstCenter() {
+        return (firstCenter < 0) ? null : getString( firstCenter );
+    }
+
+    /**
+     * Returns the name of the column whose high-water mark was kept when the snapshot was written, or null if none
+     * was.
+     */
+    public String getHighWaterMarkColumnName() {
+        return (highWaterMarkColumn < 0) ? null : getString( highWaterMarkColumn );
+    }
+
+    /**
+     * Returns the largest value of the high-water mark column in the rows of the snapshot, or null if none was kept
+     * (or there were no rows).
+     */
+    public String getHighWaterMark() {
+        return (highWaterMark < 0) ? null : getString( highWaterMark );
+    }
+
+    /**
+     * Adds rows which make up this snapshot to <code>writer</code>, so a snapshot can be written with more rows than
+     * this one. The rows are not the rows this snapshot was written from, which are not kept, but they give the same
+     * snapshot: the first row of each center node (the first center node first) has all of its information nodes,
+     * and there is a row for every other information node of the center node, with only that information node in it.
+     * The center nodes of an information node keep their order, except that the center nodes whose first row has the
+     * information node come first.
+     * @param writer A writer with the same columns as this snapshot.
+     */
+    void copyRows( SnapshotWriter writer ) {
+        int width = columnCount - 1;
+        String[] values = new String[width];
+        int first = search( centerIds, centerCount, firstCenter );
+        for( int k = -1; k < centerCount; k++ ) {
+            int index = (k < 0) ? first : k;
+            if( index < 0 || (k >= 0 && index == first) ) {
+                continue;
+            }
+            int position = centerInformation + 4 * index * width;
+            for( int i = 0; i < width; i++, position += 4 ) {
+                int id = buffer.getInt( position );
+                values[i] = (id < 0) ? null : getString( id );
+            }
+            writer.addRow( getString( buffer.getInt( centerIds + 4 * index ) ), values );
+        }
+        boolean[] inFirstRow = new boolean[centerCount];
+        for( int column = 0; column < width; column++ ) {
+            Arrays.fill( values, null );
+            Arrays.fill( inFirstRow, false );
+            for( int key = 0; key < keyCounts[column]; key++ ) {
+                int value = buffer.getInt( keys[column] + 4 * key );
+                int start = buffer.getInt( starts[column] + 4 * key );
+                int end = buffer.getInt( starts[column] + 4 * (key + 1) );
+                for( int i = start; i < end; i++ ) {
+                    int center = buffer.getInt( targets[column] + 4 * i );
+                    int index = search( centerIds, centerCount, center );
+                    //The first row of the center node was added already, once.
+                    if( !inFirstRow[index]
+                        && buffer.getInt( centerInformation + 4 * (index * width + column) ) == value ) {
+                        inFirstRow[index] = true;
+                        continue;
+                    }
+                    values[column] = getString( value );
+                    writer.addRow( getString( center ), values );
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the information node data of a center node.
+     * @param center The center node data.
+     * @return The data of each information node column, which is null if the center node has no value in that column,
+     *         or null if <code>center</code> is not a center node.
+     */
+    public String[] getInformation( String center ) {
+        int index = search( centerIds, centerCount, idOf( center ) );
+        if( index < 0 ) {
+            return null;
+        }
+        int width = columnCount - 1;
+        String[] ret = new String[width];
+        int position = centerInformation + 4 * index * width;
+        for( int i = 0; i < width; i++, position += 4 ) {
+            int id = buffer.getInt( position );
+            ret[i] = (id < 0) ? null : getString( id );
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the number of center nodes of an information node.
+     * @param column The (zero-based) information node column number.
+     * @param value The information node data.
+     */
+    public int countCenters( int column, String value ) {
+        int index = search( keys[column], keyCounts[column], idOf( value ) );
+        if( index < 0 ) {
+            return 0;
+        }
+        return buffer.getInt( starts[column] + 4 * (index + 1) ) - buffer.getInt( starts[column] + 4 * index );
+    }
+
+    /**
+     * Returns center nodes of an information node, in the order of the rows they come from.
+     * @param column The (zero-based) information node column number.
+     * @param value The information node data.
+     * @param from The number of center nodes to skip.
+     * @param limit The maximum number of center nodes to return.
+     * @return The data of at most <code>limit</code> center nodes, starting at center node <code>from</code>.
+     */
+    public String[] getCenters( int column, String value, int from, int limit ) {
+        int index = search( keys[column], keyCounts[column], idOf( value ) );
+        if( index < 0 ) {
+            return NO_STRINGS;
+        }
+        int start = buffer.getInt( starts[column] + 4 * index ) + Math.max( 0, from );
+        int end = buffer.getInt( starts[column] + 4 * (index + 1) );
+        int count = (int) Math.max( 0, Math.min( (long) end - start, limit ) );
+        String[] ret = new String[count];
+        for( int i = 0; i < count; i++ ) {
+            ret[i] = getString( buffer.getInt( targets[column] + 4 * (start + i) ) );
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the id of a string with the string hash table.
+     * @return The id of <code>value</code>, or -1 if it is not in the snapshot.
+     */
+    private int idOf( String value ) {
+        if( value == null || stringCount == 0 ) {
+            return -1;
+        }
+        byte[] bytes = value.getBytes( CHARSET );
+        int mask = hashCapacity - 1;
+        for( int slot = hash( value ) & mask;; slot = (slot + 1) & mask ) {
+            int entry = buffer.getInt( hashTable + 4 * slot );
+            if( entry == 0 ) {
+                return -1;
+            } else if( stringEquals( entry - 1, bytes ) ) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private boolean stringEquals( int id, byte[] bytes ) {
+        int start = buffer.getInt( stringOffsets + 4 * id );
+        int end = buffer.getInt( stringOffsets + 4 * (id + 1) );
+        if( end - start != bytes.length ) {
+            return false;
+        }
+        for( int i = 0; i < bytes.length; i++ ) {
+            if( buffer.get( stringData + start + i ) != bytes[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getString( int id ) {
+        int start = buffer.getInt( stringOffsets + 4 * id );
+        int end = buffer.getInt( stringOffsets + 4 * (id + 1) );
+        byte[] bytes = new byte[end - start];
+        for( int i = 0; i < bytes.length; i++ ) {
+            bytes[i] = buffer.get( stringData + start + i );
+        }
+        return new String( bytes, CHARSET );
+    }
+
+    /**
+     * Binary searches the sorted ints at <code>position</code> for <code>id</code>.
+     * @return The index of <code>id</code>, or -1 if it is not there.
+     */
+    private int search( int position, int count, int id ) {
+        if( id < 0 ) {
+            return -1;
+        }
+        int low = 0;
+        int high = count - 1;
+        while( low <= high ) {
+            int middle = (low + high) >>> 1;
+            int value = buffer.getInt( position + 4 * middle );
+            if( value < id ) {
+                low = middle + 1;
+            } else if( value > id ) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,446 @@
+package edu.rit.entityg.snapshot;
+
+import edu.rit.entityg.csv.CSVConnection;
+import edu.rit.entityg.csv.TableRow;
+import edu.rit.entityg.database.DatabaseConnection;
+import edu.rit.entityg.database.QueryStats;
+import edu.rit.entityg.dataloaders.DatabaseLoader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles rows of a data source into a {@link SnapshotFile}. Each row is added with
+ * {@link SnapshotWriter#addRow(java.lang.String, java.lang.String[])}, as its center node data followed by its
+ * information node data, and {@link SnapshotWriter#write(java.io.File)} then writes the snapshot.
+ * <p/>The snapshot answers lookups the same way the loader of the original data source does: the information nodes of
+ * a center node come from the first row that contains it, and the center nodes of an information node are the center
+ * nodes of every row that contains it, in row order. A <code>null</code> value (or the string "null", which is how
+ * {@link DatabaseConnection} treats it) never becomes a node.
+ * <p/>A snapshot of a base query can keep a high-water mark: the largest value of a column whose values are unique and
+ * strictly increasing in the order rows are committed, such as an auto-increment id. The snapshot can then be
+ * refreshed by only querying the rows past its high-water mark (see
+ * {@link SnapshotWriter#fromQuery(edu.rit.entityg.database.DatabaseConnection, java.lang.String, java.lang.String,
+ * java.lang.String[], java.lang.String, java.io.File)}).
+ * @date Oct 16, 2026
+ * @author Eric Kisner
+ */
+public class SnapshotWriter {
+
+    private final String[] columnNames;
+    /**
+     * A mapping of every distinct string to its id. Ids are given out in the order strings are first seen.
+     */
+    private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    private final ArrayList<String> strings = new ArrayList<String>();
+    /**
+     * The center node string id of each row, or -1.
+     */
+    private int[] centers = new int[1024];
+    /**
+     * The information node string ids of each row, one row after the other, or -1 for a value that is not a node.
+     */
+    private int[] information;
+    private int rowCount = 0;
+    private int highWaterMarkColumn = -1;
+    private int highWaterMark = -1;
+
+    /**
+     * Creates a writer of rows with the given columns.
+     * @param centerColumnName The name of the center node column.
+     * @param informationColumnNames The names of the information node columns, in the order their values are given
+     *                               to {@link SnapshotWriter#addRow(java.lang.String, java.lang.String[])}.
+     */
+    public SnapshotWriter( String centerColumnName, String[] informationColumnNames ) {
+        this.columnNames = new String[informationColumnNames.length + 1];
+        this.columnNames[0] = centerColumnName;
+        System.arraycopy( informationColumnNames, 0, columnNames, 1, informationColumnNames.length );
+        this.information = new int[centers.length * Math.max( 1, informationColumnNames.length )];
+        for( String name : columnNames ) {
+            idOf( name );
+        }
+    }
+
+    /**
+     * Compiles the center node column and information node columns of a CSV file into a snapshot.
+     * @param conn The connection to the CSV file.
+     * @param centerColumn The (zero-based) center node column number.
+     * @param informationColumns The (zero-based) information node column numbers.
+     * @param columnNames A mapping of column numbers to column names.
+     * @param file The snapshot file to write.
+     * @throws IOException If the CSV file could not be read, or the snapshot could not be written.
+     */
+    public static void fromCSV( CSVConnection conn, int centerColumn, int[] informationColumns,
+                                Map<Integer, String> columnNames, File file ) throws IOException {
+        String[] names = new String[informationColumns.length];
+        for( int i = 0; i < informationColumns.length; i++ ) {
+            names[i] = columnNames.get( informationColumns[i] );
+        }
+        SnapshotWriter writer = new SnapshotWriter( columnNames.get( centerColumn ), names );
+        String[] values = new String[informationColumns.length];
+        conn.reset();
+        TableRow row;
+        while( (row = conn.getLine()) != null ) {
+            int count = row.getColumnCount();
+            for( int i = 0; i < informationColumns.length; i++ ) {
+                values[i] = (informationColumns[i] < count) ? row.getColumn( informationColumns[i] ) : null;
+            }
+            writer.addRow( (centerColumn < count) ? row.getColumn( centerColumn ) : null, values );
+        }
+        conn.reset();
+        writer.write( file );
+    }
+
+    /**
+     * Compiles the result of a base query into a snapshot.
+     * @see SnapshotWriter#fromQuery(edu.rit.entityg.database.DatabaseConnection, java.lang.String,
+     *      java.lang.String, java.lang.String[], java.lang.String, java.io.File)
+     */
+    public static void fromQuery( DatabaseConnection conn, String baseQuery, String centerColumnName,
+                                  String[] informationColumnNames, File file ) throws SQLException, IOException {
+        fromQuery( conn, baseQuery, centerColumnName, informationColumnNames, null, file );
+    }
+
+    /**
+     * Compiles the result of a base query into a snapshot. The base query is expected to end with a
+     * <code>WHERE</code> (see {@link DatabaseLoader#setBaseQuery(java.lang.String)}), so a condition which matches
+     * every row is added to it. Only the center node column and information node columns are selected (see
+     * {@link DatabaseLoader#projectColumns(java.lang.String, java.lang.String, java.lang.String[])}), and the rows are
+     * streamed from the database, so the result is never held in memory as a whole.
+     * <p/>If <code>highWaterMarkColumn</code> is given, its largest value is kept in the snapshot. If
+     * <code>file</code> is already a snapshot of the same columns with a high-water mark, it is refreshed instead:
+     * only the rows whose high-water mark column is greater than the snapshot's high-water mark are queried, and
+     * added to the rows of the snapshot (see {@link SnapshotFile#copyRows(SnapshotWriter)}). A refresh only finds new
+     * rows, so a source whose rows are changed or deleted needs the snapshot file to be deleted, so that it is written
+     * again from every row. Insertion times make poor high-water marks: a row which commits later with the same time as
+     * the high-water mark, or an earlier one, is never found by a refresh.
+     * <p/>The high-water mark is kept as the database returns it as a string, so it is bound back to the refresh query
+     * in the database's own format.
+     * @param conn The connection to the database.
+     * @param baseQuery The base query.
+     * @param centerColumnName The name of the center node column.
+     * @param informationColumnNames The names of the information node columns.
+     * @param highWaterMarkColumn The name of a column whose values are unique and strictly increasing with every new
+     *                            row, or null.
+     * @param file The snapshot file to write.
+     * @throws SQLException If the query failed.
+     * @throws IOException If the snapshot could not be written.
+     */
+    public static void fromQuery( DatabaseConnection conn, String baseQuery, String centerColumnName,
+                                  String[] informationColumnNames, String highWaterMarkColumn, File file )
+            throws SQLException, IOException {
+        SnapshotWriter writer = new SnapshotWriter( centerColumnName, informationColumnNames );
+        String highWaterMark = null;
+        String[] selected = informationColumnNames;
+        String condition = "1 = 1";
+        if( highWaterMarkColumn != null ) {
+            SnapshotFile previous = refreshable( file, centerColumnName, informationColumnNames,
+                                                 highWaterMarkColumn );
+            if( previous != null ) {
+                previous.copyRows( writer );
+                highWaterMark = previous.getHighWaterMark();
+                condition = highWaterMarkColumn + " > ?";
+            }
+            selected = Arrays.copyOf( informationColumnNames, informationColumnNames.length + 1 );
+            selected[informationColumnNames.length] = highWaterMarkColumn;
+        }
+        String query = DatabaseLoader.projectColumns( baseQuery.trim() + " ", centerColumnName, selected )
+                       + condition;
+        Object[] params = (highWaterMark == null) ? new Object[0] : new Object[]{ highWaterMark };
+        String[] values = new String[informationColumnNames.length];
+        Comparable<Object> max = null;
+        String maxString = null;
+        Connection connection = conn.borrow();
+        ResultSet rs = null;
+        QueryStats.Timing timing = conn.getQueryStats().start( (highWaterMark == null) ? "snapshot"
+                                                               : "snapshot refresh", query, params );
+        try {
+            rs = conn.executePrepared( connection, DatabaseConnection.STREAM_RESULTS, query, params );
+            timing.lap( QueryStats.Phase.EXECUTE );
+            int center = rs.findColumn( centerColumnName );
+            int[] columns = new int[informationColumnNames.length];
+            for( int i = 0; i < columns.length; i++ ) {
+                columns[i] = rs.findColumn( informationColumnNames[i] );
+            }
+            int mark = (highWaterMarkColumn == null) ? 0 : rs.findColumn( highWaterMarkColumn );
+            while( rs.next() ) {
+                for( int i = 0; i < columns.length; i++ ) {
+                    values[i] = rs.getString( columns[i] );
+                }
+                writer.addRow( rs.getString( center ), values );
+                if( mark > 0 ) {
+                    Comparable<Object> larger = max( max, rs.getObject( mark ) );
+                    if( larger != max ) {
+                        max = larger;
+                        maxString = rs.getString( mark );
+                    }
+                }
+            }
+            timing.lap( QueryStats.Phase.MATERIALIZE );
+        } finally {
+            DatabaseConnection.closeResult( rs );
+            conn.release( connection );
+            timing.finish();
+        }
+        if( highWaterMarkColumn != null ) {
+            writer.setHighWaterMark( highWaterMarkColumn, (max == null) ? highWaterMark : maxString );
+        }
+        writer.write( file );
+    }
+
+    /**
+     * Reads <code>file</code> if it is a snapshot of the given columns with a high-water mark of
+     * <code>highWaterMarkColumn</code>, which can be refreshed. Otherwise, returns null, and the snapshot is written
+     * again from every row. The snapshot is read into memory instead of being mapped, since the file is replaced once
+     * it is refreshed.
+     */
+    private static SnapshotFile refreshable( File file, String centerColumnName, String[] informationColumnNames,
+                                             String highWaterMarkColumn ) throws IOException {
+        if( !file.isFile() ) {
+            return null;
+        }
+        SnapshotFile snapshot = SnapshotFile.read( file );
+        boolean same = centerColumnName.equals( snapshot.getCenterColumnName() )
+                       && informationColumnNames.length == snapshot.getInformationColumnCount()
+                       && highWaterMarkColumn.equals( snapshot.getHighWaterMarkColumnName() )
+                       && snapshot.getHighWaterMark() != null;
+        for( int i = 0; same && i < informationColumnNames.length; i++ ) {
+            same = informationColumnNames[i].equals( snapshot.getInformationColumnName( i ) );
+        }
+        return same ? snapshot : null;
+    }
+
+    /**
+     * Returns the larger of the high-water mark so far and the high-water mark of a row. Every value of a column is
+     * read as the same type, so they can be compared as they are.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static Comparable<Object> max( Comparable<Object> max, Object value ) {
+        if( !(value instanceof Comparable) ) {
+            return max;
+        }
+        Comparable<Object> comparable = (Comparable<Object>) value;
+        return (max == null || comparable.compareTo( max ) > 0) ? comparable : max;
+    }
+
+    /**
+     * Keeps a high-water mark in the snapshot.
+     * @param column The name of the column the high-water mark is of.
+     * @param value The largest value of <code>column</code> in the rows, or null if there are none.
+     */
+    public void setHighWaterMark( String column, String value ) {
+        this.highWaterMarkColumn = idOf( column );
+        this.highWaterMark = (value == null) ? -1 : idOf( value );
+    }
+
+    /**
+     * Adds a row.
+     * @param center The center node data of the row.
+     * @param informationValues The information node data of the row, in the order of the information node columns.
+     */
+    public void addRow( String center, String[] informationValues ) {
+        int width = columnNames.length - 1;
+        if( rowCount == centers.length ) {
+            centers = Arrays.copyOf( centers, rowCount * 2 );
+            information = Arrays.copyOf( information, centers.length * Math.max( 1, width ) );
+        }
+        centers[rowCount] = isNode( center ) ? idOf( center ) : -1;
+        for( int i = 0; i < width; i++ ) {
+            String value = (i < informationValues.length) ? informationValues[i] : null;
+            information[rowCount * width + i] = isNode( value ) ? idOf( value ) : -1;
+        }
+        rowCount++;
+    }
+
+    private static boolean isNode( String value ) {
+        return value != null && !value.equalsIgnoreCase( "null" );
+    }
+
+    private int idOf( String value ) {
+        Integer id = ids.get( value );
+        if( id == null ) {
+            id = strings.size();
+            ids.put( value, id );
+            strings.add( value );
+        }
+        return id;
+    }
+
+    /**
+     * Writes the snapshot of every row that was added. The snapshot is written to a temporary file first, so a
+     * half-written snapshot is never picked up.
+     * @param file The snapshot file to write.
+     * @throws IOException If the snapshot could not be written, or would be larger than a snapshot can be.
+     */
+    public void write( File file ) throws IOException {
+        int width = columnNames.length - 1;
+        int stringCount = strings.size();
+
+        //The string table.
+        byte[][] encoded = new byte[stringCount][];
+        long blobLength = 0;
+        for( int i = 0; i < stringCount; i++ ) {
+            encoded[i] = strings.get( i ).getBytes( SnapshotFile.CHARSET );
+            blobLength += encoded[i].length;
+        }
+        int capacity = Integer.highestOneBit( Math.max( 1, stringCount ) ) << 2;
+        int[] hashTable = new int[capacity];
+        for( int i = 0; i < stringCount; i++ ) {
+            int slot = SnapshotFile.hash( strings.get( i ) ) & (capacity - 1);
+            while( hashTable[slot] != 0 ) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            hashTable[slot] = i + 1;
+        }
+
+        //The center nodes, sorted by string id, with the information of the first row of each.
+        int[] firstRow = new int[stringCount];
+        Arrays.fill( firstRow, -1 );
+        int centerCount = 0;
+        for( int row = 0; row < rowCount; row++ ) {
+            int center = centers[row];
+            if( center >= 0 && firstRow[center] < 0 ) {
+                firstRow[center] = row;
+                centerCount++;
+            }
+        }
+        int[] centerIds = new int[centerCount];
+        int[] centerInformation = new int[centerCount * width];
+        for( int id = 0, k = 0; id < stringCount; id++ ) {
+            if( firstRow[id] >= 0 ) {
+                centerIds[k] = id;
+                System.arraycopy( information, firstRow[id] * width, centerInformation, k * width, width );
+                k++;
+            }
+        }
+
+        //The center nodes of each information node, in CSR form: the keys of a column sorted by string id, the start of
+        //each key's center nodes, and the center nodes of all keys one after the other.
+        int[][] keys = new int[width][];
+        int[][] starts = new int[width][];
+        int[][] targets = new int[width][];
+        int[] counts = new int[stringCount];
+        for( int column = 0; column < width; column++ ) {
+            Arrays.fill( counts, 0 );
+            int keyCount = 0;
+            int edgeCount = 0;
+            for( int row = 0; row < rowCount; row++ ) {
+                int value = information[row * width + column];
+                if( value >= 0 && centers[row] >= 0 ) {
+                    if( counts[value]++ == 0 ) {
+                        keyCount++;
+                    }
+                    edgeCount++;
+                }
+            }
+            keys[column] = new int[keyCount];
+            starts[column] = new int[keyCount + 1];
+            targets[column] = new int[edgeCount];
+            //counts[value] becomes the next free position of value's center nodes.
+            for( int id = 0, k = 0, start = 0; id < stringCount; id++ ) {
+                if( counts[id] > 0 ) {
+                    keys[column][k] = id;
+                    starts[column][k++] = start;
+                    int count = counts[id];
+                    counts[id] = start;
+                    start += count;
+                }
+            }
+            starts[column][keyCount] = edgeCount;
+            for( int row = 0; row < rowCount; row++ ) {
+                int value = information[row * width + column];
+                if( value >= 0 && centers[row] >= 0 ) {
+                    targets[column][counts[value]++] = centers[row];
+                }
+            }
+        }
+
+        long size = SnapshotFile.HEADER_SIZE + 4L * (columnNames.length + width + stringCount + 1 + capacity
+                                                     + centerCount + centerInformation.length) + blobLength;
+        for( int column = 0; column < width; column++ ) {
+            size += 4L * (keys[column].length + starts[column].length + targets[column].length);
+        }
+        if( size > Integer.MAX_VALUE ) {
+            throw new IOException( "A snapshot of " + rowCount + " rows would be " + size + " bytes, which is larger "
+                                   + "than a snapshot can be (" + Integer.MAX_VALUE + " bytes)." );
+        }
+
+        File temp = new File( file.getPath() + ".tmp" );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( temp ),
+                                                                               64 * 1024 ) );
+        try {
+            out.writeInt( SnapshotFile.MAGIC );
+            out.writeInt( SnapshotFile.VERSION );
+            out.writeInt( columnNames.length );
+            out.writeInt( stringCount );
+            out.writeInt( capacity );
+            out.writeInt( centerCount );
+            out.writeInt( (rowCount > 0) ? centers[firstRow()] : -1 );
+            out.writeInt( (int) blobLength );
+            out.writeInt( highWaterMarkColumn );
+            out.writeInt( highWaterMark );
+            for( String name : columnNames ) {
+                out.writeInt( ids.get( name ) );
+            }
+            for( int column = 0; column < width; column++ ) {
+                out.writeInt( keys[column].length );
+            }
+            int offset = 0;
+            for( int i = 0; i < stringCount; i++ ) {
+                out.writeInt( offset );
+                offset += encoded[i].length;
+            }
+            out.writeInt( offset );
+            writeInts( out, hashTable );
+            writeInts( out, centerIds );
+            writeInts( out, centerInformation );
+            for( int column = 0; column < width; column++ ) {
+                writeInts( out, keys[column] );
+                writeInts( out, starts[column] );
+                writeInts( out, targets[column] );
+            }
+            for( byte[] bytes : encoded ) {
+                out.write( bytes );
+            }
+        } finally {
+            out.close();
+        }
+        //Whoever opens the file sees either the old snapshot or the new one, never a half written one.
+        try {
+            Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE );
+        } catch( AtomicMoveNotSupportedException amnse ) {
+            Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    /**
+     * Returns the first row that has a center node, or 0 if no row has one.
+     */
+    private int firstRow() {
+        for( int row = 0; row < rowCount; row++ ) {
+            if( centers[row] >= 0 ) {
+                return row;
+            }
+        }
+        return 0;
+    }
+
+    private static void writeInts( DataOutputStream out, int[] values ) throws IOException {
+        for( int value : values ) {
+            out.writeInt( value );
+        }
+    }
+}
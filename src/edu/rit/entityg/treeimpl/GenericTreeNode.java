@@ -15,6 +15,11 @@ public class GenericTreeNode<T> {
     private T dataHeader;
     private List<GenericTreeNode<T>> children;
     private boolean isCenterNode;
+    /**
+     * Where a data source loader should continue from when more children of this node are loaded, or null if all of
+     * this node's children have been loaded.
+     */
+    private Object continuation;
 
     /**
      * Default constructor. Allows for manual data setting.
@@ -134,6 +139,31 @@ public class GenericTreeNode<T> {
         return isCenterNode;
     }
 
+    /**
+     * Returns where a data source loader should continue from when it loads more children of this node. What this
+     * object is depends on the loader; for example, it may be a byte offset in a file.
+     * @return The continuation, or null if all of this node's children have been loaded.
+     */
+    public Object getContinuation() {
+        return continuation;
+    }
+
+    /**
+     * Sets where a data source loader should continue from when it loads more children of this node.
+     * @param continuation The continuation, or null if all of this node's children have been loaded.
+     */
+    public void setContinuation( Object continuation ) {
+        this.continuation = continuation;
+    }
+
+    /**
+     * Tests whether there may be more children of this node left to load.
+     * @return True if this node has a continuation, else false.
+     */
+    public boolean hasMoreChildren() {
+        return continuation != null;
+    }
+
     /**
      * Returns the string representation of this node.
      * Use {@link GenericTreeNode#toStringVerbose()} for the string representation of this